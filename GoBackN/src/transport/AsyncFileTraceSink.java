@@ -0,0 +1,156 @@
+package transport;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Writes trace lines to a file from a background thread, so the simulation never waits on disk I/O.
+ * Lines are handed over through a bounded queue; the simulator only blocks if the writer falls a whole queue behind.
+ * Once the writer fails, every further call throws the UncheckedIOException instead of waiting for it.
+ */
+public class AsyncFileTraceSink implements TraceSink {
+
+    private static final int QUEUE_CAPACITY = 16384;
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final long POLL_MILLIS = 100;    // how often a blocked println checks that the writer thread is still running
+
+    // markers passed through the queue to the writer thread (compared by identity)
+    private static final String FLUSH = new String("flush");
+    private static final String CLOSE = new String("close");
+
+    private final BlockingQueue<String> queue;
+    private final Writer writer;
+    private final Thread thread;
+
+    private volatile IOException failure;
+    private boolean closed;
+
+    private long flushesRequested;      // only used by the simulation thread
+    private long flushesCompleted;      // guarded by this
+
+    public AsyncFileTraceSink(String fileName) throws IOException {
+        queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), BUFFER_SIZE);
+
+        thread = new Thread(this::drain, "trace-writer-" + fileName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @Override
+    public void println(String line) {
+        if (closed) {
+            throw new IllegalStateException("trace sink is closed");
+        }
+        enqueue(line);
+    }
+
+    // wait until every line written so far has reached the file
+    @Override
+    public void flush() {
+        if (!closed) {
+            long ticket = ++flushesRequested;
+            enqueue(FLUSH);
+
+            synchronized (this) {
+                while (flushesCompleted < ticket && failure == null && thread.isAlive()) {
+                    try {
+                        wait();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        enqueue(CLOSE);
+
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        checkFailure();
+    }
+
+    // hand a line to the writer thread, unless it has stopped (nobody would ever take the line from a full queue)
+    private void enqueue(String line) {
+        try {
+            do {
+                checkFailure();
+                if (!thread.isAlive()) {
+                    throw new IllegalStateException("trace writer thread has stopped");
+                }
+            } while (!queue.offer(line, POLL_MILLIS, TimeUnit.MILLISECONDS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void checkFailure() {
+        if (failure != null) {
+            throw new UncheckedIOException("unable to write trace", failure);
+        }
+    }
+
+    // body of the writer thread
+    private void drain() {
+        List<String> batch = new ArrayList<>(QUEUE_CAPACITY);
+
+        try {
+            while (true) {
+                batch.add(queue.take());
+                queue.drainTo(batch);
+
+                for (String line : batch) {
+                    if (line == CLOSE) {
+                        writer.close();
+                        return;
+                    } else if (line == FLUSH) {
+                        writer.flush();
+                        synchronized (this) {
+                            flushesCompleted++;
+                            notifyAll();
+                        }
+                    } else {
+                        writer.write(line);
+                        writer.write('\n');
+                    }
+                }
+                batch.clear();
+            }
+        } catch (IOException e) {
+            try {
+                writer.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            synchronized (this) {
+                notifyAll();
+            }
+        }
+    }
+}
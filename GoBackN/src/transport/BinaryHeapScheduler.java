@@ -0,0 +1,139 @@
+package transport;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An EventScheduler backed by an array-based binary min-heap.
+ * add, removeNext and remove are all O(log n); each Event remembers its own position in the heap.
+ */
+public class BinaryHeapScheduler implements EventScheduler {
+
+    private static final int INITIAL_CAPACITY = 64;
+
+    private Event[] heap;
+    private int size;
+
+    public BinaryHeapScheduler() {
+        heap = new Event[INITIAL_CAPACITY];
+        size = 0;
+    }
+
+    @Override
+    public void add(Event e) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, heap.length * 2);
+        }
+        siftUp(size, e);
+        size++;
+    }
+
+    @Override
+    public Event removeNext() {
+        if (size == 0) {
+            return null;
+        }
+
+        Event next = heap[0];
+        removeAt(0);
+
+        return next;
+    }
+
+    @Override
+    public boolean remove(Event e) {
+        int i = e.index;
+
+        if (i < 0 || i >= size || heap[i] != e) {
+            return false;
+        }
+
+        removeAt(i);
+        return true;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void removeAt(int i) {
+        Event removed = heap[i];
+        size--;
+
+        Event last = heap[size];
+        heap[size] = null;
+
+        if (i != size) {
+            // move the last event into the hole and restore the heap order in whichever direction is needed
+            siftDown(i, last);
+            if (heap[i] == last) {
+                siftUp(i, last);
+            }
+        }
+
+        removed.index = -1;
+    }
+
+    private void siftUp(int i, Event e) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            Event p = heap[parent];
+            if (!e.isBefore(p)) {
+                break;
+            }
+            heap[i] = p;
+            p.index = i;
+            i = parent;
+        }
+        heap[i] = e;
+        e.index = i;
+    }
+
+    private void siftDown(int i, Event e) {
+        int half = size >>> 1;
+
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < size && heap[right].isBefore(heap[child])) {
+                child = right;
+            }
+            if (!heap[child].isBefore(e)) {
+                break;
+            }
+            heap[i] = heap[child];
+            heap[i].index = i;
+            i = child;
+        }
+        heap[i] = e;
+        e.index = i;
+    }
+
+    // iterates over the pending events in heap (not time) order
+    @Override
+    public Iterator<Event> iterator() {
+        return new Iterator<Event>() {
+            private int cursor = 0;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < size;
+            }
+
+            @Override
+            public Event next() {
+                if (cursor >= size) {
+                    throw new NoSuchElementException();
+                }
+                return heap[cursor++];
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return Arrays.toString(Arrays.copyOf(heap, size));
+    }
+}
@@ -0,0 +1,244 @@
+package transport;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * An EventScheduler backed by a calendar queue (R. Brown, "Calendar Queues", CACM 1988).
+ *
+ * Events are hashed by time into an array of "day" buckets, each holding a sorted linked list.
+ * A whole "year" spans buckets.length days of the given width. The number of buckets doubles or halves
+ * with the number of pending events and the bucket width is re-estimated from the spacing of the soonest events,
+ * so add and removeNext take O(1) expected time.
+ */
+public class CalendarQueueScheduler implements EventScheduler {
+
+    private static final int MIN_BUCKETS = 2;       // always a power of two
+    private static final int SAMPLE_SIZE = 25;      // number of events sampled to estimate the bucket width
+
+    private Event[] buckets;        // head of each day's list, sorted with Event.isBefore()
+    private int mask;               // buckets.length - 1
+    private double width;           // the length of a day in simulated time
+    private int size;
+
+    // virtual bucket (time / width) the search for the next event starts from
+    // no pending event lies in an earlier virtual bucket
+    private long current;
+
+    private final Event[] sample = new Event[SAMPLE_SIZE];
+
+    public CalendarQueueScheduler() {
+        buckets = new Event[MIN_BUCKETS];
+        mask = MIN_BUCKETS - 1;
+        width = 1.0;
+        size = 0;
+        current = 0;
+    }
+
+    @Override
+    public void add(Event e) {
+        e.bucket = virtualBucket(e.getTime());
+        if (size == 0 || e.bucket < current) {
+            current = e.bucket;
+        }
+        insert(e);
+        size++;
+
+        if (size > 2 * buckets.length) {
+            resize(buckets.length * 2);
+        }
+    }
+
+    @Override
+    public Event removeNext() {
+        if (size == 0) {
+            return null;
+        }
+
+        Event next = poll();
+
+        if (size < buckets.length / 2 && buckets.length > MIN_BUCKETS) {
+            resize(buckets.length / 2);
+        }
+
+        return next;
+    }
+
+    @Override
+    public boolean remove(Event e) {
+        int i = (int) (e.bucket & mask);
+        Event prev = null;
+
+        for (Event p = buckets[i]; p != null; p = p.next) {
+            if (p == e) {
+                if (prev == null) {
+                    buckets[i] = e.next;
+                } else {
+                    prev.next = e.next;
+                }
+                e.next = null;
+                size--;
+                return true;
+            }
+            prev = p;
+        }
+
+        return false;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private long virtualBucket(double time) {
+        return (long) Math.floor(time / width);
+    }
+
+    // insert an event (with its virtual bucket already computed) into its day, keeping the list sorted
+    private void insert(Event e) {
+        int i = (int) (e.bucket & mask);
+        Event head = buckets[i];
+
+        if (head == null || e.isBefore(head)) {
+            e.next = head;
+            buckets[i] = e;
+            return;
+        }
+
+        Event p = head;
+        while (p.next != null && !e.isBefore(p.next)) {
+            p = p.next;
+        }
+        e.next = p.next;
+        p.next = e;
+    }
+
+    // remove and return the soonest event; the queue must not be empty
+    private Event poll() {
+        Event next = null;
+
+        // walk through one year of days, starting from the current one
+        for (int n = 0; n < buckets.length; n++) {
+            long day = current + n;
+            Event head = buckets[(int) (day & mask)];
+            if (head != null && head.bucket == day) {
+                current = day;
+                next = head;
+                break;
+            }
+        }
+
+        if (next == null) {
+            // nothing within a year: fall back to a direct search of the bucket heads
+            for (Event head : buckets) {
+                if (head != null && (next == null || head.isBefore(next))) {
+                    next = head;
+                }
+            }
+            current = next.bucket;
+        }
+
+        int i = (int) (next.bucket & mask);
+        buckets[i] = next.next;
+        next.next = null;
+        size--;
+
+        return next;
+    }
+
+    private void resize(int newSize) {
+        double newWidth = estimateWidth();
+
+        Event[] old = buckets;
+        buckets = new Event[newSize];
+        mask = newSize - 1;
+        width = newWidth;
+
+        long first = Long.MAX_VALUE;
+        for (Event head : old) {
+            Event e = head;
+            while (e != null) {
+                Event following = e.next;
+                e.bucket = virtualBucket(e.getTime());
+                first = Math.min(first, e.bucket);
+                insert(e);
+                e = following;
+            }
+        }
+
+        current = (first == Long.MAX_VALUE) ? 0 : first;
+    }
+
+    // Brown's heuristic: three times the average separation of the soonest events, ignoring outliers
+    private double estimateWidth() {
+        int n = Math.min(size, SAMPLE_SIZE);
+        if (n < 2) {
+            return width;
+        }
+
+        for (int i = 0; i < n; i++) {
+            sample[i] = poll();
+        }
+
+        double average = (sample[n - 1].getTime() - sample[0].getTime()) / (n - 1);
+        double total = 0.0;
+        int count = 0;
+        for (int i = 1; i < n; i++) {
+            double gap = sample[i].getTime() - sample[i - 1].getTime();
+            if (gap <= 2.0 * average) {
+                total += gap;
+                count++;
+            }
+        }
+
+        // put the sampled events back; resize() recomputes the current bucket afterwards
+        for (int i = 0; i < n; i++) {
+            insert(sample[i]);
+            sample[i] = null;
+            size++;
+        }
+
+        double separation = (count > 0) ? total / count : 0.0;
+        return (separation > 0.0) ? 3.0 * separation : width;
+    }
+
+    // iterates over the pending events day by day (not in time order)
+    @Override
+    public Iterator<Event> iterator() {
+        return new Iterator<Event>() {
+            private int day = -1;
+            private Event cursor = null;
+
+            @Override
+            public boolean hasNext() {
+                while (cursor == null && day < buckets.length - 1) {
+                    cursor = buckets[++day];
+                }
+                return cursor != null;
+            }
+
+            @Override
+            public Event next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Event e = cursor;
+                cursor = cursor.next;
+                return e;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("[");
+        for (Event e : this) {
+            if (sb.length() > 1) {
+                sb.append(", ");
+            }
+            sb.append(e);
+        }
+        return sb.append(']').toString();
+    }
+}
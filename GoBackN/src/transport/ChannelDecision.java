@@ -0,0 +1,51 @@
+package transport;
+
+/**
+ * What the channel decided for one packet: whether it is lost, how it is corrupted, and the random part of its delay.
+ * Made by ChannelModel.decide(), recorded by a ChannelRecorder and replayed by a ChannelReplay.
+ * The simulator reuses one instance for every packet.
+ */
+public class ChannelDecision {
+
+    // what is corrupted
+    public static final int NONE = 0;
+    public static final int PAYLOAD = 1;       // the first payload byte (an empty payload becomes one byte)
+    public static final int SEQNUM = 2;        // the sequence number is replaced by corruptionValue
+    public static final int ACKNUM = 3;        // the acknowledgment number is replaced by corruptionValue
+
+    boolean lost;
+    int corruption = NONE;
+    int corruptionValue;
+    double delay = Double.NaN;  // added to 1 time unit after the previous arrival (see ChannelModel.nextArrival); NaN if not drawn
+
+    void reset() {
+        lost = false;
+        corruption = NONE;
+        corruptionValue = 0;
+        delay = Double.NaN;
+    }
+
+    public boolean isLost() {
+        return lost;
+    }
+
+    public boolean isCorrupted() {
+        return corruption != NONE;
+    }
+
+    public int getCorruption() {
+        return corruption;
+    }
+
+    public int getCorruptionValue() {
+        return corruptionValue;
+    }
+
+    public boolean hasDelay() {
+        return !Double.isNaN(delay);
+    }
+
+    public double getDelay() {
+        return delay;
+    }
+}
@@ -0,0 +1,162 @@
+package transport;
+
+/**
+ * What the channel does to a packet: lose it, corrupt it, and how long it takes to cross.
+ * The simulated network (NetworkHost.udtSend) and the LoopbackNetwork's impairment proxy both use it,
+ * so a run over real datagrams sees the same channel as a simulated one.
+ *
+ * Which packets are lost and which are corrupted is decided by a LossModel for each direction (from the senders to the receivers,
+ * and back); by default every packet is lost, and corrupted, with a fixed probability.
+ * Every decision is drawn from a RandomStream of its own purpose and direction (see RandomStream.Purpose), derived from the
+ * simulation's seed, which keeps runs with the same seed identical and one decision from shifting the others.
+ * Both make all of a packet's decisions at once with decide(), through NetworkSimulator.decideChannel, so that they can be recorded
+ * and replayed (see ChannelRecorder).
+ */
+public class ChannelModel {
+
+    private static final byte CORRUPTED_BYTE = '=';                                 // what corruption writes over a payload byte
+    private static final byte[] CORRUPTED_EMPTY_PAYLOAD = {CORRUPTED_BYTE};         // shared, never modified
+
+    private final RandomStream[] corruptionContent;  // how a packet is corrupted, for each direction (see RandomStream.direction)
+    private final RandomStream[] delay;              // what nextDelay() draws, for each direction
+    private final LossModel forwardLoss;            // decides which packets from the senders are "lost"
+    private final LossModel reverseLoss;            // ... and from the receivers
+    private final LossModel forwardCorruption;      // decides which packets from the senders are "corrupted"
+    private final LossModel reverseCorruption;      // ... and from the receivers
+
+    // the original channel: every packet is lost with probability lossProb and corrupted with probability corruptProb
+    public ChannelModel(long seed, double lossProb, double corruptProb) {
+        this(seed, new BernoulliLoss(RandomStream.create(seed, RandomStream.Purpose.LOSS, 0), lossProb),
+                new BernoulliLoss(RandomStream.create(seed, RandomStream.Purpose.LOSS, 1), lossProb),
+                new BernoulliLoss(RandomStream.create(seed, RandomStream.Purpose.CORRUPTION, 0), corruptProb),
+                new BernoulliLoss(RandomStream.create(seed, RandomStream.Purpose.CORRUPTION, 1), corruptProb));
+    }
+
+    /**
+     * @param seed the simulation's seed, which the corruption and delay streams are derived from
+     * @param forwardLoss
+     * @param reverseLoss
+     * @param forwardCorruption
+     * @param reverseCorruption
+     */
+    public ChannelModel(long seed, LossModel forwardLoss, LossModel reverseLoss, LossModel forwardCorruption, LossModel reverseCorruption) {
+        corruptionContent = new RandomStream[] {
+            RandomStream.create(seed, RandomStream.Purpose.CORRUPTION_CONTENT, 0), RandomStream.create(seed, RandomStream.Purpose.CORRUPTION_CONTENT, 1)
+        };
+        delay = new RandomStream[] {
+            RandomStream.create(seed, RandomStream.Purpose.DELAY, 0), RandomStream.create(seed, RandomStream.Purpose.DELAY, 1)
+        };
+        this.forwardLoss = forwardLoss;
+        this.reverseLoss = reverseLoss;
+        this.forwardCorruption = forwardCorruption;
+        this.reverseCorruption = reverseCorruption;
+    }
+
+    /**
+     * Decides whether the next packet sent one way is lost
+     *
+     * @param fromSender true for a packet from a sender to its receiver, false for one going back
+     * @param time when the packet is sent
+     * @return true if it is lost
+     */
+    public boolean isLost(boolean fromSender, double time) {
+        return (fromSender ? forwardLoss : reverseLoss).next(time);
+    }
+
+    // decide whether the next packet sent one way (that was not lost) is corrupted
+    public boolean isCorrupted(boolean fromSender, double time) {
+        return (fromSender ? forwardCorruption : reverseCorruption).next(time);
+    }
+
+    /**
+     * Makes every decision for the next packet sent one way: whether it is lost, whether and how it is corrupted, and its delay.
+     * Nothing else is drawn for a lost packet, and the delay is only drawn if it is asked for
+     *
+     * @param fromSender the direction the packet is going
+     * @param time when the packet is sent
+     * @param delayed whether to draw the delay (false when a Link decides when the packet arrives)
+     * @param decision where to store the decisions
+     */
+    public void decide(boolean fromSender, double time, boolean delayed, ChannelDecision decision) {
+        decision.reset();
+        if (isLost(fromSender, time)) {
+            decision.lost = true;
+            return;
+        }
+        if (isCorrupted(fromSender, time)) {
+            drawCorruption(fromSender, decision);
+        }
+        if (delayed) {
+            decision.delay = nextDelay(fromSender);
+        }
+    }
+
+    // decide how a packet is corrupted: its payload (three times in four), its sequence number or its acknowledgment number
+    private void drawCorruption(boolean fromSender, ChannelDecision decision) {
+        RandomStream rand = corruptionContent[RandomStream.direction(fromSender)];
+        double x = rand.nextDouble();
+        if (x < 0.75) {
+            decision.corruption = ChannelDecision.PAYLOAD;
+        } else if (x < 0.875) {
+            decision.corruption = ChannelDecision.SEQNUM;
+            decision.corruptionValue = Math.abs(rand.nextInt());
+        } else {
+            decision.corruption = ChannelDecision.ACKNUM;
+            decision.corruptionValue = Math.abs(rand.nextInt());
+        }
+    }
+
+    /**
+     * Corrupts a packet as a decision says (nothing happens if it is not corrupted)
+     *
+     * @param decision made by decide(), or replayed
+     * @param packet the copy in flight (never the sender's own packet)
+     */
+    public static void applyCorruption(ChannelDecision decision, Packet packet) {
+        switch (decision.corruption) {
+            case ChannelDecision.PAYLOAD:
+                // corrupt the payload - by changing the first character (an empty payload becomes "=")
+                if (packet.getPayloadLength() == 0) {
+                    packet.setPayload(CORRUPTED_EMPTY_PAYLOAD);
+                } else {
+                    packet.corruptPayloadByte(0, CORRUPTED_BYTE);
+                }
+                break;
+            case ChannelDecision.SEQNUM:
+                // corrupt the sequence number
+                packet.setSeqnum(decision.corruptionValue);
+                break;
+            case ChannelDecision.ACKNUM:
+                // corrupt the acknowledgment number
+                packet.setAcknum(decision.corruptionValue);
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Decides when the next packet arrives. The medium cannot reorder, so it arrives 1 to about 30 time units
+     * after the previous packet sent the same way (or after now, if that one has already arrived).
+     *
+     * @param fromSender the direction the packet is going
+     * @param after the later of now and the arrival time of the previous packet towards the same host
+     * @return the arrival time
+     */
+    public double nextArrival(boolean fromSender, double after) {
+        return after + 1.0 + nextDelay(fromSender);
+    }
+
+    // the random part of the delay nextArrival() adds, about 9 time units on average
+    public double nextDelay(boolean fromSender) {
+        return Math.abs(5.0 * delay[RandomStream.direction(fromSender)].nextGaussian() + 9.0);
+    }
+
+    public LossModel getLossModel(boolean fromSender) {
+        return fromSender ? forwardLoss : reverseLoss;
+    }
+
+    public LossModel getCorruptionModel(boolean fromSender) {
+        return fromSender ? forwardCorruption : reverseCorruption;
+    }
+}
@@ -0,0 +1,161 @@
+package transport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Replays the channel decisions a ChannelRecorder recorded: the n-th packet a flow sends in one direction gets the decisions the
+ * n-th packet of the same flow and direction got in the recorded run, whatever protocol sent them. Two protocols replaying the same
+ * recording therefore see the same losses, corruptions and delays packet for packet, without the variance of another seed.
+ *
+ * Once the recording of a flow and direction is used up (the replaying protocol sends more packets than the recorded one did),
+ * or for a delay that was not recorded because a Link decided the arrival time, the simulator draws live decisions and counts them.
+ */
+public class ChannelReplay {
+
+    // The records of one flow in one direction
+    private static class Stream {
+
+        int[] offsets = new int[64];    // where each record starts in the recording
+        int size;
+        int next;                       // the transmission index of the next packet
+
+        void add(int offset) {
+            if (size == offsets.length) {
+                int[] grown = new int[offsets.length * 2];
+                System.arraycopy(offsets, 0, grown, 0, size);
+                offsets = grown;
+            }
+            offsets[size++] = offset;
+        }
+    }
+
+    private final String file;
+    private final ByteBuffer data;
+    private final IntMap<Stream> streams = new IntMap<>();  // by flow * 2 + RandomStream.direction()
+    private final long records;
+    private long replayed;
+    private long exhausted;     // packets sent after their stream's records were used up
+
+    private ChannelReplay(String file, ByteBuffer data) throws IOException {
+        this.file = file;
+        this.data = data;
+
+        if (data.remaining() < 6 || data.getInt() != ChannelRecorder.MAGIC) {
+            throw new IOException(file + " is not a channel recording");
+        }
+        if (data.getShort() != ChannelRecorder.VERSION) {
+            throw new IOException(file + " has an unsupported channel recording version");
+        }
+
+        // index the records: flags, flow, then the optional fields the flags announce
+        long count = 0;
+        while (data.hasRemaining()) {
+            int offset = data.position();
+            try {
+                int flags = data.get() & 0xff;
+                int flow = readFlow();
+                int corruption = (flags >>> ChannelRecorder.CORRUPTION_SHIFT) & ChannelRecorder.CORRUPTION_MASK;
+                int skip = ((corruption == ChannelDecision.SEQNUM || corruption == ChannelDecision.ACKNUM) ? 4 : 0)
+                        + (((flags & ChannelRecorder.FLAG_DELAY) != 0) ? 8 : 0);
+                data.position(data.position() + skip);
+                stream(flow * 2 + (((flags & ChannelRecorder.FLAG_REVERSE) != 0) ? 1 : 0)).add(offset);
+            } catch (RuntimeException ex) {
+                // BufferUnderflowException or IllegalArgumentException from position()
+                throw new IOException(file + " is truncated at record " + count, ex);
+            }
+            count++;
+        }
+        records = count;
+    }
+
+    /**
+     * Reads a recording into memory
+     *
+     * @param file written by a ChannelRecorder
+     * @return the replay, positioned at the first packet of every flow
+     * @throws IOException if the file cannot be read or is not a channel recording
+     */
+    public static ChannelReplay load(String file) throws IOException {
+        return new ChannelReplay(file, ByteBuffer.wrap(Files.readAllBytes(Paths.get(file))));
+    }
+
+    private Stream stream(int key) {
+        Stream s = streams.get(key);
+        if (s == null) {
+            s = new Stream();
+            streams.put(key, s);
+        }
+        return s;
+    }
+
+    private int readFlow() throws IOException {
+        int flow = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = data.get() & 0xff;
+            flow |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return flow;
+            }
+            if (shift >= 28) {
+                throw new IOException(file + " has a malformed flow number");
+            }
+        }
+    }
+
+    /**
+     * The recorded decisions for the next packet of a flow
+     *
+     * @param flow the flow the packet belongs to
+     * @param fromSender whether the flow's sender sent it
+     * @param decision where to store the decisions
+     * @return false if the recording has no more packets for the flow in that direction (decision is left as it was)
+     */
+    public boolean next(int flow, boolean fromSender, ChannelDecision decision) {
+        Stream s = streams.get(flow * 2 + RandomStream.direction(fromSender));
+        if (s == null || s.next == s.size) {
+            exhausted++;
+            return false;
+        }
+
+        int position = s.offsets[s.next++];
+        int flags = data.get(position++) & 0xff;
+        while ((data.get(position++) & 0x80) != 0) {
+            // skip the flow, already known from the stream
+        }
+
+        decision.reset();
+        decision.lost = (flags & ChannelRecorder.FLAG_LOST) != 0;
+        decision.corruption = (flags >>> ChannelRecorder.CORRUPTION_SHIFT) & ChannelRecorder.CORRUPTION_MASK;
+        if (decision.corruption == ChannelDecision.SEQNUM || decision.corruption == ChannelDecision.ACKNUM) {
+            decision.corruptionValue = data.getInt(position);
+            position += 4;
+        }
+        if ((flags & ChannelRecorder.FLAG_DELAY) != 0) {
+            decision.delay = data.getDouble(position);
+        }
+        replayed++;
+        return true;
+    }
+
+    public String getFile() {
+        return file;
+    }
+
+    // the packets in the recording
+    public long getRecords() {
+        return records;
+    }
+
+    // the packets that got recorded decisions so far
+    public long getReplayed() {
+        return replayed;
+    }
+
+    // the packets that got live decisions because their flow's recording was used up
+    public long getExhausted() {
+        return exhausted;
+    }
+}
@@ -0,0 +1,22 @@
+package transport;
+
+/**
+ * The checksum algorithms the hosts can protect their packets with
+ */
+public enum ChecksumType {
+    SUM,        // the sum of the payload bytes and the sequence and acknowledgment numbers (the original assignment checksum)
+    INTERNET,   // the 16-bit one's complement sum of RFC 1071, as used by IP, UDP and TCP
+    CRC32C;     // CRC-32C (Castagnoli), hardware accelerated where the JDK provides java.util.zip.CRC32C
+
+    public PacketChecksum create() {
+        switch (this) {
+            case SUM:
+                return new SumChecksum();
+            case INTERNET:
+                return new InternetChecksum();
+            case CRC32C:
+            default:
+                return new Crc32cChecksum();
+        }
+    }
+}
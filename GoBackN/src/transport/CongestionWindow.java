@@ -0,0 +1,74 @@
+package transport;
+
+/**
+ * A TCP-style congestion window for a sliding window sender, in packets.
+ *
+ * The window starts at one packet and grows by one packet per acknowledged packet (slow start) until it reaches
+ * the slow start threshold, then by one packet per window's worth of ACKs (additive increase).
+ * A timeout halves the threshold and drops the window back to one packet; a fast retransmit (the sender saw enough
+ * duplicate ACKs to conclude a packet was lost) halves both (multiplicative decrease).
+ * The window never grows beyond the sender's maximum window size.
+ */
+public class CongestionWindow {
+
+    private final int maxWindow;
+    private double cwnd;            // fractional, so additive increase can add 1/cwnd per ACK
+    private double ssthresh;
+
+    public CongestionWindow(int maxWindow) {
+        this.maxWindow = maxWindow;
+        cwnd = 1.0;
+        ssthresh = maxWindow;
+    }
+
+    // the number of packets that may be outstanding
+    public int getWindow() {
+        return (int) Math.max(1, Math.min(maxWindow, Math.floor(cwnd)));
+    }
+
+    public double getCwnd() {
+        return cwnd;
+    }
+
+    public double getSsthresh() {
+        return ssthresh;
+    }
+
+    /**
+     * An ACK acknowledged new packets
+     * @param packets the number of packets it acknowledged (more than one for a cumulative ACK)
+     */
+    public void acked(int packets) {
+        for (int i = 0; i < packets; i++) {
+            if (cwnd < ssthresh) {
+                cwnd += 1.0;
+            } else {
+                cwnd += 1.0 / cwnd;
+            }
+        }
+        cwnd = Math.min(cwnd, maxWindow);
+    }
+
+    /**
+     * The sender fast retransmitted a packet it concluded was lost from duplicate ACKs
+     * @param inFlight the number of packets sent and not yet acknowledged
+     */
+    public void fastRetransmit(int inFlight) {
+        ssthresh = Math.max(inFlight / 2.0, 2.0);
+        cwnd = ssthresh;
+    }
+
+    /**
+     * The retransmission timer expired
+     * @param inFlight the number of packets sent and not yet acknowledged
+     */
+    public void timeout(int inFlight) {
+        ssthresh = Math.max(inFlight / 2.0, 2.0);
+        cwnd = 1.0;
+    }
+
+    @Override
+    public String toString() {
+        return "cwnd: " + cwnd + "  ssthresh: " + ssthresh;
+    }
+}
@@ -0,0 +1,49 @@
+package transport;
+
+import java.util.zip.Checksum;
+
+/**
+ * A table-driven CRC-32C (Castagnoli polynomial, reflected, as in iSCSI and java.util.zip.CRC32C), processing a byte at a time.
+ * Used by Crc32cChecksum on JDKs without java.util.zip.CRC32C.
+ */
+public class Crc32c implements Checksum {
+
+    private static final int POLYNOMIAL = 0x82F63B78;      // 0x1EDC6F41 reflected
+    private static final int[] TABLE = new int[256];
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            int c = i;
+            for (int k = 0; k < 8; k++) {
+                c = ((c & 1) != 0) ? (c >>> 1) ^ POLYNOMIAL : c >>> 1;
+            }
+            TABLE[i] = c;
+        }
+    }
+
+    private int crc = 0xffffffff;
+
+    @Override
+    public void update(int b) {
+        crc = (crc >>> 8) ^ TABLE[(crc ^ b) & 0xff];
+    }
+
+    @Override
+    public void update(byte[] b, int off, int len) {
+        int c = crc;
+        for (int i = off; i < off + len; i++) {
+            c = (c >>> 8) ^ TABLE[(c ^ b[i]) & 0xff];
+        }
+        crc = c;
+    }
+
+    @Override
+    public long getValue() {
+        return ~crc & 0xffffffffL;
+    }
+
+    @Override
+    public void reset() {
+        crc = 0xffffffff;
+    }
+}
@@ -9,6 +9,15 @@ public class Event {
     private EventType type;         // the type of event (see NetworkSimulator.java)
     private int entity;             // the entity at which the event will be executed (sender or received)
     private Packet packet;          // the packet involved in this simulated event (can be null)
+    private long order;             // the order in which the event was added to the EventList (breaks ties in time)
+    private boolean cancelled;      // a cancelled event stays queued but is skipped when it reaches the front
+    private boolean corrupted;      // the packet of this FROMNETWORK event was corrupted by the network
+    private TimerHandle timer;      // the timer that expires with this TIMERINTERRUPT event (can be null)
+
+    // bookkeeping owned by the EventScheduler the event is queued in
+    int index = -1;                 // position of the event in a BinaryHeapScheduler
+    Event next;                     // next event in the same CalendarQueueScheduler bucket
+    long bucket;                    // virtual bucket (time / bucket width) in a CalendarQueueScheduler
 
     public Event(double t, EventType ty, int ent) {
         time = t;
@@ -24,6 +33,21 @@ public class Event {
         packet = p;
     }
 
+    // reinitialise a pooled event (see EventList.createEvent)
+    void reset(double t, EventType ty, int ent, Packet p) {
+        time = t;
+        type = ty;
+        entity = ent;
+        packet = p;
+        order = 0;
+        cancelled = false;
+        corrupted = false;
+        timer = null;
+        index = -1;
+        next = null;
+        bucket = 0;
+    }
+
     public double getTime() {
         return time;
     }
@@ -56,6 +80,49 @@ public class Event {
         this.packet = packet;
     }
 
+    public long getOrder() {
+        return order;
+    }
+
+    public void setOrder(long order) {
+        this.order = order;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public void cancel() {
+        this.cancelled = true;
+    }
+
+    public TimerHandle getTimer() {
+        return timer;
+    }
+
+    public void setTimer(TimerHandle timer) {
+        this.timer = timer;
+    }
+
+    public boolean isCorrupted() {
+        return corrupted;
+    }
+
+    public void setCorrupted(boolean corrupted) {
+        this.corrupted = corrupted;
+    }
+
+    /**
+     * Returns true if this event must be executed before the other one:
+     * it is either scheduled sooner, or scheduled at the same time but added to the EventList first.
+     *
+     * @param other
+     * @return
+     */
+    public boolean isBefore(Event other) {
+        return time < other.time || (time == other.time && order < other.order);
+    }
+
     @Override
     public String toString() {
         return ("time: " + time + "  type: " + type + "  entity: " + entity + "packet: " + packet);
@@ -1,101 +1,231 @@
 package transport;
 
-import java.util.ArrayList;
-import java.util.List;
-
 /**
  * A list of simulated events scheduled for execution
  */
 public class EventList {
 
-    // the list of events
-    private final List<Event> list;
+    // the queue of events, ordered by scheduled time and then by insertion order
+    private final EventScheduler queue;
+
+    // the host timers that are not due yet; they are moved into the queue just before their expiry time is reached
+    // stopped timers that had already been moved are only flagged as cancelled and left in the queue
+    private final TimingWheel wheel;
+
+    // the arrival time of the last packet scheduled for each destination entity
+    private final IntMap<ArrivalTail> tails;
+
+    // the events that have been released, ready to be reused by createEvent() and the timing wheel
+    private final ObjectPool<Event> pool;
+
+    // the number of cancelled events still sitting in the queue
+    private int cancelled;
+
+    // the insertion order given to the next event added
+    private long nextOrder;
+
+    // length of a timing wheel tick in simulated time
+    static final double TIMER_RESOLUTION = 1.0;
 
     public EventList() {
-        list = new ArrayList<>();
+        this(SchedulerType.HEAP);
+    }
+
+    public EventList(SchedulerType type) {
+        queue = type.create();
+        pool = new ObjectPool<>(() -> new Event(0.0, EventType.FROMAPP, 0));
+        wheel = new TimingWheel(TIMER_RESOLUTION, pool);
+        tails = new IntMap<>();
+        cancelled = 0;
+        nextOrder = 0;
+    }
+
+    /**
+     * Creates an event, reusing a released one when possible. Like any event, it belongs to the EventList
+     * from add() until removeNext() returns it, and whoever executes it should then release() it.
+     *
+     * @param t the time the event is scheduled for
+     * @param type
+     * @param entity the entity at which the event will be executed
+     * @param p the packet involved in the event (can be null)
+     * @return an event that is not queued yet
+     */
+    public Event createEvent(double t, EventType type, int entity, Packet p) {
+        Event e = pool.obtain();
+        e.reset(t, type, entity, p);
+        return e;
+    }
+
+    /**
+     * Hands back an event returned by removeNext() once it has been executed. It will be reused by createEvent(),
+     * so nothing (including the packet it carried) may be read from it afterwards.
+     *
+     * @param e
+     */
+    public void release(Event e) {
+        e.reset(0.0, null, 0, null);
+        pool.release(e);
     }
 
     public boolean add(Event e) {
-        return list.add(e);
+        if (e.getType() == EventType.FROMNETWORK) {
+            ArrivalTail tail = tails.get(e.getEntity());
+            if (tail == null) {
+                tail = new ArrivalTail();
+                tails.put(e.getEntity(), tail);
+            }
+            tail.time = Math.max(tail.time, e.getTime());
+        }
+
+        e.setOrder(nextOrder++);
+        queue.add(e);
+        return true;
     }
 
     /**
-     * remove from the list of events the event that is scheduled for execution the soonest
+     * remove from the list of events the event that is scheduled for execution the soonest.
+     * Events scheduled for the same time are removed in the order they were added.
      *
      * @return an Event or null if the list is empty
      */
     public Event removeNext() {
-        if (list.isEmpty()) {
-            return null;
-        }
+        while (true) {
+            Event next = queue.removeNext();
 
-        int index = 0;
+            if (next == null) {
+                // only timers are left: bring the earliest ones into the queue
+                if (wheel.isEmpty()) {
+                    return null;
+                }
+                wheel.advanceToNext(queue);
+                continue;
+            }
 
-        double soonest = ((Event) list.get(index)).getTime();
+            // skip over the stopped timers (nothing refers to their events any more)
+            if (next.isCancelled()) {
+                cancelled--;
+                release(next);
+                continue;
+            }
 
-        for (int i = 0; i < list.size(); i++) {
-            if ((list.get(i)).getTime() < soonest) {
-                soonest = (list.get(i)).getTime();
-                index = i;
+            // timers due before this event must run first: move them into the queue and look again
+            if (wheel.advance(next.getTime(), queue)) {
+                queue.add(next);
+                continue;
             }
+
+            TimerHandle timer = next.getTimer();
+            if (timer != null) {
+                timer.state = TimerHandle.IDLE;
+                timer.event = null;
+            }
+            return next;
         }
+    }
 
-        Event next = (Event) list.get(index);
-        list.remove(next);
+    /**
+     * Returns the event removeNext() would return, leaving it in the list (used to wait for it in real time, see LoopbackNetwork)
+     *
+     * @return an Event or null if the list is empty
+     */
+    public Event peekNext() {
+        Event next = removeNext();
+        if (next == null) {
+            return null;
+        }
 
+        // put it back as it was: with its insertion order, and still owned by its timer
+        TimerHandle timer = next.getTimer();
+        if (timer != null) {
+            timer.state = TimerHandle.QUEUED;
+            timer.event = next;
+        }
+        queue.add(next);
         return next;
     }
 
     /**
-     * Removes and returns the timerEvent event for the specified network entity (sender or receiver). 
-     * Each NetworkHost (A or B) can have up to one timerEvent pending (1 TIMERINTERRUPT Event in the list).
+     * Starts (or restarts) a host timer
      *
-     * @param entity
-     * @return
+     * @param timer
+     * @param time when the timer expires
      */
-    public Event removeTimer(int entity) {
-        int timerIndex = -1;
-        Event timerEvent = null;
-
-        for (int i = 0; i < list.size(); i++) {
-            if (((list.get(i)).getType() == EventType.TIMERINTERRUPT) && ((list.get(i)).getEntity() == entity)) {
-                timerIndex = i;
-                break;
-            }
-        }
+    public void startTimer(TimerHandle timer, double time) {
+        stopTimer(timer);
 
-        if (timerIndex != -1) {
-            timerEvent = list.get(timerIndex);
-            list.remove(timerEvent);
-        }
+        timer.expiry = time;
+        timer.order = nextOrder++;
+        wheel.add(timer, queue);
+    }
 
-        return timerEvent;
+    /**
+     * Stops a host timer, wherever it is. Nothing is searched: a timer still in the timing wheel is unlinked,
+     * and one already in the queue is cancelled and dropped when it reaches the front.
+     *
+     * @param timer
+     * @return true if the timer was running
+     */
+    public boolean stopTimer(TimerHandle timer) {
+        switch (timer.state) {
+            case TimerHandle.WHEEL:
+                wheel.remove(timer);
+                return true;
+            case TimerHandle.QUEUED:
+                cancel(timer.event);
+                timer.event = null;
+                timer.state = TimerHandle.IDLE;
+                return true;
+            default:
+                return false;
+        }
+    }
 
+    private void cancel(Event e) {
+        if (!e.isCancelled()) {
+            e.cancel();
+            cancelled++;
+        }
     }
 
     /**
-     * Returns the scheduled time for the next packet arrival at the provided network entity.
-     * No reordering takes place, so I can safely remove the first FROMNETWORK Event in the list.
+     * Returns the scheduled time of the last packet sent towards the provided network entity.
+     * No reordering takes place, so the latest arrival is tracked as packets are scheduled rather than searched for.
+     * The returned time may be in the past if every packet sent so far has already arrived.
      *
      * @param entityTo
-     * @return
+     * @return the time of the latest arrival, or 0.0 if no packet was ever sent to the entity
      */
     public double getLastPacketTime(int entityTo) {
-        double time = 0.0;
-        
-        for (Event ev : list) {
-            if ((ev).getType() == EventType.FROMNETWORK) {
-                if ((ev).getEntity() == entityTo) {
-                    time = (ev).getTime();
-                }
-            }
-        }
+        ArrivalTail tail = tails.get(entityTo);
+
+        return (tail == null) ? 0.0 : tail.time;
+    }
 
-        return time;
+    // the number of pending (not cancelled) events, including the timers not due yet
+    public int size() {
+        return queue.size() - cancelled + wheel.size();
     }
 
     @Override
     public String toString() {
-        return list.toString();
+        StringBuilder sb = new StringBuilder("[");
+        for (Event ev : queue) {
+            if (!ev.isCancelled()) {
+                if (sb.length() > 1) {
+                    sb.append(", ");
+                }
+                sb.append(ev);
+            }
+        }
+        sb.append(']');
+        if (!wheel.isEmpty()) {
+            sb.append(" + ").append(wheel.size()).append(" timers");
+        }
+        return sb.toString();
+    }
+
+    // the tail of the (FIFO) channel towards one entity
+    private static class ArrivalTail {
+        double time = 0.0;
     }
 }
@@ -0,0 +1,33 @@
+package transport;
+
+/**
+ * A priority queue of simulated events, ordered by scheduled time.
+ * Events scheduled for the same time are returned in the order they were added (FIFO),
+ * so that a simulation run is fully deterministic whatever implementation is used.
+ */
+public interface EventScheduler extends Iterable<Event> {
+
+    /**
+     * Adds an event to the queue. The event must already carry its insertion order (see Event.getOrder()).
+     *
+     * @param e the event to schedule
+     */
+    void add(Event e);
+
+    /**
+     * Removes the event that is scheduled for execution the soonest
+     *
+     * @return an Event or null if the queue is empty
+     */
+    Event removeNext();
+
+    /**
+     * Removes a specific event from the queue
+     *
+     * @param e the event to remove
+     * @return true if the event was pending and has been removed
+     */
+    boolean remove(Event e);
+
+    int size();
+}
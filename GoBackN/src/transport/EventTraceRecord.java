@@ -0,0 +1,82 @@
+package transport;
+
+import java.nio.ByteBuffer;
+
+/**
+ * A view of one record of a binary event trace (see EventTraceWriter for the layout).
+ * EventTraceReader reuses a single instance, moving it from record to record, so a record must not be kept after it has been visited.
+ */
+public class EventTraceRecord {
+
+    private static final EventType[] TYPES = EventType.values();
+
+    private ByteBuffer buffer;
+    private int offset;
+    private long index;
+
+    void moveTo(ByteBuffer buffer, int offset, long index) {
+        this.buffer = buffer;
+        this.offset = offset;
+        this.index = index;
+    }
+
+    // the position of the record in the whole trace
+    public long getIndex() {
+        return index;
+    }
+
+    public double getTime() {
+        return buffer.getDouble(offset);
+    }
+
+    public EventType getType() {
+        return TYPES[buffer.get(offset + 8)];
+    }
+
+    public boolean isLost() {
+        return (buffer.get(offset + 9) & EventTraceWriter.FLAG_LOST) != 0;
+    }
+
+    public boolean isCorrupted() {
+        return (buffer.get(offset + 9) & EventTraceWriter.FLAG_CORRUPTED) != 0;
+    }
+
+    public boolean hasPacket() {
+        return (buffer.get(offset + 9) & EventTraceWriter.FLAG_PACKET) != 0;
+    }
+
+    public int getPayloadLength() {
+        return buffer.getShort(offset + 10);
+    }
+
+    public int getEntity() {
+        return buffer.getInt(offset + 12);
+    }
+
+    public int getSeqnum() {
+        return buffer.getInt(offset + 16);
+    }
+
+    public int getAcknum() {
+        return buffer.getInt(offset + 20);
+    }
+
+    public int getChecksum() {
+        return buffer.getInt(offset + 24);
+    }
+
+    @Override
+    public String toString() {
+        String s = "#" + index + "  time: " + getTime() + "  type: " + getType() + "  entity: " + getEntity();
+        if (hasPacket()) {
+            s += "  seqnum: " + getSeqnum() + "  acknum: " + getAcknum() + "  checksum: " + getChecksum() + "  length: " + getPayloadLength();
+        }
+        if (isLost()) {
+            s += "  LOST";
+        }
+        if (isCorrupted()) {
+            s += "  CORRUPTED";
+        }
+        return s;
+    }
+}
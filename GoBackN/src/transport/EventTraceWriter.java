@@ -0,0 +1,156 @@
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Records every processed Event into a compact binary trace, for analysis after the run (see EventTraceReader).
+ *
+ * The trace is a sequence of segment files named prefix.0.evt, prefix.1.evt, ... each written through a MappedByteBuffer.
+ * A segment starts with a header (magic, version, record size, record count) followed by fixed-width records:
+ *
+ * <pre>
+ *   offset  size  field
+ *        0     8  time (double)
+ *        8     1  EventType ordinal
+ *        9     1  flags (FLAG_LOST, FLAG_CORRUPTED, FLAG_PACKET)
+ *       10     2  payload length
+ *       12     4  entity
+ *       16     4  seqnum
+ *       20     4  acknum
+ *       24     4  checksum
+ *       28     4  reserved
+ * </pre>
+ *
+ * Packets dropped by the network never become events; they are recorded as FROMNETWORK records flagged FLAG_LOST,
+ * stamped with the time they were sent and the entity they were sent to.
+ */
+public class EventTraceWriter implements Closeable {
+
+    public static final int MAGIC = 0x41525154;         // "ARQT"
+    public static final short VERSION = 1;
+    public static final int HEADER_SIZE = 16;
+    public static final int RECORD_SIZE = 32;
+
+    public static final int FLAG_LOST = 1;
+    public static final int FLAG_CORRUPTED = 2;
+    public static final int FLAG_PACKET = 4;
+
+    public static final long DEFAULT_SEGMENT_SIZE = HEADER_SIZE + (1L << 21) * RECORD_SIZE;     // 2M records (64MB)
+
+    private final String prefix;
+    private final long segmentSize;
+
+    private FileChannel channel;
+    private MappedByteBuffer buffer;
+    private int segment;            // index of the segment being written
+    private long segmentRecords;    // records in the segment being written
+    private long records;           // records in the whole trace
+
+    public EventTraceWriter(String prefix) throws IOException {
+        this(prefix, DEFAULT_SEGMENT_SIZE);
+    }
+
+    public EventTraceWriter(String prefix, long segmentSize) throws IOException {
+        if (segmentSize < HEADER_SIZE + RECORD_SIZE || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segment size must hold at least one record and be less than 2GB");
+        }
+        this.prefix = prefix;
+        this.segmentSize = segmentSize;
+        this.segment = -1;
+        this.records = 0;
+        openSegment();
+    }
+
+    // the file holding the given segment of the trace
+    public static String segmentFile(String prefix, int segment) {
+        return prefix + "." + segment + ".evt";
+    }
+
+    public void record(Event e) {
+        Packet p = e.getPacket();
+        int flags = e.isCorrupted() ? FLAG_CORRUPTED : 0;
+
+        write(e.getTime(), e.getType(), flags, e.getEntity(), p);
+    }
+
+    // record a packet that the network dropped instead of scheduling its arrival
+    public void recordLoss(double time, int destination, Packet p) {
+        write(time, EventType.FROMNETWORK, FLAG_LOST, destination, p);
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    private void write(double time, EventType type, int flags, int entity, Packet p) {
+        if (buffer.remaining() < RECORD_SIZE) {
+            try {
+                closeSegment();
+                openSegment();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("unable to rotate event trace " + prefix, ex);
+            }
+        }
+
+        buffer.putDouble(time);
+        buffer.put((byte) type.ordinal());
+        if (p == null) {
+            buffer.put((byte) flags);
+            buffer.putShort((short) 0);
+            buffer.putInt(entity);
+            buffer.putInt(0);
+            buffer.putInt(0);
+            buffer.putInt(0);
+        } else {
+            buffer.put((byte) (flags | FLAG_PACKET));
+            buffer.putShort((short) p.getPayloadLength());
+            buffer.putInt(entity);
+            buffer.putInt(p.getSeqnum());
+            buffer.putInt(p.getAcknum());
+            buffer.putInt(p.getChecksum());
+        }
+        buffer.putInt(0);
+
+        segmentRecords++;
+        records++;
+    }
+
+    private void openSegment() throws IOException {
+        segment++;
+        channel = FileChannel.open(Paths.get(segmentFile(prefix, segment)),
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+        buffer.putInt(MAGIC);
+        buffer.putShort(VERSION);
+        buffer.putShort((short) RECORD_SIZE);
+        buffer.putLong(0L);             // record count, filled in when the segment is closed
+        segmentRecords = 0;
+    }
+
+    private void closeSegment() throws IOException {
+        buffer.putLong(8, segmentRecords);
+        buffer.force();
+        buffer = null;
+
+        // drop the unused tail of the segment
+        channel.truncate(HEADER_SIZE + segmentRecords * RECORD_SIZE);
+        channel.close();
+        channel = null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            closeSegment();
+        }
+    }
+}
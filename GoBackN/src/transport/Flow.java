@@ -0,0 +1,139 @@
+package transport;
+
+/**
+ * One sender/receiver pair of a simulation, with its own application and the counters needed to compare it with the other flows.
+ * Flow i has the sender entity NetworkSimulator.senderEntity(i) and the receiver entity NetworkSimulator.receiverEntity(i);
+ * flow 0 is the classic pair A and B.
+ * The run-wide counters are kept in the simulation's Metrics; a Flow only counts what tells flows apart (see NetworkSimulator.getFairnessIndex()).
+ */
+public class Flow {
+
+    private final int id;
+    private final NetworkHost sender;
+    private final NetworkHost receiver;
+    private final RandomStream arrivals;    // the time between the messages of its application
+
+    private int messagesGenerated;      // messages its application has scheduled so far
+    private long dataPacketsSent;
+    private long retransmissions;
+    private long packetsDropped;        // packets a Link dropped
+    private long timeouts;
+    private long messagesDelivered;
+    private double lastDeliveryTime;
+    private double latencySum;          // first transmission to delivery, over the messages with a known latency
+    private long latencySamples;
+
+    private int lastAcknum;             // for telling duplicate ACKs apart from the other flows' ACKs
+    private boolean hasLastAck;
+
+    Flow(int id, NetworkHost sender, NetworkHost receiver, RandomStream arrivals) {
+        this.id = id;
+        this.sender = sender;
+        this.receiver = receiver;
+        this.arrivals = arrivals;
+    }
+
+    // the number of the next message of its application (1 for the first one)
+    int messageGenerated() {
+        return ++messagesGenerated;
+    }
+
+    void packetSent(boolean fromSender, boolean retransmission) {
+        if (fromSender) {
+            dataPacketsSent++;
+        }
+        if (retransmission) {
+            retransmissions++;
+        }
+    }
+
+    void packetDropped() {
+        packetsDropped++;
+    }
+
+    void timeout() {
+        timeouts++;
+    }
+
+    // an uncorrupted ACK arrived at the sender; returns whether it acknowledges the same number as the previous one
+    boolean ackReceived(int acknum) {
+        boolean duplicate = hasLastAck && acknum == lastAcknum;
+        lastAcknum = acknum;
+        hasLastAck = true;
+        return duplicate;
+    }
+
+    void messageDelivered(double time, double latency) {
+        messagesDelivered++;
+        lastDeliveryTime = time;
+        if (latency >= 0.0) {
+            latencySum += latency;
+            latencySamples++;
+        }
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public NetworkHost getSender() {
+        return sender;
+    }
+
+    public NetworkHost getReceiver() {
+        return receiver;
+    }
+
+    RandomStream getArrivals() {
+        return arrivals;
+    }
+
+    public int getMessagesGenerated() {
+        return messagesGenerated;
+    }
+
+    public long getDataPacketsSent() {
+        return dataPacketsSent;
+    }
+
+    public long getRetransmissions() {
+        return retransmissions;
+    }
+
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getMessagesDelivered() {
+        return messagesDelivered;
+    }
+
+    public double getLastDeliveryTime() {
+        return lastDeliveryTime;
+    }
+
+    // the mean delivery latency, 0 if no latency was measured
+    public double getMeanLatency() {
+        return (latencySamples > 0) ? latencySum / latencySamples : 0.0;
+    }
+
+    /**
+     * Application data this flow delivered per unit of simulated time
+     *
+     * @param duration the simulated time the run took
+     * @return bytes delivered per time unit, 0 if no time has passed
+     */
+    public double getGoodput(double duration) {
+        return (duration > 0.0) ? messagesDelivered * NetworkSimulator.MAXDATASIZE / duration : 0.0;
+    }
+
+    @Override
+    public String toString() {
+        return "flow " + id + ": " + messagesDelivered + " of " + messagesGenerated + " messages delivered, " + dataPacketsSent + " data packets ("
+                + retransmissions + " retransmitted, " + packetsDropped + " dropped), " + timeouts + " timeouts";
+    }
+}
@@ -0,0 +1,44 @@
+package transport;
+
+/**
+ * The Internet checksum (RFC 1071): the one's complement of the one's complement sum of the packet's 16-bit big-endian words,
+ * an odd trailing byte being padded with zero. The checksum field is left out of the sum rather than zeroed.
+ *
+ * The words are added into a long and folded once at the end. A corrupted payload byte is accounted for by adjusting the sum
+ * of the shared (uncorrupted) payload array by the difference it makes to its word, so the payload is read in place.
+ */
+public class InternetChecksum implements PacketChecksum {
+
+    @Override
+    public int compute(Packet packet) {
+        byte[] header = packet.header;
+        long sum = word(header, Packet.SEQNUM_OFFSET) + word(header, Packet.SEQNUM_OFFSET + 2)
+                + word(header, Packet.ACKNUM_OFFSET) + word(header, Packet.ACKNUM_OFFSET + 2)
+                + word(header, Packet.LENGTH_OFFSET) + word(header, Packet.LENGTH_OFFSET + 2);
+
+        byte[] payload = packet.payload;
+        int length = packet.getPayloadLength();
+        int i = 0;
+        for (; i + 1 < length; i += 2) {
+            sum += word(payload, i);
+        }
+        if (i < length) {
+            sum += (payload[i] & 0xff) << 8;
+        }
+
+        int offset = packet.corruptedOffset;
+        if (offset >= 0) {
+            int shift = ((offset & 1) == 0) ? 8 : 0;   // high or low byte of its word
+            sum += ((packet.corruptedValue & 0xff) - (payload[offset] & 0xff)) << shift;
+        }
+
+        while ((sum >>> 16) != 0) {
+            sum = (sum & 0xffff) + (sum >>> 16);
+        }
+        return (int) (~sum & 0xffff);
+    }
+
+    private static int word(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+}
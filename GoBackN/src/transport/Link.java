@@ -0,0 +1,166 @@
+package transport;
+
+import java.util.Locale;
+
+/**
+ * A link between the hosts, shared by every flow's packets in one direction: it transmits one packet at a time at a fixed bandwidth,
+ * so a packet of n bytes takes n / bandwidth time units to go out, and reaches the other end propagationDelay time units later.
+ * The packets waiting for the link are held in a router queue of queueCapacity packets, first come first served; a packet
+ * arriving while it is full is dropped, and the QueuePolicy can drop more (e.g. RED).
+ *
+ * The link does not need events of its own: packets leave in the order they arrive, so the departure times of the packets
+ * still on the link are kept in a ring buffer and the ones that have left by the time of the next arrival are discarded then.
+ * transmit() is O(1) and never allocates.
+ */
+public class Link {
+
+    // histogram resolution and range of the queueing delay, in simulated time units
+    private static final double TIME_UNIT = 0.001;
+    private static final double MAX_TRACKED_TIME = 1.0e6;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private final double bandwidth;         // bytes per time unit
+    private final double propagationDelay;  // time units from the end of a transmission to the arrival at the other end
+    private final int queueCapacity;        // packets that can wait while another one is being transmitted
+    private final QueuePolicy policy;
+    private final double[] departures;      // when each packet on the link is transmitted, oldest first
+    private int head;
+    private int size;
+    private double lastDeparture;           // when the link is done with the packets it holds
+
+    private long packetsForwarded;
+    private long bytesForwarded;
+    private long packetsDropped;            // the queue was full
+    private long packetsDroppedEarly;       // the policy dropped them
+    private int maxQueueLength;
+    private double busyTime;                // total time spent transmitting
+    private final Histogram queueingDelay = new Histogram(TIME_UNIT, MAX_TRACKED_TIME, SIGNIFICANT_DIGITS);
+
+    /**
+     * @param bandwidth the transmission rate, in bytes per time unit
+     * @param propagationDelay the time a transmitted packet takes to reach the other end
+     * @param queueCapacity the number of packets that can wait for the link
+     * @param policy decides which arriving packets are queued (see QueueType)
+     */
+    public Link(double bandwidth, double propagationDelay, int queueCapacity, QueuePolicy policy) {
+        if (bandwidth <= 0.0) {
+            throw new IllegalArgumentException("bandwidth must be > 0");
+        }
+        if (propagationDelay < 0.0) {
+            throw new IllegalArgumentException("propagation delay must not be negative");
+        }
+        if (queueCapacity < 0) {
+            throw new IllegalArgumentException("queue capacity must not be negative");
+        }
+        this.bandwidth = bandwidth;
+        this.propagationDelay = propagationDelay;
+        this.queueCapacity = queueCapacity;
+        this.policy = policy;
+        departures = new double[queueCapacity + 1];     // the waiting packets and the one being transmitted
+        head = 0;
+        size = 0;
+        lastDeparture = 0.0;
+    }
+
+    /**
+     * Offers a packet to the link
+     *
+     * @param now the time the packet reaches the link
+     * @param bytes the size of the packet (see Packet.getSize)
+     * @return when the packet arrives at the other end, or a negative value if it was dropped
+     */
+    public double transmit(double now, int bytes) {
+        // forget the packets that have left
+        while (size > 0 && departures[head] <= now) {
+            head++;
+            if (head == departures.length) {
+                head = 0;
+            }
+            size--;
+        }
+
+        if (size == departures.length) {
+            packetsDropped++;
+            return -1.0;
+        }
+
+        double transmissionTime = bytes / bandwidth;
+        double idleTime = (size == 0) ? Math.max(0.0, now - lastDeparture) : 0.0;
+        if (!policy.admit(size, idleTime, transmissionTime)) {
+            packetsDroppedEarly++;
+            return -1.0;
+        }
+
+        double start = Math.max(now, lastDeparture);
+        double departure = start + transmissionTime;
+        int tail = head + size;
+        if (tail >= departures.length) {
+            tail -= departures.length;
+        }
+        departures[tail] = departure;
+        size++;
+        lastDeparture = departure;
+
+        packetsForwarded++;
+        bytesForwarded += bytes;
+        busyTime += transmissionTime;
+        maxQueueLength = Math.max(maxQueueLength, size - 1);
+        queueingDelay.record(start - now);
+        return departure + propagationDelay;
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    public double getPropagationDelay() {
+        return propagationDelay;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public QueuePolicy getPolicy() {
+        return policy;
+    }
+
+    public long getPacketsForwarded() {
+        return packetsForwarded;
+    }
+
+    public long getBytesForwarded() {
+        return bytesForwarded;
+    }
+
+    // packets dropped because the queue was full
+    public long getPacketsDropped() {
+        return packetsDropped;
+    }
+
+    // packets the queue policy dropped although there was room for them
+    public long getPacketsDroppedEarly() {
+        return packetsDroppedEarly;
+    }
+
+    // the longest the queue got, not counting the packet being transmitted
+    public int getMaxQueueLength() {
+        return maxQueueLength;
+    }
+
+    // how long the forwarded packets waited for the link
+    public Histogram getQueueingDelay() {
+        return queueingDelay;
+    }
+
+    // the share of the run the link spent transmitting
+    public double getUtilization(double duration) {
+        return (duration > 0.0) ? Math.min(1.0, busyTime / duration) : 0.0;
+    }
+
+    public String summary(double duration) {
+        return String.format(Locale.ROOT, "forwarded %d (%d bytes)  dropped: %d (early: %d)  max queue: %d of %d  utilization: %.4f%nqueueing delay: ",
+                packetsForwarded, bytesForwarded, packetsDropped + packetsDroppedEarly, packetsDroppedEarly, maxQueueLength, queueCapacity,
+                getUtilization(duration)) + queueingDelay;
+    }
+}
@@ -0,0 +1,435 @@
+package transport;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.Locale;
+
+/**
+ * Runs a simulation's hosts over real UDP datagrams on the loopback interface, in real time, to measure the protocols'
+ * packet rate and latency outside of the simulated network. The Sender and Receiver classes are used unchanged.
+ *
+ * Each host gets a DatagramChannel, and udtSend writes the packet (see Packet.writeTo) to a third channel, the impairment proxy.
+ * The proxy applies the simulation's ChannelModel (the same loss, corruption and delay decisions udtSend makes on the simulated
+ * network, through NetworkSimulator.decideChannel, so they can be recorded and replayed as well), holds each surviving datagram until its
+ * arrival time, then forwards it to the other host.
+ * Everything runs on one thread in a non-blocking selector loop, which also executes the application's messages and the hosts'
+ * timers from the simulator's EventList once their time has come.
+ *
+ * One simulated time unit lasts a configurable number of microseconds of real time; the simulator's clock follows the real one.
+ * Datagrams the kernel refuses (full socket buffers) are lost like any other packet.
+ *
+ * Usage: java transport.LoopbackNetwork [--messages n] [--loss p] [--corrupt p] [--delay d] [--seed s] [--protocol name]
+ *        [--window n] [--cc off|on] [--queue n] [--checksum sum|internet|crc32c] [--unit-us us]
+ *        (and -Dtransport.channel.record=file or -Dtransport.channel.replay=file, as for Assignment)
+ */
+public class LoopbackNetwork implements PacketTransport, Closeable {
+
+    public static final double DEFAULT_UNIT_MICROS = 100.0;     // real time per simulated time unit
+
+    private static final int MAX_DATAGRAM = 65507;              // the largest UDP payload over IPv4
+    private static final int SOCKET_BUFFER = 1 << 20;
+    private static final long IDLE_NANOS = 100_000_000L;        // how long to wait for datagrams still in the sockets once nothing else is pending
+
+    private final NetworkSimulator simulator;
+    private final double unitNanos;
+
+    private final Selector selector;
+    private final DatagramChannel hostA;        // the sender's socket, connected to the proxy
+    private final DatagramChannel hostB;        // the receiver's socket, connected to the proxy
+    private final DatagramChannel proxy;
+    private final SocketAddress addressA;
+    private final SocketAddress addressB;
+
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(MAX_DATAGRAM);     // every datagram read or written goes through it
+
+    // the datagrams the proxy holds until their arrival time; arrivals towards a host never decrease, so each is a FIFO
+    private final ArrayDeque<Datagram> towardsA = new ArrayDeque<>();
+    private final ArrayDeque<Datagram> towardsB = new ArrayDeque<>();
+    private final ObjectPool<Datagram> datagrams = new ObjectPool<>(Datagram::new);
+    private double lastArrivalA;
+    private double lastArrivalB;
+
+    private long startNanos;
+    private long wallNanos;             // real time the run took
+    private long lastReceiveNanos;      // when a datagram was last read from a socket
+    private long inSockets;             // datagrams written to a socket and not read yet
+    private long datagramsSent;         // datagrams written by the hosts (not counting the proxy's forwarding)
+    private long datagramsRefused;      // datagrams the kernel would not take
+
+    /**
+     * Opens the sockets and attaches them to the simulation, which must have been initialised with initSimulator() for a single flow
+     * (A and B) without links (see NetworkSimulator.setLink)
+     *
+     * @param simulator
+     * @param unitMicros how many microseconds of real time a simulated time unit lasts
+     * @throws IOException if the sockets cannot be opened
+     */
+    public LoopbackNetwork(NetworkSimulator simulator, double unitMicros) throws IOException {
+        if (unitMicros <= 0.0) {
+            throw new IllegalArgumentException("a time unit must last more than 0 microseconds");
+        }
+        if (simulator.getRoutes().size() != 2 || simulator.getForwardLink() != null) {
+            throw new IllegalArgumentException("LoopbackNetwork carries a single flow without modelled links");
+        }
+        this.simulator = simulator;
+        this.unitNanos = unitMicros * 1000.0;
+
+        selector = Selector.open();
+        proxy = open();
+        hostA = open();
+        hostB = open();
+        addressA = hostA.getLocalAddress();
+        addressB = hostB.getLocalAddress();
+        hostA.connect(proxy.getLocalAddress());
+        hostB.connect(proxy.getLocalAddress());
+
+        proxy.register(selector, SelectionKey.OP_READ);
+        hostA.register(selector, SelectionKey.OP_READ, NetworkSimulator.A);
+        hostB.register(selector, SelectionKey.OP_READ, NetworkSimulator.B);
+
+        simulator.setTransport(this);
+    }
+
+    private DatagramChannel open() throws IOException {
+        DatagramChannel channel = DatagramChannel.open();
+        channel.setOption(StandardSocketOptions.SO_RCVBUF, SOCKET_BUFFER);
+        channel.setOption(StandardSocketOptions.SO_SNDBUF, SOCKET_BUFFER);
+        channel.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        channel.configureBlocking(false);
+        return channel;
+    }
+
+    // the simulated time that corresponds to now
+    private double now() {
+        return (System.nanoTime() - startNanos) / unitNanos;
+    }
+
+    /**
+     * Runs the hosts until every message has been sent, no timer is running and no datagram is left in flight
+     *
+     * @throws IOException if a socket fails
+     */
+    public void run() throws IOException {
+        EventList eventList = simulator.getEventList();
+
+        startNanos = System.nanoTime();
+        lastReceiveNanos = startNanos;
+        simulator.start();
+
+        while (true) {
+            double now = now();
+
+            forward(towardsA, addressA, now);
+            forward(towardsB, addressB, now);
+
+            Event next = eventList.peekNext();
+            if (next != null && next.getTime() <= now) {
+                next = eventList.removeNext();
+                // the simulator's clock follows the real one, so an event runs at the time it is actually executed
+                next.setTime(now);
+                simulator.execute(next);
+                continue;
+            }
+
+            double deadline = (next == null) ? Double.POSITIVE_INFINITY : next.getTime();
+            if (!towardsA.isEmpty()) {
+                deadline = Math.min(deadline, towardsA.peekFirst().time);
+            }
+            if (!towardsB.isEmpty()) {
+                deadline = Math.min(deadline, towardsB.peekFirst().time);
+            }
+
+            if (deadline == Double.POSITIVE_INFINITY) {
+                // nothing left to do but read the datagrams still in the sockets; give up on them after a while (the kernel drops some)
+                if (inSockets == 0 || System.nanoTime() - lastReceiveNanos > IDLE_NANOS) {
+                    break;
+                }
+                selector.select(IDLE_NANOS / 1_000_000L);
+            } else {
+                long waitMillis = (long) ((deadline - now) * unitNanos / 1_000_000.0);
+                if (waitMillis > 0) {
+                    selector.select(waitMillis);
+                } else {
+                    selector.selectNow();
+                }
+            }
+
+            Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+            while (keys.hasNext()) {
+                SelectionKey key = keys.next();
+                keys.remove();
+                if (key.channel() == proxy) {
+                    impair();
+                } else {
+                    receive((DatagramChannel) key.channel(), (Integer) key.attachment());
+                }
+            }
+        }
+
+        wallNanos = System.nanoTime() - startNanos;
+        simulator.finish();
+    }
+
+    // udtSend: write the packet to the proxy from the sending host's socket
+    @Override
+    public void send(int source, int destination, Packet packet) {
+        DatagramChannel channel = (source == NetworkSimulator.A) ? hostA : hostB;
+
+        buffer.clear();
+        packet.writeTo(buffer);
+        buffer.flip();
+        simulator.releasePacket(packet);
+
+        try {
+            if (channel.write(buffer) == 0) {
+                // the socket buffer is full: the network lost the packet
+                datagramsRefused++;
+                simulator.getMetrics().packetLost();
+                return;
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("unable to send from " + source, ex);
+        }
+        inSockets++;
+        datagramsSent++;
+    }
+
+    // the proxy: read every pending datagram, lose, corrupt and delay it as the simulated network would, and queue it for forwarding
+    private void impair() throws IOException {
+        Trace trace = simulator.getTrace();
+
+        while (true) {
+            buffer.clear();
+            SocketAddress from = proxy.receive(buffer);
+            if (from == null) {
+                return;
+            }
+            buffer.flip();
+            inSockets--;
+            lastReceiveNanos = System.nanoTime();
+
+            double now = now();
+            Packet packet = simulator.createPacket(0, 0, 0, Packet.EMPTY);
+            packet.readFrom(buffer);
+
+            boolean fromSender = from.equals(addressA);
+            RoutingTable.Route route = simulator.getRoutes().lookup(fromSender ? NetworkSimulator.A : NetworkSimulator.B);
+            ChannelDecision decision = simulator.decideChannel(route, now, true);
+            if (decision.isLost()) {
+                if (trace.isEnabled(TraceLevel.PACKET)) {
+                    trace.println("proxy: simulating packet being lost");
+                }
+                simulator.getMetrics().packetLost();
+                simulator.releasePacket(packet);
+                continue;
+            }
+
+            boolean corrupted = decision.isCorrupted();
+            if (corrupted) {
+                if (trace.isEnabled(TraceLevel.PACKET)) {
+                    trace.println("proxy: packet being corrupted");
+                }
+                simulator.getMetrics().packetCorrupted();
+                ChannelModel.applyCorruption(decision, packet);
+            }
+
+            Datagram datagram = datagrams.obtain();
+            datagram.fill(packet, corrupted);
+            simulator.releasePacket(packet);
+
+            if (fromSender) {
+                lastArrivalB = Math.max(lastArrivalB, now) + 1.0 + decision.getDelay();
+                datagram.time = lastArrivalB;
+                towardsB.addLast(datagram);
+            } else {
+                lastArrivalA = Math.max(lastArrivalA, now) + 1.0 + decision.getDelay();
+                datagram.time = lastArrivalA;
+                towardsA.addLast(datagram);
+            }
+        }
+    }
+
+    // the proxy: send the datagrams that have reached their arrival time
+    private void forward(ArrayDeque<Datagram> queue, SocketAddress to, double now) throws IOException {
+        while (!queue.isEmpty() && queue.peekFirst().time <= now) {
+            Datagram datagram = queue.pollFirst();
+            datagram.data.rewind();
+            if (proxy.send(datagram.data, to) == 0) {
+                datagramsRefused++;
+                simulator.getMetrics().packetLost();
+            } else {
+                inSockets++;
+            }
+            datagrams.release(datagram);
+        }
+    }
+
+    // a host's socket: hand every pending datagram to the host as a FROMNETWORK event
+    private void receive(DatagramChannel channel, int entity) throws IOException {
+        while (true) {
+            buffer.clear();
+            if (channel.receive(buffer) == null) {
+                return;
+            }
+            buffer.flip();
+            inSockets--;
+            lastReceiveNanos = System.nanoTime();
+
+            Packet packet = simulator.createPacket(0, 0, 0, Packet.EMPTY);
+            boolean corrupted = packet.readFrom(buffer);
+            Event arrival = simulator.getEventList().createEvent(now(), EventType.FROMNETWORK, entity, packet);
+            arrival.setCorrupted(corrupted);
+            simulator.execute(arrival);
+        }
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public long getDatagramsSent() {
+        return datagramsSent;
+    }
+
+    public long getDatagramsRefused() {
+        return datagramsRefused;
+    }
+
+    // the datagrams the hosts sent per second of real time
+    public double getPacketRate() {
+        return (wallNanos == 0) ? 0.0 : datagramsSent * 1.0e9 / wallNanos;
+    }
+
+    public String summary() {
+        Metrics m = simulator.getMetrics();
+        double unitMicros = unitNanos / 1000.0;
+        return String.format(Locale.ROOT, "loopback: %.3f s  datagrams sent: %d (%.0f/s, refused: %d)  messages delivered: %d (%.0f/s)%n"
+                + "delivery latency: mean %.1f us  p99 %.1f us  RTT: mean %.1f us  p99 %.1f us",
+                wallNanos / 1.0e9, datagramsSent, getPacketRate(), datagramsRefused,
+                m.getMessagesDelivered(), (wallNanos == 0) ? 0.0 : m.getMessagesDelivered() * 1.0e9 / wallNanos,
+                m.getDeliveryLatency().getMean() * unitMicros, m.getDeliveryLatency().getValueAtPercentile(99) * unitMicros,
+                m.getRtt().getMean() * unitMicros, m.getRtt().getValueAtPercentile(99) * unitMicros);
+    }
+
+    @Override
+    public void close() throws IOException {
+        simulator.setTransport(null);
+        hostA.close();
+        hostB.close();
+        proxy.close();
+        selector.close();
+    }
+
+    // a datagram held by the proxy until its arrival time
+    private static class Datagram {
+        double time;
+        ByteBuffer data = ByteBuffer.allocate(Packet.wireSize(NetworkSimulator.MAXDATASIZE));
+
+        void fill(Packet packet, boolean corrupted) {
+            int size = Packet.wireSize(packet.getPayloadLength());
+            if (data.capacity() < size) {
+                data = ByteBuffer.allocate(size);
+            }
+            data.clear();
+            packet.writeTo(data);
+            data.flip();
+            if (corrupted) {
+                Packet.markCorrupted(data);
+            }
+        }
+    }
+
+    public static void main(String[] argv) throws IOException {
+        int messages = 1000;
+        double loss = 0.0;
+        double corrupt = 0.0;
+        double delay = 10.0;
+        long seed = 1;
+        double unitMicros = DEFAULT_UNIT_MICROS;
+        NetworkSimulator simulator = new NetworkSimulator();
+
+        for (int i = 0; i < argv.length; i += 2) {
+            if (i + 1 >= argv.length) {
+                usage("missing value for " + argv[i]);
+            }
+            String value = argv[i + 1].trim();
+
+            switch (argv[i]) {
+                case "--messages":
+                    messages = Integer.parseInt(value);
+                    break;
+                case "--loss":
+                    loss = Double.parseDouble(value);
+                    break;
+                case "--corrupt":
+                    corrupt = Double.parseDouble(value);
+                    break;
+                case "--delay":
+                    delay = Double.parseDouble(value);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(value);
+                    break;
+                case "--protocol":
+                    simulator.setProtocol(Protocol.valueOf(value.toUpperCase()));
+                    break;
+                case "--window":
+                    simulator.setWindowSize(Integer.parseInt(value));
+                    break;
+                case "--cc":
+                    simulator.setCongestionControl(value.equalsIgnoreCase("on"));
+                    break;
+                case "--queue":
+                    simulator.setSendQueueCapacity(Integer.parseInt(value));
+                    break;
+                case "--checksum":
+                    simulator.setChecksumType(ChecksumType.valueOf(value.toUpperCase()));
+                    break;
+                case "--unit-us":
+                    unitMicros = Double.parseDouble(value);
+                    break;
+                default:
+                    usage("unknown option " + argv[i]);
+            }
+        }
+
+        // no trace unless one is asked for with -Dtransport.trace (see Trace.fromSystemProperties)
+        Trace trace = (System.getProperty("transport.trace") == null) ? Trace.OFF : Trace.fromSystemProperties();
+
+        simulator.initSimulator(messages, loss, corrupt, delay, seed);
+        simulator.setTrace(trace);
+
+        // the proxy's decisions are recorded and replayed as Assignment's are, with -Dtransport.channel.record and -Dtransport.channel.replay
+        String channelReplay = System.getProperty("transport.channel.replay");
+        if (channelReplay != null) {
+            simulator.setChannelReplay(ChannelReplay.load(channelReplay));
+        }
+        String channelRecord = System.getProperty("transport.channel.record");
+        try (ChannelRecorder recorder = (channelRecord == null) ? null : new ChannelRecorder(channelRecord);
+                LoopbackNetwork network = new LoopbackNetwork(simulator, unitMicros)) {
+            simulator.setChannelRecorder(recorder);
+            network.run();
+            trace.close();
+            System.out.println(simulator.getMetrics().summary(simulator.getTime()));
+            System.out.println(network.summary());
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: LoopbackNetwork [--messages n] [--loss p] [--corrupt p] [--delay d] [--seed s] [--protocol name]"
+                + " [--window n] [--cc off|on] [--queue n] [--checksum sum|internet|crc32c] [--unit-us us]");
+        System.exit(-1);
+    }
+}
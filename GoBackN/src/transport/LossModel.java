@@ -0,0 +1,80 @@
+package transport;
+
+import java.util.Locale;
+
+/**
+ * Decides which packets sent one way through the channel are hit: lost, or (used as a corruption model) corrupted.
+ * The ChannelModel asks it once for every packet, in the order the packets are sent, so a model can keep state between packets
+ * (e.g. bursts). A model draws from a RandomStream of its own, which keeps runs with the same seed identical.
+ *
+ * Models are described by a spec string (see parse):
+ *   bernoulli:p                    every packet is hit with probability p, independently (the original channel)
+ *   gilbert:rate,burst             Gilbert-Elliott bursts with the given average rate and mean burst length (in packets)
+ *   gilbert:p,r,good,bad           Gilbert-Elliott with its four parameters (see GilbertElliottLoss)
+ *   outage:period,duration[,start] every packet sent during an outage of "duration" time units, one every "period"
+ *   trace:file                     replays a recorded pattern of hits (see TraceLoss)
+ */
+public interface LossModel {
+
+    /**
+     * Decides whether the next packet is hit
+     *
+     * @param time when the packet is sent
+     * @return true if it is hit
+     */
+    boolean next(double time);
+
+    /**
+     * Creates a model from its spec
+     *
+     * @param spec see above
+     * @param rand where the model draws its random decisions from
+     * @return a new model, with its own state
+     * @throws IllegalArgumentException if the spec is not understood
+     * @throws java.io.UncheckedIOException if a trace cannot be read
+     */
+    static LossModel parse(String spec, RandomStream rand) {
+        int colon = spec.indexOf(':');
+        String name = ((colon < 0) ? spec : spec.substring(0, colon)).trim().toLowerCase(Locale.ROOT);
+        String args = (colon < 0) ? "" : spec.substring(colon + 1).trim();
+
+        if (name.equals("trace")) {
+            return TraceLoss.load(args);
+        }
+
+        double[] v;
+        try {
+            String[] parts = args.isEmpty() ? new String[0] : args.split(",");
+            v = new double[parts.length];
+            for (int i = 0; i < parts.length; i++) {
+                v[i] = Double.parseDouble(parts[i].trim());
+            }
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("bad loss model parameters: " + spec);
+        }
+
+        switch (name) {
+            case "bernoulli":
+                if (v.length == 1) {
+                    return new BernoulliLoss(rand, v[0]);
+                }
+                break;
+            case "gilbert":
+                if (v.length == 2) {
+                    return GilbertElliottLoss.withBursts(rand, v[0], v[1]);
+                }
+                if (v.length == 4) {
+                    return new GilbertElliottLoss(rand, v[0], v[1], v[2], v[3]);
+                }
+                break;
+            case "outage":
+                if (v.length == 2 || v.length == 3) {
+                    return new OutageLoss(v[0], v[1], (v.length == 3) ? v[2] : 0.0);
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("unknown loss model: " + spec);
+        }
+        throw new IllegalArgumentException("wrong number of parameters for loss model: " + spec);
+    }
+}
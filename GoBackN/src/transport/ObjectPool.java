@@ -0,0 +1,64 @@
+package transport;
+
+import java.util.Arrays;
+import java.util.function.Supplier;
+
+/**
+ * A free list of objects that are reused instead of allocated, so the simulation loop stops allocating once it reaches steady state.
+ * obtain() hands out a released object if there is one and creates one otherwise; release() takes an object back once its owner
+ * is done with it. Every released object is kept, so the pool grows to the largest number ever in use at once and no further.
+ * The pool does not reset the objects it hands out: the caller initialises them.
+ * Pools are not thread-safe; each simulation has its own.
+ *
+ * @param <T> the type of the pooled objects
+ */
+public class ObjectPool<T> {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Supplier<T> factory;      // creates an object when none is free
+    private Object[] free;
+    private int size;                       // number of free objects
+    private long created;                   // objects created by the factory so far
+
+    public ObjectPool(Supplier<T> factory) {
+        this.factory = factory;
+        free = new Object[INITIAL_CAPACITY];
+        size = 0;
+        created = 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    public T obtain() {
+        if (size == 0) {
+            created++;
+            return factory.get();
+        }
+
+        T item = (T) free[--size];
+        free[size] = null;
+        return item;
+    }
+
+    // hand an object back; the caller must not use it (or keep a reference to it) afterwards
+    public void release(T item) {
+        if (size == free.length) {
+            free = Arrays.copyOf(free, size * 2);
+        }
+        free[size++] = item;
+    }
+
+    // the number of released objects waiting to be reused
+    public int available() {
+        return size;
+    }
+
+    public long getCreated() {
+        return created;
+    }
+
+    @Override
+    public String toString() {
+        return "pool: " + size + " free, " + created + " created";
+    }
+}
@@ -0,0 +1,35 @@
+package transport;
+
+/**
+ * Periodic outages: the channel is down for "duration" time units every "period" time units, starting at "start",
+ * and hits every packet sent while it is down. Needs no random numbers.
+ */
+public class OutageLoss implements LossModel {
+
+    private final double period;
+    private final double duration;
+    private final double start;
+
+    public OutageLoss(double period, double duration, double start) {
+        if (period <= 0.0 || duration < 0.0 || duration > period) {
+            throw new IllegalArgumentException("outages must last between 0 and their period, which must be > 0");
+        }
+        this.period = period;
+        this.duration = duration;
+        this.start = start;
+    }
+
+    @Override
+    public boolean next(double time) {
+        if (time < start) {
+            return false;
+        }
+        double phase = (time - start) % period;
+        return phase < duration;
+    }
+
+    @Override
+    public String toString() {
+        return "outage:" + period + "," + duration + "," + start;
+    }
+}
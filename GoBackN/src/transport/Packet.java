@@ -1,72 +1,232 @@
 package transport;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
 /**
- * Represents a Packet sent in the (simulated) network. 
- * The network consists only of Sender A and Receiver B
+ * Represents a Packet sent in the (simulated) network.
+ * The network consists of Sender A and Receiver B (and the senders and receivers of any other flows, see Flow)
+ *
+ * The header fields are kept in a byte array laid out as they would be on the wire (big-endian, see the *_OFFSET constants).
+ * The payload is a byte array that is never modified once it is in a Packet: copies of a packet share it with the original
+ * (and with the Message it was made from), so copying a packet only copies its header.
+ * When the network corrupts a byte of the payload, the corrupted value is kept beside the shared array (a copy-on-write overlay)
+ * and returned by getPayloadByte in place of the original byte.
  */
 public class Packet {
 
-    private int seqnum;     // sequence number
-    private int acknum;     // acknowledgment number
-    private int checksum;   // checksum
-    private String payload; // packet payload
+    // header layout
+    public static final int SEQNUM_OFFSET = 0;      // sequence number (4 bytes)
+    public static final int ACKNUM_OFFSET = 4;      // acknowledgment number (4 bytes)
+    public static final int CHECKSUM_OFFSET = 8;    // checksum (4 bytes)
+    public static final int LENGTH_OFFSET = 12;     // payload length (2 bytes)
+    public static final int HEADER_SIZE = 16;       // 2 bytes reserved
+
+    // sent after the payload when the packet crosses a real network (see writeTo): firstSent, sent, echoSent and a flags byte
+    public static final int TRAILER_SIZE = 3 * 8 + 1;
+    private static final int FLAG_RETRANSMITTED = 1;
+    private static final int FLAG_ECHO_RETRANSMITTED = 2;
+    private static final int FLAG_CORRUPTED = 4;           // set by the network that corrupted it (see markCorrupted)
+
+    static final byte[] EMPTY = new byte[0];    // the payload of a packet created without one
+
+    // the contents, read in place by the PacketChecksum implementations
+    final byte[] header = new byte[HEADER_SIZE];
+    byte[] payload;                         // packet payload, shared and never modified
+    int corruptedOffset = -1;               // the payload byte replaced by corruptedValue, -1 if none
+    byte corruptedValue;
+
+    // Simulator bookkeeping (used for the run metrics), not part of the packet's contents
+    double firstSent = -1.0;        // when the data in this packet was first passed to udtSend
+    double sent = -1.0;             // when this copy was passed to udtSend
+    boolean retransmitted;          // this copy was sent as a retransmission
+    double echoSent = -1.0;         // for a packet sent in response to another one (an ACK): when that packet was sent
+    boolean echoRetransmitted;      // ... and whether it was a retransmission
 
     public Packet(Packet p) {
-        seqnum = p.getSeqnum();
-        acknum = p.getAcknum();
-        checksum = p.getChecksum();
-        payload = p.getPayload();
+        copyFrom(p);
     }
-    
+
     Packet (int seq, int ack, int check) {
-        seqnum = seq;
-        acknum = ack;
-        checksum = check;
-        payload = "";
+        this(seq, ack, check, EMPTY);
+    }
+
+    Packet (int seq, int ack, int check, byte[] pld) {
+        reset(seq, ack, check, pld);
+    }
+
+    // make this packet what new Packet(seq, ack, check, pld) would create; used to reuse pooled packets
+    void reset(int seq, int ack, int check, byte[] pld) {
+        setSeqnum(seq);
+        setAcknum(ack);
+        setChecksum(check);
+        setPayload(pld);
+        firstSent = -1.0;
+        sent = -1.0;
+        retransmitted = false;
+        echoSent = -1.0;
+        echoRetransmitted = false;
     }
-            
-    Packet (int seq, int ack, int check, String pld) {
-        seqnum = seq;
-        acknum = ack;
-        checksum = check;
-        payload = pld;
+
+    // make this packet a copy of "p" (header, payload and corruption), as a newly created one; used to reuse pooled packets
+    void copyFrom(Packet p) {
+        System.arraycopy(p.header, 0, header, 0, HEADER_SIZE);
+        payload = p.payload;
+        corruptedOffset = p.corruptedOffset;
+        corruptedValue = p.corruptedValue;
+        firstSent = p.firstSent;
+        sent = -1.0;
+        retransmitted = false;
+        echoSent = -1.0;
+        echoRetransmitted = false;
+    }
+
+    private int getInt(int offset) {
+        return ((header[offset] & 0xff) << 24) | ((header[offset + 1] & 0xff) << 16) | ((header[offset + 2] & 0xff) << 8) | (header[offset + 3] & 0xff);
+    }
+
+    private void putInt(int offset, int value) {
+        header[offset] = (byte) (value >>> 24);
+        header[offset + 1] = (byte) (value >>> 16);
+        header[offset + 2] = (byte) (value >>> 8);
+        header[offset + 3] = (byte) value;
     }
 
     public int getSeqnum() {
-        return seqnum;
+        return getInt(SEQNUM_OFFSET);
     }
 
     public void setSeqnum(int seqnum) {
-        this.seqnum = seqnum;
+        putInt(SEQNUM_OFFSET, seqnum);
     }
 
     public int getAcknum() {
-        return acknum;
+        return getInt(ACKNUM_OFFSET);
     }
 
     public void setAcknum(int acknum) {
-        this.acknum = acknum;
+        putInt(ACKNUM_OFFSET, acknum);
     }
 
     public int getChecksum() {
-        return checksum;
+        return getInt(CHECKSUM_OFFSET);
     }
 
     public void setChecksum(int checksum) {
-        this.checksum = checksum;
+        putInt(CHECKSUM_OFFSET, checksum);
+    }
+
+    // the number of bytes the packet takes on a link: its header and payload
+    public int getSize() {
+        return HEADER_SIZE + getPayloadLength();
+    }
+
+    public int getPayloadLength() {
+        return ((header[LENGTH_OFFSET] & 0xff) << 8) | (header[LENGTH_OFFSET + 1] & 0xff);
     }
 
-    public String getPayload() {
-        return payload;
+    // the i-th byte of the payload, as received (i.e. including any corruption)
+    public byte getPayloadByte(int i) {
+        return (i == corruptedOffset) ? corruptedValue : payload[i];
     }
 
-    public void setPayload(String payload) {
+    /**
+     * The payload, as received. The array is shared with other copies of the packet and must not be modified;
+     * only a corrupted payload is copied (with the corruption applied).
+     * @return the payload bytes
+     */
+    public byte[] getPayload() {
+        if (corruptedOffset < 0) {
+            return payload;
+        }
+
+        byte[] corrupted = payload.clone();
+        corrupted[corruptedOffset] = corruptedValue;
+        return corrupted;
+    }
+
+    // set the payload; the packet keeps a reference to the array, which must not be modified afterwards
+    public void setPayload(byte[] payload) {
+        if (payload.length > 0xffff) {
+            throw new IllegalArgumentException("payload longer than " + 0xffff + " bytes");
+        }
         this.payload = payload;
+        corruptedOffset = -1;
+        header[LENGTH_OFFSET] = (byte) (payload.length >>> 8);
+        header[LENGTH_OFFSET + 1] = (byte) payload.length;
+    }
+
+    // corrupt one byte of this copy's payload, leaving the shared array (and so every other copy) untouched
+    void corruptPayloadByte(int offset, byte value) {
+        if (offset < 0 || offset >= payload.length) {
+            throw new IndexOutOfBoundsException("offset " + offset + " outside a payload of " + payload.length + " bytes");
+        }
+        corruptedOffset = offset;
+        corruptedValue = value;
+    }
+
+    // the number of bytes writeTo() writes for a packet with the given payload length
+    public static int wireSize(int payloadLength) {
+        return HEADER_SIZE + payloadLength + TRAILER_SIZE;
+    }
+
+    /**
+     * Writes the packet as a datagram: the header, the payload as received (i.e. with any corruption applied),
+     * then a trailer with the simulator's bookkeeping, so that the metrics keep working when the packet crosses a real network
+     *
+     * @param buf where to write wireSize(getPayloadLength()) bytes
+     */
+    public void writeTo(ByteBuffer buf) {
+        buf.put(header);
+        int start = buf.position();
+        buf.put(payload);
+        if (corruptedOffset >= 0) {
+            buf.put(start + corruptedOffset, corruptedValue);
+        }
+
+        buf.putDouble(firstSent);
+        buf.putDouble(sent);
+        buf.putDouble(echoSent);
+        buf.put((byte) ((retransmitted ? FLAG_RETRANSMITTED : 0) | (echoRetransmitted ? FLAG_ECHO_RETRANSMITTED : 0)));
+    }
+
+    // flag a datagram written by writeTo() (between position 0 and its limit) as corrupted by the network, for the metrics
+    static void markCorrupted(ByteBuffer datagram) {
+        int flags = datagram.limit() - 1;
+        datagram.put(flags, (byte) (datagram.get(flags) | FLAG_CORRUPTED));
+    }
+
+    /**
+     * Makes this packet the one writeTo() wrote into a datagram. The payload is copied into a new array.
+     *
+     * @param buf positioned at the start of the datagram
+     * @return true if the datagram was flagged with markCorrupted()
+     * @throws java.nio.BufferUnderflowException if the datagram is shorter than the packet it announces
+     */
+    boolean readFrom(ByteBuffer buf) {
+        buf.get(header);
+        byte[] pld = new byte[getPayloadLength()];
+        buf.get(pld);
+        setPayload(pld);
+
+        firstSent = buf.getDouble();
+        sent = buf.getDouble();
+        echoSent = buf.getDouble();
+        int flags = buf.get();
+        retransmitted = (flags & FLAG_RETRANSMITTED) != 0;
+        echoRetransmitted = (flags & FLAG_ECHO_RETRANSMITTED) != 0;
+        return (flags & FLAG_CORRUPTED) != 0;
+    }
+
+    // the payload as text (for traces)
+    public String getPayloadString() {
+        byte[] bytes = getPayload();
+        return new String(bytes, 0, bytes.length, StandardCharsets.ISO_8859_1);
     }
 
     @Override
     public String toString() {
-        return ("seqnum: " + seqnum + "  acknum: " + acknum + "  checksum: " + checksum + "  payload: " + payload);
+        return ("seqnum: " + getSeqnum() + "  acknum: " + getAcknum() + "  checksum: " + getChecksum() + "  payload: " + getPayloadString());
     }
 
 }
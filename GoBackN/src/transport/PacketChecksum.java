@@ -0,0 +1,18 @@
+package transport;
+
+/**
+ * A checksum over a packet, computed the same way by both hosts: the sender stores it in the packet's checksum field,
+ * and the receiver recomputes it over the packet as received and compares the two to detect corruption.
+ * It covers the whole header except the checksum field itself (sequence number, acknowledgment number, payload length)
+ * and the payload, corruption included; it must not allocate.
+ *
+ * Implementations may keep state between calls and are not thread-safe: each simulation creates its own (see ChecksumType).
+ */
+public interface PacketChecksum {
+
+    /**
+     * @param packet the packet, as received
+     * @return the checksum of the packet's contents
+     */
+    int compute(Packet packet);
+}
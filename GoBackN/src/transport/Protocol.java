@@ -0,0 +1,31 @@
+package transport;
+
+/**
+ * The ARQ protocols this project can simulate. Each one supplies the sender (A) and receiver (B) hosts.
+ */
+public enum Protocol {
+    GO_BACK_N, SELECTIVE_REPEAT;
+
+    // the protocol used unless another one is selected
+    public static final Protocol DEFAULT = GO_BACK_N;
+
+    public NetworkHost createSender(int entity) {
+        switch (this) {
+            case SELECTIVE_REPEAT:
+                return new SelectiveRepeatSender(entity);
+            case GO_BACK_N:
+            default:
+                return new Sender(entity);
+        }
+    }
+
+    public NetworkHost createReceiver(int entity) {
+        switch (this) {
+            case SELECTIVE_REPEAT:
+                return new SelectiveRepeatReceiver(entity);
+            case GO_BACK_N:
+            default:
+                return new Receiver(entity);
+        }
+    }
+}
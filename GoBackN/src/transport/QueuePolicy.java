@@ -0,0 +1,18 @@
+package transport;
+
+/**
+ * Decides which of the packets arriving at a Link are queued. The link itself drops the packets it has no room for;
+ * a policy can drop more, earlier (active queue management). Create one with QueueType.create().
+ */
+public interface QueuePolicy {
+
+    /**
+     * Decides whether a packet arriving at a link that still has room for it is queued
+     *
+     * @param queueLength the packets on the link ahead of it (the one being transmitted and the waiting ones)
+     * @param idleTime how long the link had been idle when the packet arrived, 0 if it is busy
+     * @param transmissionTime how long the link takes to transmit the packet
+     * @return true to queue the packet, false to drop it
+     */
+    boolean admit(int queueLength, double idleTime, double transmissionTime);
+}
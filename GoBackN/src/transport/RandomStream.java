@@ -0,0 +1,94 @@
+package transport;
+
+import java.util.SplittableRandom;
+
+/**
+ * One independent stream of random numbers, for one purpose of one simulation (see Purpose).
+ * Every random decision of a simulation is drawn from the stream of its purpose (and direction or flow), so changing how many
+ * numbers one decision draws, e.g. by selecting another loss model or adding a flow, does not shift any other decision:
+ * two runs with the same seed see the same channel randomness even if their protocols send different packets.
+ *
+ * A stream is a SplittableRandom, which is not synchronized, seeded from the simulation's seed and the stream's purpose and index.
+ * SplittableRandom has no nextGaussian(), so this class adds one (the polar method, as java.util.Random uses).
+ * Streams are not thread-safe; each simulation has its own.
+ */
+public class RandomStream {
+
+    // What a stream is used for
+    public enum Purpose {
+        APPLICATION,        // the time between the messages of a flow's application (index: the flow)
+        LOSS,               // which packets are lost (index: 0 from the senders, 1 from the receivers)
+        CORRUPTION,         // which packets are corrupted (index: the direction)
+        CORRUPTION_CONTENT, // what is corrupted in a packet, and how (index: the direction)
+        DELAY,              // the channel's delay (index: the direction)
+        QUEUE               // the router queues' drops (index: the direction)
+    }
+
+    private static final long GOLDEN_GAMMA = 0x9e3779b97f4a7c15L;
+
+    private final SplittableRandom rand;
+    private double spareGaussian;
+    private boolean hasSpareGaussian;
+
+    public RandomStream(long seed) {
+        rand = new SplittableRandom(seed);
+        hasSpareGaussian = false;
+    }
+
+    /**
+     * The stream of one purpose of a simulation. Different (seed, purpose, index) triples give unrelated streams,
+     * and the same triple always gives the same stream.
+     *
+     * @param seed the simulation's seed
+     * @param purpose what the stream is used for
+     * @param index the direction (0 from the senders, 1 from the receivers) or the flow it is used for
+     * @return a new stream
+     */
+    public static RandomStream create(long seed, Purpose purpose, int index) {
+        long z = mix64(seed + GOLDEN_GAMMA * (purpose.ordinal() + 1));
+        return new RandomStream(mix64(z + GOLDEN_GAMMA * (index + 1)));
+    }
+
+    // the direction index of create() for packets from the senders (true) or from the receivers (false)
+    public static int direction(boolean fromSender) {
+        return fromSender ? 0 : 1;
+    }
+
+    // the SplitMix64 finaliser: spreads the bits of z over the whole long
+    private static long mix64(long z) {
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    // uniform on [0, 1)
+    public double nextDouble() {
+        return rand.nextDouble();
+    }
+
+    public int nextInt() {
+        return rand.nextInt();
+    }
+
+    // normally distributed, with mean 0 and standard deviation 1
+    public double nextGaussian() {
+        if (hasSpareGaussian) {
+            hasSpareGaussian = false;
+            return spareGaussian;
+        }
+
+        double v1;
+        double v2;
+        double s;
+        do {
+            v1 = 2.0 * rand.nextDouble() - 1.0;
+            v2 = 2.0 * rand.nextDouble() - 1.0;
+            s = v1 * v1 + v2 * v2;
+        } while (s >= 1.0 || s == 0.0);
+
+        double multiplier = StrictMath.sqrt(-2.0 * StrictMath.log(s) / s);
+        spareGaussian = v2 * multiplier;
+        hasSpareGaussian = true;
+        return v1 * multiplier;
+    }
+}
@@ -15,33 +15,41 @@ public class Receiver extends NetworkHost {
      *       Stops the timer. You should only call this in the Sender class.
      *  void udtSend(Packet p)
      *       Sends the packet "p" into the network to arrive at other host
-     *  void deliverData(String dataSent)
+     *  void deliverData(byte[] dataSent)
      *       Passes "dataSent" up to app layer. You should only call this in the Receiver class.
+     *  int computeChecksum(Packet p)
+     *       Returns the checksum of "p": its header (except the checksum field) and payload, as received. Store it with p.setChecksum()
+     *       before sending, and compare it with p.getChecksum() on arrival. The algorithm is chosen with -Dtransport.checksum.
+     *  Packet createPacket(int seq, int ack, int check, byte[] payload)
+     *  Packet createPacket(int seq, int ack, int check)
+     *       Like the Packet constructors, but reuses a packet from the simulator's pool. Hand it back with releasePacket(p)
+     *       once it will not be sent again (udtSend sends a copy, so that can be straight after sending it).
+     *       Copy the packets passed to input() with new Packet(p) to keep them: they are reused once input() returns.
      *
      *  Predefined Classes:
      *
      *  NetworkSimulator: Implements the core functionality of the simulator
      *
      *  double getTime()
-     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().getTime()
+     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: getSimulator().getTime()
      *  void printEventList()
-     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().printEventList()
+     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: getSimulator().printEventList()
      *
      *  Message: Used to encapsulate a message coming from the application layer
      *    Constructor:
-     *      Message(String inputData): 
+     *      Message(byte[] inputData): 
      *          creates a new Message containing "inputData"
      *    Methods:
-     *      void setData(String inputData):
+     *      void setData(byte[] inputData):
      *          sets an existing Message's data to "inputData"
-     *      String getData():
+     *      byte[] getData():
      *          returns the data contained in the message
      *
      *  Packet: Used to encapsulate a packet
      *    Constructors:
      *      Packet (Packet p):
-     *          creates a new Packet, which is a copy of "p"
-     *      Packet (int seq, int ack, int check, String newPayload):
+     *          creates a new Packet, which is a copy of "p" (sharing its payload)
+     *      Packet (int seq, int ack, int check, byte[] newPayload):
      *          creates a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and a payload of "newPayload"
      *      Packet (int seq, int ack, int check)
      *          chreate a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and an empty payload
@@ -52,23 +60,28 @@ public class Receiver extends NetworkHost {
      *          sets the Packet's ack field to acknum
      *      void setChecksum(int checksum)
      *          sets the Packet's checksum to checksum
-     *      void setPayload(String payload) 
-     *          sets the Packet's payload to payload
+     *      void setPayload(byte[] payload) 
+     *          sets the Packet's payload to payload (the array must not be modified afterwards)
      *      int getSeqnum()
      *          returns the contents of the Packet's sequence field
      *      int getAcknum()
      *          returns the contents of the Packet's ack field
      *      int getChecksum()
      *          returns the checksum of the Packet
-     *      String getPayload()
-     *          returns the Packet's payload
+     *      byte[] getPayload()
+     *          returns the Packet's payload (do not modify it)
+     *      int getPayloadLength()
+     *          returns the number of bytes in the Packet's payload
+     *      byte getPayloadByte(int i)
+     *          returns byte "i" of the Packet's payload
      *
      */
     
     // Add any necessary class variables here. They can hold state information for the receiver.
-    // Also add any necessary methods (e.g. checksum of a String)
+    // Also add any necessary methods
     
     private int expectedSeqNum;
+    private int sequenceSpace; // sequence numbers wrap around at this
     private Packet lastSentACK;
     
     // This is the constructor.  Don't touch!
@@ -76,36 +89,6 @@ public class Receiver extends NetworkHost {
         super(entityName);
     }
     
-    /**
-     * Compute Checksum
-     * 1) Convert packet data into bytes
-     * 2) Sum the byte representation of the data character by character
-     * 3) Add sum to sequence number and acknowledgment number of the packet
-     * @param seqNo sequence number of the packet
-     * @param ack acknowledgment number of the packet
-     * @param data the data in the packet
-     * @return checksum for the packet
-     */
-       public int computeChecksum(int seqNo, int ack, String data) {
-           
-           int sum = 0;
-           
-           // if data is empty set sum to 100 and add it seqNo and the ack num
-           if (data.isEmpty())
-           {
-               sum = 100;
-               return sum+seqNo+ack;
-           }
-           
-           byte[] message = data.getBytes();
-           
-           for(int i = 0; i<message.length; i++){
-               sum += message[i];
-           }
-                       
-           return sum+seqNo+ack;
-       }
-
     /**
      * This method will be called once, before any of your other receiver-side methods are called
      * It can be used to do any required initialization
@@ -115,6 +98,7 @@ public class Receiver extends NetworkHost {
        public void init() {
            // initially expecting sequence number of 0 (first packet)
            expectedSeqNum = 0;
+           sequenceSpace = getSimulator().getSequenceSpace();
        }
 
     // This method will be called whenever a packet sent from the sender(i.e. as a result of a udtSend() being called by the Sender ) arrives at the receiver. 
@@ -122,38 +106,43 @@ public class Receiver extends NetworkHost {
        @Override
        public void input(Packet packet) {
            
-           int checksum = computeChecksum(packet.getSeqnum(),packet.getAcknum(),packet.getPayload());
+           int checksum = computeChecksum(packet);
            
            // If packet is not corrupted and matches expected sequence number
            // ensures always sending ACK for recieved packet with highest in order sequence number
            if (packet.getChecksum() == checksum && packet.getSeqnum() == expectedSeqNum)
            {
                // deliver the data to the application layer
-               String data = packet.getPayload();
+               byte[] data = packet.getPayload();
                deliverData(data);
                
                // send the appropriate acknowledgement
-               int ackChecksum = computeChecksum(0,expectedSeqNum,"");
-               Packet ack = new Packet(0,expectedSeqNum,ackChecksum);
+               Packet ack = createPacket(0,expectedSeqNum,0);
+               ack.setChecksum(computeChecksum(ack));
                udtSend(ack);
                
                // store last sent acknowledgement
                // used to later resend acknowledgement with highest in order sequence number
+               if (lastSentACK != null)
+               {
+                   releasePacket(lastSentACK);
+               }
                lastSentACK = ack;
                
                // increase expected sequence number for next expected packet
-               expectedSeqNum++;
+               expectedSeqNum = (expectedSeqNum + 1) % sequenceSpace;
            }
            else
            {
                // if packet recieved is out of order or packet is corrupted
                // and there is history of a previously sent ACK
                // resend last ACK with highest sequence number
-               if ((checksum != packet.getChecksum()) || packet.getSeqnum() != expectedSeqNum
+               if (((checksum != packet.getChecksum()) || packet.getSeqnum() != expectedSeqNum)
                        && lastSentACK != null)
                {
-                   Packet ack = new Packet(0,lastSentACK.getAcknum(),lastSentACK.getChecksum());
+                   Packet ack = createPacket(0,lastSentACK.getAcknum(),lastSentACK.getChecksum());
                    udtSend(ack);
+                   releasePacket(ack);
                }
            }
        }
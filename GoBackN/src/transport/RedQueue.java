@@ -0,0 +1,71 @@
+package transport;
+
+/**
+ * Random Early Detection (Floyd and Jacobson, 1993): the queue length is averaged with an exponentially weighted moving average,
+ * and packets arriving while the average is between two thresholds are dropped with a probability that grows from 0 to
+ * MAX_PROBABILITY as it goes from the lower to the upper threshold (and with the number of packets queued since the last drop,
+ * which spreads the drops out). Above the upper threshold every packet is dropped.
+ * The thresholds are a quarter and three quarters of the queue capacity.
+ */
+public class RedQueue implements QueuePolicy {
+
+    public static final double WEIGHT = 0.002;          // weight of the current queue length in the average
+    public static final double MAX_PROBABILITY = 0.1;   // drop probability when the average reaches the upper threshold
+
+    private final double minThreshold;
+    private final double maxThreshold;
+    private final RandomStream rand;
+
+    private double average;     // the average queue length, in packets
+    private int count;          // packets queued since the last drop while the average was above minThreshold, -1 if it was below
+
+    RedQueue(int capacity, RandomStream rand) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        minThreshold = capacity / 4.0;
+        maxThreshold = Math.max(minThreshold + 1.0, 3.0 * capacity / 4.0);
+        this.rand = rand;
+        average = 0.0;
+        count = -1;
+    }
+
+    @Override
+    public boolean admit(int queueLength, double idleTime, double transmissionTime) {
+        if (queueLength == 0 && idleTime > 0.0 && transmissionTime > 0.0) {
+            // the average decays as if packets of this size had kept arriving at an empty queue while the link was idle
+            average *= Math.pow(1.0 - WEIGHT, idleTime / transmissionTime);
+        }
+        average += WEIGHT * (queueLength - average);
+
+        if (average < minThreshold) {
+            count = -1;
+            return true;
+        }
+        if (average >= maxThreshold) {
+            count = 0;
+            return false;
+        }
+
+        count++;
+        double pb = MAX_PROBABILITY * (average - minThreshold) / (maxThreshold - minThreshold);
+        double pa = (count * pb < 1.0) ? pb / (1.0 - count * pb) : 1.0;
+        if (rand.nextDouble() < pa) {
+            count = 0;
+            return false;
+        }
+        return true;
+    }
+
+    public double getAverage() {
+        return average;
+    }
+
+    public double getMinThreshold() {
+        return minThreshold;
+    }
+
+    public double getMaxThreshold() {
+        return maxThreshold;
+    }
+}
@@ -0,0 +1,78 @@
+package transport;
+
+/**
+ * Where every host of a simulation sends its packets: maps an entity to its Route, i.e. the host itself, the flow it belongs to,
+ * the entity on the other side of that flow and the link (if any) its packets share with the other flows' on the way.
+ * The simulator fills it in initSimulator(); udtSend() and the event dispatch look entities up in it instead of switching on A and B.
+ */
+public class RoutingTable {
+
+    // The route out of one host
+    public static class Route {
+
+        private final NetworkHost host;
+        private final Flow flow;
+        private final int destination;
+        private final Link link;        // null if the network is not modelled with links
+
+        Route(NetworkHost host, Flow flow, int destination, Link link) {
+            this.host = host;
+            this.flow = flow;
+            this.destination = destination;
+            this.link = link;
+        }
+
+        public NetworkHost getHost() {
+            return host;
+        }
+
+        public Flow getFlow() {
+            return flow;
+        }
+
+        public int getDestination() {
+            return destination;
+        }
+
+        public Link getLink() {
+            return link;
+        }
+
+        // whether the host is its flow's sender (rather than its receiver)
+        public boolean isSender() {
+            return host == flow.getSender();
+        }
+    }
+
+    private final IntMap<Route> routes = new IntMap<>();
+
+    /**
+     * Adds the routes of a flow: its sender's packets go to its receiver through the forward link, and its receiver's come back
+     * through the reverse link
+     *
+     * @param flow the flow
+     * @param forward the link the sender's (data) packets share with the other flows, or null
+     * @param reverse the link the receiver's packets (ACKs) share with the other flows, or null
+     */
+    void addFlow(Flow flow, Link forward, Link reverse) {
+        add(new Route(flow.getSender(), flow, flow.getReceiver().getEntity(), forward));
+        add(new Route(flow.getReceiver(), flow, flow.getSender().getEntity(), reverse));
+    }
+
+    private void add(Route route) {
+        int entity = route.getHost().getEntity();
+        if (routes.get(entity) != null) {
+            throw new IllegalArgumentException("entity " + entity + " already has a route");
+        }
+        routes.put(entity, route);
+    }
+
+    // the route out of an entity, or null if there is no host with that entity
+    public Route lookup(int entity) {
+        return routes.get(entity);
+    }
+
+    public int size() {
+        return routes.size();
+    }
+}
@@ -0,0 +1,18 @@
+package transport;
+
+/**
+ * The event scheduler implementations the simulator can be started with
+ */
+public enum SchedulerType {
+    HEAP, CALENDAR;
+
+    public EventScheduler create() {
+        switch (this) {
+            case CALENDAR:
+                return new CalendarQueueScheduler();
+            case HEAP:
+            default:
+                return new BinaryHeapScheduler();
+        }
+    }
+}
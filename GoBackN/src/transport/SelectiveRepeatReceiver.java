@@ -0,0 +1,77 @@
+package transport;
+
+/**
+ * Receiver side of the Selective Repeat ARQ protocol.
+ *
+ * Every correctly received packet inside the receive window is acknowledged individually and buffered,
+ * and data is delivered to the application in order as soon as the gap at the front of the window is filled.
+ * Sequence numbers wrap around after NetworkSimulator.getSequenceSpace(), twice the window size, so every sequence number outside
+ * the receive window belongs to the previous window.
+ */
+public class SelectiveRepeatReceiver extends NetworkHost {
+
+    private int windowSize;
+    private int sequenceSpace;      // sequence numbers run from 0 to sequenceSpace - 1 and then wrap around
+    private int rcvBase;            // the next sequence number to deliver
+
+    // out-of-order data, indexed by seqnum % windowSize (null if not received yet)
+    private byte[][] received;
+    private double[] firstSent;     // ... and when the packet that carried it was first sent, for the delivery latency
+
+    public SelectiveRepeatReceiver(int entityName) {
+        super(entityName);
+    }
+
+    @Override
+    public void init() {
+        windowSize = getSimulator().getWindowSize();
+        sequenceSpace = getSimulator().getSequenceSpace();     // twice the window size
+        rcvBase = 0;
+        received = new byte[windowSize][];
+        firstSent = new double[windowSize];
+    }
+
+    /**
+     * Buffers and acknowledges packets inside the window, re-acknowledges packets from the previous window
+     * @param packet the (possibly corrupted) packet sent from the sender
+     */
+    @Override
+    public void input(Packet packet) {
+        int checksum = computeChecksum(packet);
+        int seq = packet.getSeqnum();
+
+        // corrupted packets are ignored: the sender's timer for them will expire
+        if (packet.getChecksum() != checksum) {
+            return;
+        }
+
+        // sequence numbers wrap around, so compare distances from rcvBase rather than the numbers themselves
+        int offset = Math.floorMod(seq - rcvBase, sequenceSpace);
+        if (offset < windowSize) {
+            sendAck(seq);
+
+            int slot = (rcvBase + offset) % windowSize;
+            if (received[slot] == null) {
+                received[slot] = packet.getPayload();
+                firstSent[slot] = packet.firstSent;
+            }
+
+            // deliver everything that is now in order
+            while (received[rcvBase % windowSize] != null) {
+                deliverData(received[rcvBase % windowSize], firstSent[rcvBase % windowSize]);
+                received[rcvBase % windowSize] = null;
+                rcvBase = (rcvBase + 1) % sequenceSpace;
+            }
+        } else {
+            // from the previous window, already delivered: our ACK was lost or corrupted, so acknowledge it again
+            sendAck(seq);
+        }
+    }
+
+    private void sendAck(int seq) {
+        Packet ack = createPacket(0, seq, 0);
+        ack.setChecksum(computeChecksum(ack));
+        udtSend(ack);
+        releasePacket(ack);
+    }
+}
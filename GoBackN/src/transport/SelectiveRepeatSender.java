@@ -0,0 +1,154 @@
+package transport;
+
+/**
+ * Sender side of the Selective Repeat ARQ protocol.
+ *
+ * Every packet in the window has its own timer, and when one expires only that packet is retransmitted.
+ * ACKs are individual: an ACK acknowledges exactly the packet with that sequence number.
+ * Timers are started with the RtoEstimator's timeout, sampled from the ACKs of packets that were sent only once.
+ * Sequence numbers wrap around after NetworkSimulator.getSequenceSpace(), twice the window size: the least that lets the receiver
+ * tell a new packet from a retransmission of the previous window's.
+ */
+public class SelectiveRepeatSender extends NetworkHost {
+
+    private int windowSize;
+    private int sequenceSpace;      // sequence numbers run from 0 to sequenceSpace - 1 and then wrap around
+    private int base;               // oldest unacknowledged sequence number
+    private int nextSeqNum;         // sequence number of the next packet to send
+
+    // state of each sequence number in the window, indexed by seqnum % windowSize
+    private Packet[] window;        // the packet, kept for retransmission
+    private boolean[] acked;
+    private TimerHandle[] timers;   // the packet's retransmission timer (the handle's id is the slot)
+    private double[] sendTime;      // when the packet was first sent
+    private boolean[] resent;       // its ACK can't be timed once it has been retransmitted (Karn's rule)
+
+    private RtoEstimator rto;
+    private boolean backedOff;      // the timeout was backed off, and not every packet sent before is acknowledged yet
+    private int backoffSeqNum;      // nextSeqNum when it was last backed off
+    private SendQueue sendQueue;    // messages waiting for room in the window
+
+    public SelectiveRepeatSender(int entityName) {
+        super(entityName);
+    }
+
+    @Override
+    public void init() {
+        windowSize = getSimulator().getWindowSize();
+        sequenceSpace = getSimulator().getSequenceSpace();     // a multiple of the window size
+        base = 0;
+        nextSeqNum = 0;
+
+        window = new Packet[windowSize];
+        acked = new boolean[windowSize];
+        timers = new TimerHandle[windowSize];
+        for (int slot = 0; slot < windowSize; slot++) {
+            timers[slot] = createTimer(slot);
+        }
+        sendTime = new double[windowSize];
+        resent = new boolean[windowSize];
+
+        rto = new RtoEstimator();
+        backedOff = false;
+        sendQueue = createSendQueue();
+        reportWindow(windowSize);
+    }
+
+    // packets sent but not yet slid out of the window
+    private int inFlight() {
+        return Math.floorMod(nextSeqNum - base, sequenceSpace);
+    }
+
+    /**
+     * Sends the message if its sequence number falls inside the window, otherwise queues it until the window slides
+     * @param message data to be formulated into a packet
+     */
+    @Override
+    public void output(Message message) {
+        if (!sendQueue.isEmpty() || inFlight() >= windowSize) {
+            // window full: hold the message back (refused if the queue is full too)
+            sendQueue.offer(message);
+            return;
+        }
+
+        send(message);
+    }
+
+    // sends a message as the packet with sequence number nextSeqNum
+    private void send(Message message) {
+        int slot = nextSeqNum % windowSize;
+        Packet p = createPacket(nextSeqNum, 0, 0, message.getData());
+        p.setChecksum(computeChecksum(p));
+
+        window[slot] = p;
+        acked[slot] = false;
+        sendTime[slot] = getSimulator().getTime();
+        resent[slot] = false;
+        udtSend(p);
+        startTimer(timers[slot], rto.getRto());
+
+        nextSeqNum = (nextSeqNum + 1) % sequenceSpace;
+    }
+
+    /**
+     * Marks the acknowledged packet and slides the window past every acknowledged packet at its front
+     * @param packet ACK packet received
+     */
+    @Override
+    public void input(Packet packet) {
+        int checksum = computeChecksum(packet);
+        int acknum = packet.getAcknum();
+
+        // ignore corrupted ACKs and ACKs outside of the window (already acknowledged packets)
+        // sequence numbers wrap around, so compare distances from base rather than the numbers themselves
+        int offset = Math.floorMod(acknum - base, sequenceSpace);
+        if (packet.getChecksum() != checksum || offset >= inFlight()) {
+            return;
+        }
+
+        int slot = (base + offset) % windowSize;
+        if (acked[slot]) {
+            return;
+        }
+
+        acked[slot] = true;
+        stopTimer(timers[slot]);
+        if (!resent[slot]) {
+            rto.sample(getSimulator().getTime() - sendTime[slot]);
+        }
+
+        while (base != nextSeqNum && acked[base % windowSize]) {
+            releasePacket(window[base % windowSize]);
+            window[base % windowSize] = null;
+            base = (base + 1) % sequenceSpace;
+            // every packet outstanding when the timeout was last backed off got through, sampled or not (Karn's rule)
+            if (backedOff && base == backoffSeqNum) {
+                backedOff = false;
+                rto.acknowledged();
+            }
+        }
+
+        while (!sendQueue.isEmpty() && inFlight() < windowSize) {
+            send(sendQueue.poll());
+        }
+    }
+
+    /**
+     * Retransmits the packet whose timer expired
+     */
+    @Override
+    public void timerInterrupt(TimerHandle expired) {
+        int slot = expired.getId();
+
+        resent[slot] = true;
+        // back off once per loss of the window's oldest packet rather than once per expired timer,
+        // otherwise a burst of expiries would multiply the timeout shared by the whole window
+        if (slot == base % windowSize) {
+            rto.backoff();
+            backedOff = true;
+            backoffSeqNum = nextSeqNum;
+        }
+        udtSend(window[slot]);
+        startTimer(expired, rto.getRto());
+    }
+}
@@ -1,7 +1,5 @@
 package transport;
 
-import java.util.ArrayList;
-
 public class Sender extends NetworkHost {
 
     /*
@@ -18,33 +16,52 @@ public class Sender extends NetworkHost {
      *       Stops the timer. You should only call this in the Sender class.
      *  void udtSend(Packet p)
      *       Sends the packet "p" into the network to arrive at other host
-     *  void deliverData(String dataSent)
+     *  void deliverData(byte[] dataSent)
      *       Passes "dataSent" up to app layer. You should only call this in the Receiver class.
+     *  int computeChecksum(Packet p)
+     *       Returns the checksum of "p": its header (except the checksum field) and payload, as received. Store it with p.setChecksum()
+     *       before sending, and compare it with p.getChecksum() on arrival. The algorithm is chosen with -Dtransport.checksum.
+     *  Packet createPacket(int seq, int ack, int check, byte[] payload)
+     *  Packet createPacket(int seq, int ack, int check)
+     *       Like the Packet constructors, but reuses a packet from the simulator's pool. Hand it back with releasePacket(p)
+     *       once it will not be sent again (udtSend sends a copy, so that can be straight after sending it).
+     *       Copy the packets passed to input() with new Packet(p) to keep them: they are reused once input() returns.
      *
      *  Predefined Classes:
      *
      *  NetworkSimulator: Implements the core functionality of the simulator
      *
      *  double getTime()
-     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().getTime()
+     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: getSimulator().getTime()
      *  void printEventList()
-     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().printEventList()
+     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: getSimulator().printEventList()
+     *
+     *  RtoEstimator: Estimates the retransmission timeout from measured round trip times
+     *    Methods:
+     *      void sample(double rtt)
+     *          updates the estimate with the round trip time of a packet that was not retransmitted
+     *      void backoff()
+     *          doubles the timeout, call it when the timer expires
+     *      void acknowledged()
+     *          clears the backoff, call it once the packets outstanding at the last expiry are all acknowledged
+     *      double getRto()
+     *          returns the timeout to start the timer with
      *
      *  Message: Used to encapsulate a message coming from the application layer
      *    Constructor:
-     *      Message(String inputData): 
+     *      Message(byte[] inputData): 
      *          creates a new Message containing "inputData"
      *    Methods:
-     *      void setData(String inputData):
+     *      void setData(byte[] inputData):
      *          sets an existing Message's data to "inputData"
-     *      String getData():
+     *      byte[] getData():
      *          returns the data contained in the message
      *
      *  Packet: Used to encapsulate a packet
      *    Constructors:
      *      Packet (Packet p):
-     *          creates a new Packet, which is a copy of "p"
-     *      Packet (int seq, int ack, int check, String newPayload):
+     *          creates a new Packet, which is a copy of "p" (sharing its payload)
+     *      Packet (int seq, int ack, int check, byte[] newPayload):
      *          creates a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and a payload of "newPayload"
      *      Packet (int seq, int ack, int check)
      *          chreate a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and an empty payload
@@ -55,27 +72,47 @@ public class Sender extends NetworkHost {
      *          sets the Packet's ack field to acknum
      *      void setChecksum(int checksum)
      *          sets the Packet's checksum to checksum
-     *      void setPayload(String payload) 
-     *          sets the Packet's payload to payload
+     *      void setPayload(byte[] payload) 
+     *          sets the Packet's payload to payload (the array must not be modified afterwards)
      *      int getSeqnum()
      *          returns the contents of the Packet's sequence field
      *      int getAcknum()
      *          returns the contents of the Packet's ack field
      *      int getChecksum()
      *          returns the checksum of the Packet
-     *      String getPayload()
-     *          returns the Packet's payload
+     *      byte[] getPayload()
+     *          returns the Packet's payload (do not modify it)
+     *      int getPayloadLength()
+     *          returns the number of bytes in the Packet's payload
+     *      byte getPayloadByte(int i)
+     *          returns byte "i" of the Packet's payload
      *
      */
     
     // Add any necessary class variables here. They can hold state information for the sender. 
-    // Also add any necessary methods (e.g. checksum of a String)
+    // Also add any necessary methods
     
-    private ArrayList<Packet> buffer;
-    private int endofWindow; // handles sliding from the end of the window
-    private int windowSize;
-    private int base;
-    private int nextSeqNum;
+    private static final int DUPLICATE_ACK_THRESHOLD = 3; // duplicate ACKs taken as a sign that base was lost
+    
+    private Packet[] buffer; // sent but unacknowledged packets, kept for retransmission at index seqnum % windowSize
+    private int sequenceSpace; // sequence numbers run from 0 to sequenceSpace - 1 and then wrap around
+    private int windowSize; // the most packets that may be outstanding
+    private CongestionWindow congestion; // limits the window further when congestion control is on (null when off)
+    private SendQueue sendQueue; // messages from the application layer waiting for room in the window
+    private int base; // oldest unacknowledged sequence number
+    private int nextSeqNum; // sequence number of the next packet to send
+    private int duplicateAcks; // ACKs of the packet just before base received since base last moved
+    private boolean recovering; // base was fast retransmitted and is not acknowledged yet
+    private int recoverSeqNum; // nextSeqNum at the fast retransmit: the packets before it were discarded by the receiver
+    private int resendSeqNum; // the next packet to go back and resend, once the window has room for it
+    private int resendEnd; // the packet after the last one to resend (equal to resendSeqNum when there are none)
+    private boolean backedOff; // the timer expired, and not every packet sent before it expired is acknowledged yet
+    private int backoffSeqNum; // nextSeqNum when the timer last expired
+    
+    private RtoEstimator rto;
+    private boolean timing; // is a packet being timed for a round trip sample?
+    private int timedSeqNum; // the packet being timed
+    private double timedSendTime; // when it was sent
     
     
     // This is the constructor.  Don't touch!
@@ -93,42 +130,42 @@ public class Sender extends NetworkHost {
        public void init() {
            
            // Intially nextSeqNum and base are equal
-           // end of the window is currently the window size
-           buffer = new ArrayList<>();
            base = 0; // represents front of window
            nextSeqNum = 0;
-           endofWindow = 8; // represents end of window
-           windowSize = 8; 
-       }
-       
-     /**
-     * Compute Checksum
-     * 1) Convert packet data into bytes
-     * 2) Sum the byte representation of the data character by character
-     * 3) Add sum to sequence number and acknowledgment number of the packet
-     * @param seqNo sequence number of the packet
-     * @param ack acknowledgment number of the packet
-     * @param data the data in the packet
-     * @return checksum for the packet
-     */
-       public int computeChecksum(int seqNo, int ack, String data) {
-           
-           int sum = 0;
+           duplicateAcks = 0;
+           recovering = false;
+           resendSeqNum = 0;
+           resendEnd = 0;
+           backedOff = false;
+           windowSize = getSimulator().getWindowSize(); // configured per run
+           sequenceSpace = getSimulator().getSequenceSpace(); // a multiple of the window size
            
-           // if data is empty set sum to 100 and add to seqNo and the ack num
-           if (data.isEmpty())
-           {
-               sum = 100;
-               return sum+seqNo+ack;
-           }
+           // at most windowSize packets are outstanding, and they all have different seqnum % windowSize
+           // so the buffer never grows, however long the run
+           buffer = new Packet[windowSize];
            
-           byte[] message = data.getBytes();
+           congestion = getSimulator().isCongestionControl() ? new CongestionWindow(windowSize) : null;
+           sendQueue = createSendQueue();
+           reportWindow(window());
            
-           for(int i = 0; i<message.length; i++){
-               sum += message[i];
-           }
-                       
-           return sum+seqNo+ack;
+           rto = new RtoEstimator();
+           timing = false;
+       }
+       
+    /**
+     * The number of packets sent and not yet acknowledged
+     * @return the distance from base to nextSeqNum, allowing for wraparound
+     */
+       private int inFlight() {
+           return Math.floorMod(nextSeqNum - base, sequenceSpace);
+       }
+       
+    /**
+     * The number of packets that may currently be outstanding
+     * @return the window size, or the congestion window when congestion control is on
+     */
+       private int window() {
+           return (congestion != null) ? congestion.getWindow() : windowSize;
        }
     
 
@@ -143,28 +180,93 @@ public class Sender extends NetworkHost {
        public void output(Message message) {
            
            // is nextSeqNum inside usable window?
-           if (nextSeqNum < base + windowSize)
+           // (and no earlier message is still waiting, so messages stay in order)
+           if (sendQueue.isEmpty() && inFlight() < window())
            {
-               // compute checksum
-               int checksum = computeChecksum(nextSeqNum,0,message.getData());
-               Packet p = new Packet(nextSeqNum,0,checksum,message.getData());
-               // add sent packet to position at nextSeqNum
-               buffer.add(nextSeqNum, p);
-               udtSend(p);
-               
-               // if 1st packet to be sent?
-               // start timer for oldest unacknowledged packet
-               if (base == nextSeqNum)
-               {
-                   startTimer(40);
-               }
-               
-               // increase nextSeqNum ready for next packet to be sent
-               nextSeqNum++;
+               send(message);
+           }
+           else
+           {
+               // if nextSeqNum outside usable window
+               // hold the message back until the window slides (refused if the send queue is full too)
+               sendQueue.offer(message);
+           }
+       }
+       
+    /**
+     * Sends a message as the packet with sequence number nextSeqNum
+     * @param message data to be formulated into a packet
+     */
+       private void send(Message message) {
+           
+           // compute checksum
+           Packet p = createPacket(nextSeqNum,0,0,message.getData());
+           p.setChecksum(computeChecksum(p));
+           // keep sent packet for retransmission
+           buffer[nextSeqNum % windowSize] = p;
+           udtSend(p);
+           
+           // time one packet per round trip
+           if (!timing)
+           {
+               timing = true;
+               timedSeqNum = nextSeqNum;
+               timedSendTime = getSimulator().getTime();
+           }
+           
+           // if 1st packet to be sent?
+           // start timer for oldest unacknowledged packet
+           if (base == nextSeqNum)
+           {
+               startTimer(rto.getRto());
+           }
+           
+           // increase nextSeqNum ready for next packet to be sent
+           nextSeqNum = (nextSeqNum + 1) % sequenceSpace;
+       }
+       
+    /**
+     * Goes back and resends the packets from base up to (but not including) end, as far as the window allows;
+     * the rest are resent by resendPending() as ACKs make room
+     * @param end the sequence number after the last packet to resend
+     */
+       private void goBack(int end) {
+           resendSeqNum = base;
+           resendEnd = end;
+           resendPending();
+       }
+       
+    /**
+     * Resends the packets goBack() left over that fit in the window
+     */
+       private void resendPending() {
+           // packets acknowledged in the meantime (their first copies got through) need no resending
+           int end = Math.floorMod(resendEnd - base, sequenceSpace);
+           if (end > inFlight())
+           {
+               resendSeqNum = resendEnd = base;
+               return;
+           }
+           if (Math.floorMod(resendSeqNum - base, sequenceSpace) > end)
+           {
+               resendSeqNum = base;
            }
            
-           // if nextSeqNum outside usable window
-           // refuse data from application layer (block app layer)
+           while (resendSeqNum != resendEnd && Math.floorMod(resendSeqNum - base, sequenceSpace) < window())
+           {
+               udtSend(buffer[resendSeqNum % windowSize]);
+               resendSeqNum = (resendSeqNum + 1) % sequenceSpace;
+           }
+       }
+       
+    /**
+     * Sends the queued messages that fit in the window
+     */
+       private void drainSendQueue() {
+           while (!sendQueue.isEmpty() && inFlight() < window())
+           {
+               send(sendQueue.poll());
+           }
        }
     
     
@@ -180,34 +282,106 @@ public class Sender extends NetworkHost {
        public void input(Packet packet) {
            
            // compute checksum
-           int checksum = computeChecksum(packet.getSeqnum(),packet.getAcknum(),packet.getPayload());
+           int checksum = computeChecksum(packet);
            
            // if packet recieved is not corrupted
            if (packet.getChecksum() == checksum)
            {
-               //store acknowledgement at base location
-               buffer.add(base, packet);
+               // number of packets the (cumulative) ACK acknowledges, counting from base
+               // sequence numbers wrap around, so compare distances from base rather than the numbers themselves
+               int acked = Math.floorMod(packet.getAcknum() - base, sequenceSpace) + 1;
+               
+               // an ACK for a packet before base acknowledges nothing new: ignore it
+               // (without touching the timer, which still guards base)
+               if (acked > inFlight())
+               {
+                   // the ACK of the packet just before base is a duplicate: the receiver got a packet after base but not base
+                   // after DUPLICATE_ACK_THRESHOLD of them, resend only base without waiting for the timer (fast retransmit)
+                   if (acked == sequenceSpace && inFlight() > 0 && ++duplicateAcks == DUPLICATE_ACK_THRESHOLD)
+                   {
+                       if (timing && timedSeqNum == base)
+                       {
+                           timing = false;
+                       }
+                       if (congestion != null)
+                       {
+                           congestion.fastRetransmit(inFlight());
+                           reportWindow(window());
+                       }
+                       udtSend(buffer[base % windowSize]);
+                       
+                       recovering = true;
+                       recoverSeqNum = nextSeqNum;
+                   }
+                   return;
+               }
+               duplicateAcks = 0;
+               
+               // every packet outstanding when the timer last expired got through: the resent flight has drained,
+               // so the timeout no longer needs backing off (an earlier ACK would let the next expiry resend the window
+               // on top of copies still queued in the channel)
+               if (backedOff && acked >= Math.floorMod(backoffSeqNum - base, sequenceSpace))
+               {
+                   backedOff = false;
+                   rto.acknowledged();
+               }
+               
+               // the timed packet is acknowledged (cumulatively) so sample its round trip time
+               if (timing && Math.floorMod(timedSeqNum - base, sequenceSpace) < acked)
+               {
+                   rto.sample(getSimulator().getTime() - timedSendTime);
+                   timing = false;
+               }
+               
+               // grow the congestion window by the number of packets acknowledged
+               if (congestion != null)
+               {
+                   congestion.acked(acked);
+                   reportWindow(window());
+               }
+
+               // release the acknowledged packets (back to the simulator, which reuses them)
+               for (int i = 0; i < acked; i++)
+               {
+                   int slot = (base + i) % sequenceSpace % windowSize;
+                   releasePacket(buffer[slot]);
+                   buffer[slot] = null;
+               }
 
                // increase base when acknowledgement is recieved
                // (slides front of window)
                // also handles cumulative acknowledgements
-               base = packet.getAcknum()+1;
+               base = (packet.getAcknum() + 1) % sequenceSpace;
                
-               // Increase end of window to complete sliding action
-               endofWindow++;
+               // the fast retransmitted packet arrived; the receiver discarded the packets sent after it
+               // (before the fast retransmit) as out of order, so go back and resend them now rather than wait for the timer
+               if (recovering)
+               {
+                   recovering = false;
+                   if (Math.floorMod(recoverSeqNum - base, sequenceSpace) <= inFlight())
+                   {
+                       goBack(recoverSeqNum);
+                   }
+               }
+               else
+               {
+                   // the window slid, so it may have room for packets still waiting to be resent
+                   resendPending();
+               }
            
                // if all packets sent are acknowledged
                // stop timer because there are no more unacknowledged packets
                // if not, restart timer for the next packet waiting to be sent
                // every time window is slided timer is restarted
-               if (base == nextSeqNum)
-               {
-                   stopTimer();
-               }
-               else
+               // (startTimer() leaves a running timer alone, so stop it first)
+               stopTimer();
+               if (base != nextSeqNum)
                {
-                   startTimer(40);
+                   startTimer(rto.getRto());
                }
+               
+               // the window slid, so queued messages can be sent
+               drainSendQueue();
            } 
        }
     
@@ -220,18 +394,27 @@ public class Sender extends NetworkHost {
        @Override
        public void timerInterrupt() {
            
-           // restart timer
-           startTimer(40);
+           // the window is resent so no packet in it can be timed (Karn's rule)
+           // back off and restart timer
+           timing = false;
+           duplicateAcks = 0;
+           recovering = false;
+           rto.backoff();
+           startTimer(rto.getRto());
+           backedOff = true;
+           backoffSeqNum = nextSeqNum;
+           
+           // a timeout drops the congestion window back to one packet
+           if (congestion != null)
+           {
+               congestion.timeout(inFlight());
+               reportWindow(window());
+           }
            
            // retransmit all sent but not yet acknowledged packets
            // start from oldest unacknowledged packet (base)
            // up to packet at position next sequence number
-           
-           // iterate through each packet and retransmit
-           for (int i = base; i<=nextSeqNum; i++)
-           {
-               udtSend(buffer.get(i));
-               i++;
-           }
+           // as many as the (congestion) window allows now, the rest as ACKs slide it
+           goBack(nextSeqNum);
        }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package transport;
+
+/**
+ * The checksum of the original assignment: the payload bytes (as signed values) plus the sequence and acknowledgment numbers,
+ * with 100 standing in for an empty payload.
+ * It is weak: swapping two payload bytes, or moving a difference between the sequence and acknowledgment numbers, goes undetected.
+ */
+public class SumChecksum implements PacketChecksum {
+
+    private static final int EMPTY_PAYLOAD_SUM = 100;
+
+    @Override
+    public int compute(Packet packet) {
+        int length = packet.getPayloadLength();
+        if (length == 0) {
+            return EMPTY_PAYLOAD_SUM + packet.getSeqnum() + packet.getAcknum();
+        }
+
+        int sum = 0;
+        for (int i = 0; i < length; i++) {
+            sum += packet.getPayloadByte(i);
+        }
+        return sum + packet.getSeqnum() + packet.getAcknum();
+    }
+}
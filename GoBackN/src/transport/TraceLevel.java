@@ -0,0 +1,12 @@
+package transport;
+
+/**
+ * How much the simulator writes to its trace, from nothing at all to every packet sent and delivered.
+ * Each level includes the output of the levels before it.
+ */
+public enum TraceLevel {
+    OFF,        // no output at all
+    SUMMARY,    // start and end of the run, internal errors
+    EVENT,      // every event processed, application arrivals and timer operations
+    PACKET;     // every packet sent, lost, corrupted and delivered
+}
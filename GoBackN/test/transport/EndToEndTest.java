@@ -0,0 +1,182 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Runs whole simulations of every protocol of this project on every scheduler, and checks that the receiver's application
+ * gets every message once, uncorrupted and in order.
+ */
+public class EndToEndTest {
+
+    private static final String DELIVERY = "deliverData: data received at ";
+
+    // a trace sink keeping the payloads the receivers deliver, in order
+    private static class Deliveries implements TraceSink {
+
+        final List<String> payloads = new ArrayList<>();
+
+        @Override
+        public void println(String line) {
+            if (line.startsWith(DELIVERY)) {
+                payloads.add(line.substring(line.indexOf(':', DELIVERY.length()) + 1));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // a trace sink adding up when each message was first sent by A and when B delivered it: with the messages first sent and
+    // delivered in order, their latencies add up to the difference
+    private static class Latencies implements TraceSink {
+
+        private static final String SEND = "udtSend: seqnum: ";
+
+        final NetworkSimulator simulator;
+        int firstSends;
+        double firstSent;
+        double delivered;
+
+        Latencies(NetworkSimulator simulator) {
+            this.simulator = simulator;
+        }
+
+        @Override
+        public void println(String line) {
+            Event current = simulator.getCurrentEvent();
+            if (line.startsWith(SEND) && current != null && current.getEntity() == NetworkSimulator.A) {
+                // every sequence number A still resends is behind the next new one
+                int seq = Integer.parseInt(line.substring(SEND.length(), line.indexOf(' ', SEND.length())));
+                if (seq == firstSends % simulator.getSequenceSpace()) {
+                    firstSends++;
+                    firstSent += simulator.getTime();
+                }
+            } else if (line.startsWith(DELIVERY)) {
+                delivered += simulator.getTime();
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // runs a simulation whose send queue holds every message, so that the application never has one refused
+    static NetworkSimulator run(Protocol protocol, SchedulerType scheduler, int windowSize, int messages, double loss, double corrupt,
+            long seed, Deliveries deliveries) {
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(new Trace(TraceLevel.PACKET, deliveries));
+        simulator.setProtocol(protocol);
+        simulator.setWindowSize(windowSize);
+        simulator.setSendQueueCapacity(messages);
+        simulator.initSimulator(messages, loss, corrupt, 10.0, seed, scheduler);
+        simulator.runSimulator();
+        return simulator;
+    }
+
+    private static void assertInOrder(String run, int messages, List<String> payloads) {
+        assertEquals(run + ": messages delivered", messages, payloads.size());
+        for (int i = 0; i < messages; i++) {
+            byte[] expected = new byte[NetworkSimulator.MAXDATASIZE];
+            Arrays.fill(expected, (byte) ('a' + i % 26));
+            assertEquals(run + ": message " + (i + 1), new String(expected, StandardCharsets.ISO_8859_1), payloads.get(i));
+        }
+    }
+
+    private static void deliversInOrder(double loss, double corrupt) {
+        int messages = 300;
+        for (Protocol protocol : Protocol.values()) {
+            NetworkSimulator[] runs = new NetworkSimulator[SchedulerType.values().length];
+            for (SchedulerType scheduler : SchedulerType.values()) {
+                String run = protocol + "/" + scheduler + " loss " + loss + " corrupt " + corrupt;
+                Deliveries deliveries = new Deliveries();
+                NetworkSimulator simulator = run(protocol, scheduler, NetworkSimulator.DEFAULT_WINDOW_SIZE, messages, loss, corrupt, 1L,
+                        deliveries);
+                assertInOrder(run, messages, deliveries.payloads);
+                assertEquals(run + ": corruptions undetected", 0, simulator.getMetrics().getCorruptionsUndetected());
+                runs[scheduler.ordinal()] = simulator;
+            }
+
+            // the schedulers break ties the same way, so the runs are identical
+            for (NetworkSimulator simulator : runs) {
+                assertEquals(protocol + ": events", runs[0].getnEvents(), simulator.getnEvents());
+                assertEquals(protocol + ": end time", runs[0].getTime(), simulator.getTime(), 0.0);
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void deliversInOrderOverAPerfectChannel() {
+        deliversInOrder(0.0, 0.0);
+    }
+
+    @Test(timeout = 60000)
+    public void deliversInOrderOverALossyChannel() {
+        deliversInOrder(0.2, 0.2);
+    }
+
+    // Selective Repeat delivers the messages it buffered once the gap before them is filled, while handling the arrival of another
+    // packet: each one's latency is still counted from its own first transmission
+    @Test(timeout = 60000)
+    public void selectiveRepeatMeasuresBufferedMessagesFromTheirOwnFirstSend() {
+        int messages = 300;
+        NetworkSimulator simulator = new NetworkSimulator();
+        Latencies latencies = new Latencies(simulator);
+        simulator.setTrace(new Trace(TraceLevel.PACKET, latencies));
+        simulator.setProtocol(Protocol.SELECTIVE_REPEAT);
+        simulator.setSendQueueCapacity(messages);
+        simulator.initSimulator(messages, 0.2, 0.2, 10.0, 1L, SchedulerType.HEAP);
+        simulator.runSimulator();
+
+        Histogram latency = simulator.getMetrics().getDeliveryLatency();
+        assertEquals(messages, latencies.firstSends);
+        assertEquals(messages, latency.getCount());
+        double expected = latencies.delivered - latencies.firstSent;
+        assertEquals(expected, latency.getMean() * latency.getCount(), 1e-9 * expected);
+    }
+
+    // A window of 64 packets takes far longer to drain through the channel (which delivers the packets towards a host one after
+    // the other) than the initial timeout: the timer expires before a resent window has drained. Unless the backed-off timeout
+    // can outgrow the drain time, every expiry resends the window again on top of the copies still queued, and the packets sent
+    // grow without bound (778162 for these 300 messages with the timeout capped at 160).
+    @Test(timeout = 60000)
+    public void aLargeWindowDoesNotLivelock() {
+        int messages = 300;
+        int window = 64;
+        double loss = 0.2;
+        double corrupt = 0.2;
+
+        // a packet and its ACK both get through intact with probability roundTrip; short of a livelock, every message takes
+        // one round trip plus (1 - roundTrip) / roundTrip failed ones on average, and each failure resends at most a window
+        double intact = (1 - loss) * (1 - corrupt);
+        double roundTrip = intact * intact;
+        long bound = (long) (messages * (1 + window * (1 - roundTrip) / roundTrip));
+
+        for (Protocol protocol : Protocol.values()) {
+            for (long seed = 1; seed <= 4; seed++) {
+                String run = protocol + " window " + window + " seed " + seed;
+                Deliveries deliveries = new Deliveries();
+                NetworkSimulator simulator = run(protocol, SchedulerType.HEAP, window, messages, loss, corrupt, seed, deliveries);
+                assertInOrder(run, messages, deliveries.payloads);
+                long packets = simulator.getMetrics().getPacketsSent();
+                assertTrue(run + ": " + packets + " packets sent, more than " + bound, packets <= bound);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Drives the Go-Back-N Sender by hand, capturing what it sends, to check its ring buffer, the wraparound of its sequence numbers
+ * and its recovery from duplicate ACKs.
+ * With a window of 4 packets, sequence numbers run from 0 to 7.
+ */
+public class SenderTest {
+
+    private static final int WINDOW = 4;
+
+    private NetworkSimulator simulator;
+    private Sender sender;
+    private final List<Packet> sent = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.setWindowSize(WINDOW);
+        simulator.setSendQueueCapacity(1000);
+        simulator.initSimulator(1000, 0.0, 0.0, 10.0, 1L);
+        simulator.setTransport((source, destination, packet) -> sent.add(packet));
+        sender = (Sender) simulator.getFlow(0).getSender();
+        sender.init();
+    }
+
+    private static Message message(int i) {
+        return new Message("message " + i);
+    }
+
+    // the receiver's (cumulative) ACK of a sequence number
+    private void ack(int acknum) {
+        Packet ack = new Packet(0, acknum, 0);
+        ack.setChecksum(simulator.getChecksum().compute(ack));
+        sender.input(ack);
+    }
+
+    // checks the packets sent since the last call: their sequence numbers, and the messages they carry
+    private void assertSent(int[] seqnums, int[] messages) {
+        assertEquals("packets sent", seqnums.length, sent.size());
+        for (int i = 0; i < seqnums.length; i++) {
+            assertEquals("seqnum of packet " + i, seqnums[i], sent.get(i).getSeqnum());
+            assertEquals("payload of packet " + i, message(messages[i]).toString(), sent.get(i).getPayloadString());
+        }
+        sent.clear();
+    }
+
+    @Test
+    public void theWindowSlidesOneAckAtATimeAcrossTheWrap() {
+        for (int i = 0; i < 30; i++) {
+            sender.output(message(i));
+        }
+        assertSent(new int[] {0, 1, 2, 3}, new int[] {0, 1, 2, 3});
+
+        // every ACK lets exactly one queued message into the window, with the next sequence number modulo 8
+        for (int i = 0; i < 26; i++) {
+            ack(i % 8);
+            assertSent(new int[] {(i + WINDOW) % 8}, new int[] {i + WINDOW});
+        }
+    }
+
+    @Test
+    public void aCumulativeAckAcrossTheWrapReleasesTheWholeWindow() {
+        for (int i = 0; i < 14; i++) {
+            sender.output(message(i));
+        }
+        ack(3);
+        ack(5);
+        assertSent(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 0, 1}, new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9});
+
+        // 6, 7, 0 and 1 are outstanding: the ACK of 1 acknowledges all of them
+        ack(1);
+        assertSent(new int[] {2, 3, 4, 5}, new int[] {10, 11, 12, 13});
+    }
+
+    @Test
+    public void aTimeoutResendsTheWindowFromBaseAcrossTheWrap() {
+        for (int i = 0; i < 10; i++) {
+            sender.output(message(i));
+        }
+        ack(3);
+        ack(5);
+        sent.clear();
+
+        sender.timerInterrupt();
+        assertSent(new int[] {6, 7, 0, 1}, new int[] {6, 7, 8, 9});
+    }
+
+    @Test
+    public void aTimeoutUnderCongestionControlResendsOnlyWhatTheWindowAllows() {
+        simulator.setCongestionControl(true);
+        sender.init();
+        for (int i = 0; i < 8; i++) {
+            sender.output(message(i));
+        }
+
+        // slow start: one packet, then two, then four
+        assertSent(new int[] {0}, new int[] {0});
+        ack(0);
+        assertSent(new int[] {1, 2}, new int[] {1, 2});
+        ack(2);
+        assertSent(new int[] {3, 4, 5, 6}, new int[] {3, 4, 5, 6});
+
+        // the timeout drops the window to one packet (threshold 2), so only base is resent
+        sender.timerInterrupt();
+        assertSent(new int[] {3}, new int[] {3});
+
+        // each ACK then clocks out as many of the other packets as the window has room for, before any new message
+        ack(3);
+        assertSent(new int[] {4, 5}, new int[] {4, 5});
+        ack(4);
+        assertSent(new int[] {6}, new int[] {6});
+        ack(6);
+        assertSent(new int[] {7}, new int[] {7});
+    }
+
+    @Test
+    public void packetsAcknowledgedAfterATimeoutAreNotResent() {
+        simulator.setCongestionControl(true);
+        sender.init();
+        for (int i = 0; i < 8; i++) {
+            sender.output(message(i));
+        }
+        ack(0);
+        ack(2);
+        sender.timerInterrupt();
+        sent.clear();
+
+        // the first copies of 3, 4 and 5 got through after all: only 6 is left to resend, then the window has room for 7
+        ack(5);
+        assertSent(new int[] {6, 7}, new int[] {6, 7});
+    }
+
+    @Test
+    public void staleAndCorruptedAcksAreIgnored() {
+        for (int i = 0; i < 8; i++) {
+            sender.output(message(i));
+        }
+        ack(1);
+        assertSent(new int[] {0, 1, 2, 3, 4, 5}, new int[] {0, 1, 2, 3, 4, 5});
+
+        // an ACK from before base acknowledges nothing
+        ack(0);
+        assertSent(new int[0], new int[0]);
+
+        // nor does an ACK whose checksum does not match
+        Packet corrupted = new Packet(0, 3, 0);
+        corrupted.setChecksum(simulator.getChecksum().compute(corrupted) + 1);
+        sender.input(corrupted);
+        assertSent(new int[0], new int[0]);
+
+        ack(3);
+        assertSent(new int[] {6, 7}, new int[] {6, 7});
+    }
+
+    @Test
+    public void threeDuplicateAcksFastRetransmitBaseOnceThenRecover() {
+        for (int i = 0; i < 9; i++) {
+            sender.output(message(i));
+        }
+        ack(3);
+        assertSent(new int[] {0, 1, 2, 3, 4, 5, 6, 7}, new int[] {0, 1, 2, 3, 4, 5, 6, 7});
+
+        // 4 was lost: the receiver acknowledges 3 again for each of 5, 6 and 7
+        ack(3);
+        ack(3);
+        assertSent(new int[0], new int[0]);
+        ack(3);
+        assertSent(new int[] {4}, new int[] {4});
+        ack(3);
+        assertSent(new int[0], new int[0]);
+
+        // the retransmitted 4 arrives: the receiver had discarded 5, 6 and 7, so they are resent at once,
+        // then the slot freed by 4 takes the queued message
+        ack(4);
+        assertSent(new int[] {5, 6, 7, 0}, new int[] {5, 6, 7, 8});
+    }
+
+    @Test
+    public void duplicateAcksAreCountedAfresh() {
+        for (int i = 0; i < 4; i++) {
+            sender.output(message(i));
+        }
+        ack(0);
+        sent.clear();
+
+        // two duplicates, then progress: the count starts again, so two more duplicates are not enough
+        ack(0);
+        ack(0);
+        ack(1);
+        ack(1);
+        ack(1);
+        assertSent(new int[0], new int[0]);
+        ack(1);
+        assertSent(new int[] {2}, new int[] {2});
+    }
+}
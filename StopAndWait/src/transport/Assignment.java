@@ -14,6 +14,17 @@ public class Assignment {
         double corrupt;
         double delay;
         long seed;
+        SchedulerType scheduler;
+        int sendQueueCapacity;
+        ChecksumType checksum;
+        int flows;
+        double bandwidth;
+        double propagationDelay;
+        int routerQueue;
+        QueueType queueType;
+        Trace trace;
+        EventTraceWriter eventTrace = null;
+        ChannelRecorder channelRecorder = null;
 
         // initialise a BufferedReader to read from the standard input (keyboard)
         BufferedReader stdIn = new BufferedReader(new InputStreamReader(System.in));
@@ -56,13 +67,146 @@ public class Assignment {
         buffer = stdIn.readLine();
         seed = Long.valueOf(buffer);
 
-        // Instantiate the single instance of the NetworkSimulator
-        simulator = NetworkSimulator.getInstance();
+        // The event scheduler is picked with -Dtransport.scheduler=heap|calendar (default: heap)
+        try {
+            scheduler = SchedulerType.valueOf(System.getProperty("transport.scheduler", "heap").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("transport.scheduler must be one of: heap, calendar");
+            System.exit(-1);
+            return;
+        }
+
+        // Senders queue up to -Dtransport.sendqueue=<messages> messages they cannot send yet (default: 256, 0 to refuse them)
+        try {
+            sendQueueCapacity = Integer.parseInt(System.getProperty("transport.sendqueue", String.valueOf(NetworkSimulator.DEFAULT_SEND_QUEUE_CAPACITY)));
+        } catch (NumberFormatException e) {
+            sendQueueCapacity = -1;
+        }
+        if (sendQueueCapacity < 0) {
+            System.err.println("transport.sendqueue must be a number of messages >= 0");
+            System.exit(-1);
+            return;
+        }
+
+        // Packets are protected with -Dtransport.checksum=sum|internet|crc32c (default: crc32c)
+        try {
+            checksum = ChecksumType.valueOf(System.getProperty("transport.checksum", "crc32c").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("transport.checksum must be one of: sum, internet, crc32c");
+            System.exit(-1);
+            return;
+        }
+
+        // -Dtransport.flows=<n> runs n sender/receiver pairs, each sending the number of messages entered above (default: 1)
+        try {
+            flows = Integer.parseInt(System.getProperty("transport.flows", "1"));
+        } catch (NumberFormatException e) {
+            flows = 0;
+        }
+        if (flows < 1 || flows > NetworkSimulator.MAX_FLOWS) {
+            System.err.println("transport.flows must be a number of flows between 1 and " + NetworkSimulator.MAX_FLOWS);
+            System.exit(-1);
+            return;
+        }
+
+        // The hosts are connected by links of -Dtransport.bandwidth=<bytes per time unit> (default: 0, packets are delayed at random instead)
+        // and -Dtransport.propagation=<time units> (default: 5), behind router queues of -Dtransport.routerqueue=<packets> (default: 32)
+        // managed with -Dtransport.aqm=drop_tail|red (default: drop_tail)
+        try {
+            bandwidth = Double.parseDouble(System.getProperty("transport.bandwidth", "0"));
+            propagationDelay = Double.parseDouble(System.getProperty("transport.propagation", String.valueOf(NetworkSimulator.DEFAULT_PROPAGATION_DELAY)));
+            routerQueue = Integer.parseInt(System.getProperty("transport.routerqueue", String.valueOf(NetworkSimulator.DEFAULT_ROUTER_QUEUE_CAPACITY)));
+        } catch (NumberFormatException e) {
+            bandwidth = -1.0;
+            propagationDelay = -1.0;
+            routerQueue = -1;
+        }
+        if (bandwidth < 0.0 || propagationDelay < 0.0 || routerQueue < 0) {
+            System.err.println("transport.bandwidth and transport.propagation must be >= 0.0 and transport.routerqueue a number of packets >= 0");
+            System.exit(-1);
+            return;
+        }
+        try {
+            queueType = QueueType.valueOf(System.getProperty("transport.aqm", "drop_tail").toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("transport.aqm must be one of: drop_tail, red");
+            System.exit(-1);
+            return;
+        }
+
+        // Losses follow -Dtransport.loss.model=<spec> instead of the probability entered above, or -Dtransport.loss.forward=<spec>
+        // and -Dtransport.loss.reverse=<spec> for each direction (e.g. gilbert:0.05,4, see LossModel); corruption likewise
+        // with -Dtransport.corrupt.model, -Dtransport.corrupt.forward and -Dtransport.corrupt.reverse
+        String lossModel = System.getProperty("transport.loss.model");
+        String corruptionModel = System.getProperty("transport.corrupt.model");
+
+        // The trace is configured with -Dtransport.trace=off|summary|event|packet (default: packet)
+        // and -Dtransport.trace.file=<file> (default: standard output)
+        try {
+            trace = Trace.fromSystemProperties();
+        } catch (IllegalArgumentException e) {
+            System.err.println("transport.trace must be one of: off, summary, event, packet");
+            System.exit(-1);
+            return;
+        }
+
+        // Instantiate the NetworkSimulator
+        simulator = new NetworkSimulator();
 
         // Initialise the simulator
-        simulator.initSimulator(nMsgSim, loss, corrupt, delay, seed);
+        simulator.setSendQueueCapacity(sendQueueCapacity);
+        simulator.setChecksumType(checksum);
+        simulator.setFlowCount(flows);
+        simulator.setLink(bandwidth, propagationDelay);
+        simulator.setRouterQueue(routerQueue, queueType);
+        simulator.setLossModel(System.getProperty("transport.loss.forward", lossModel), System.getProperty("transport.loss.reverse", lossModel));
+        simulator.setCorruptionModel(System.getProperty("transport.corrupt.forward", corruptionModel),
+                System.getProperty("transport.corrupt.reverse", corruptionModel));
+        try {
+            simulator.initSimulator(nMsgSim, loss, corrupt, delay, seed, scheduler);
+        } catch (IllegalArgumentException | UncheckedIOException e) {
+            // a loss or corruption model that cannot be created
+            System.err.println(e.getMessage());
+            System.exit(-1);
+            return;
+        }
+
+        simulator.setTrace(trace);
+
+        // A binary record of every event is written with -Dtransport.eventtrace=<prefix> (read it back with EventTraceReader)
+        String eventTracePrefix = System.getProperty("transport.eventtrace");
+        if (eventTracePrefix != null) {
+            eventTrace = new EventTraceWriter(eventTracePrefix);
+            simulator.setEventTrace(eventTrace);
+        }
+
+        // The channel's decisions are recorded with -Dtransport.channel.record=<file>, and replayed by a later run (e.g. of the other
+        // protocol) with -Dtransport.channel.replay=<file> (see ChannelReplay)
+        String channelRecord = System.getProperty("transport.channel.record");
+        if (channelRecord != null) {
+            channelRecorder = new ChannelRecorder(channelRecord);
+            simulator.setChannelRecorder(channelRecorder);
+        }
+        String channelReplay = System.getProperty("transport.channel.replay");
+        if (channelReplay != null) {
+            try {
+                simulator.setChannelReplay(ChannelReplay.load(channelReplay));
+            } catch (IOException e) {
+                System.err.println("unable to replay " + channelReplay + ": " + e.getMessage());
+                System.exit(-1);
+                return;
+            }
+        }
 
         // Run the simulator
         simulator.runSimulator();
+
+        trace.close();
+        if (eventTrace != null) {
+            eventTrace.close();
+        }
+        if (channelRecorder != null) {
+            channelRecorder.close();
+        }
     }
 }
@@ -0,0 +1,33 @@
+package transport;
+
+/**
+ * Hits every packet with the same probability, independently of the others: the channel of the original simulator
+ */
+public class BernoulliLoss implements LossModel {
+
+    private final RandomStream rand;
+    private final double probability;
+
+    public BernoulliLoss(RandomStream rand, double probability) {
+        if (probability < 0.0 || probability > 1.0) {
+            throw new IllegalArgumentException("probability must be between 0 and 1");
+        }
+        this.rand = rand;
+        this.probability = probability;
+    }
+
+    @Override
+    public boolean next(double time) {
+        // always draw, even when the outcome is certain, so that the n-th packet always gets the stream's n-th number
+        return rand.nextDouble() < probability;
+    }
+
+    public double getProbability() {
+        return probability;
+    }
+
+    @Override
+    public String toString() {
+        return "bernoulli:" + probability;
+    }
+}
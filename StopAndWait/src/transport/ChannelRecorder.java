@@ -0,0 +1,89 @@
+package transport;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
+/**
+ * Records every decision the channel makes in udtSend (see ChannelDecision), so that a later run can replay them (see ChannelReplay),
+ * e.g. to compare two protocols over exactly the same losses, corruptions and delays.
+ *
+ * The file starts with a header (magic, version) followed by one variable-length record per packet, in the order they were sent:
+ *
+ * <pre>
+ *   size  field
+ *      1  flags (FLAG_REVERSE, FLAG_LOST, FLAG_DELAY, and the ChannelDecision corruption in bits 2-3)
+ *    1-5  flow (unsigned varint, 7 bits per byte)
+ *      4  corruptionValue (int), only if the sequence or acknowledgment number is corrupted
+ *      8  delay (double), only if FLAG_DELAY is set
+ * </pre>
+ *
+ * A record is keyed by its flow, its direction and its transmission index, i.e. its position among the records of the same
+ * flow and direction; a lost packet takes 2 bytes, a packet delivered intact 2 to 10.
+ */
+public class ChannelRecorder implements Closeable {
+
+    public static final int MAGIC = 0x41525143;         // "ARQC"
+    public static final short VERSION = 1;
+
+    public static final int FLAG_REVERSE = 1;           // sent by a receiver
+    public static final int FLAG_LOST = 2;
+    public static final int CORRUPTION_SHIFT = 2;       // two bits of ChannelDecision.NONE, PAYLOAD, SEQNUM or ACKNUM
+    public static final int CORRUPTION_MASK = 3;
+    public static final int FLAG_DELAY = 16;
+
+    private final String file;
+    private final DataOutputStream out;
+    private long records;
+
+    public ChannelRecorder(String file) throws IOException {
+        this.file = file;
+        out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+        out.writeInt(MAGIC);
+        out.writeShort(VERSION);
+        records = 0;
+    }
+
+    /**
+     * Records the decisions for the next packet of a flow
+     *
+     * @param flow the flow the packet belongs to
+     * @param fromSender whether the flow's sender sent it
+     * @param decision what the channel decided
+     */
+    public void record(int flow, boolean fromSender, ChannelDecision decision) {
+        int flags = (fromSender ? 0 : FLAG_REVERSE) | (decision.lost ? FLAG_LOST : 0) | (decision.corruption << CORRUPTION_SHIFT)
+                | (decision.hasDelay() ? FLAG_DELAY : 0);
+        try {
+            out.writeByte(flags);
+            for (int v = flow; ; v >>>= 7) {
+                if ((v & ~0x7f) == 0) {
+                    out.writeByte(v);
+                    break;
+                }
+                out.writeByte((v & 0x7f) | 0x80);
+            }
+            if (decision.corruption == ChannelDecision.SEQNUM || decision.corruption == ChannelDecision.ACKNUM) {
+                out.writeInt(decision.corruptionValue);
+            }
+            if (decision.hasDelay()) {
+                out.writeDouble(decision.delay);
+            }
+        } catch (IOException ex) {
+            throw new UncheckedIOException("unable to write channel recording " + file, ex);
+        }
+        records++;
+    }
+
+    public long getRecords() {
+        return records;
+    }
+
+    @Override
+    public void close() throws IOException {
+        out.close();
+    }
+}
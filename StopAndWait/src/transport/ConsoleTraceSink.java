@@ -0,0 +1,34 @@
+package transport;
+
+import java.io.PrintStream;
+
+/**
+ * Writes trace lines synchronously to a PrintStream (System.out by default). Closing it only flushes the stream.
+ */
+public class ConsoleTraceSink implements TraceSink {
+
+    private final PrintStream out;
+
+    public ConsoleTraceSink() {
+        this(System.out);
+    }
+
+    public ConsoleTraceSink(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void println(String line) {
+        out.println(line);
+    }
+
+    @Override
+    public void flush() {
+        out.flush();
+    }
+
+    @Override
+    public void close() {
+        out.flush();
+    }
+}
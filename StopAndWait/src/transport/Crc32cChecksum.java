@@ -0,0 +1,57 @@
+package transport;
+
+import java.util.zip.Checksum;
+
+/**
+ * CRC-32C (Castagnoli) over the packet's header, without the checksum field, and payload.
+ *
+ * java.util.zip.CRC32C, which the JIT compiles to the CPU's CRC instructions, only exists from Java 9 on, and this project
+ * is built for Java 8: it is looked up by name once, and the table-driven Crc32c is used when it is missing.
+ * Either way the packet's arrays are fed to it in place.
+ */
+public class Crc32cChecksum implements PacketChecksum {
+
+    private final Checksum crc;
+
+    public Crc32cChecksum() {
+        this(newCrc32c());
+    }
+
+    // use the given CRC-32C implementation (e.g. to compare the JDK's with the table-driven one)
+    Crc32cChecksum(Checksum crc) {
+        this.crc = crc;
+    }
+
+    // the JDK's CRC32C if there is one, otherwise the table-driven implementation
+    static Checksum newCrc32c() {
+        try {
+            return (Checksum) Class.forName("java.util.zip.CRC32C").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            return new Crc32c();
+        }
+    }
+
+    // true if the JDK's (intrinsic) CRC32C is being used
+    public boolean isIntrinsic() {
+        return !(crc instanceof Crc32c);
+    }
+
+    @Override
+    public int compute(Packet packet) {
+        crc.reset();
+        crc.update(packet.header, 0, Packet.CHECKSUM_OFFSET);
+        crc.update(packet.header, Packet.LENGTH_OFFSET, Packet.HEADER_SIZE - Packet.LENGTH_OFFSET);
+
+        byte[] payload = packet.payload;
+        int length = packet.getPayloadLength();
+        int offset = packet.corruptedOffset;
+        if (offset < 0) {
+            crc.update(payload, 0, length);
+        } else {
+            crc.update(payload, 0, offset);
+            crc.update(packet.corruptedValue);
+            crc.update(payload, offset + 1, length - offset - 1);
+        }
+        return (int) crc.getValue();
+    }
+}
@@ -0,0 +1,175 @@
+package transport;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Reads a binary event trace written by EventTraceWriter.
+ * Segments are memory-mapped one at a time, so traces much larger than the heap can be replayed.
+ *
+ * Usage: java transport.EventTraceReader summary|dump prefix [maxRecords]
+ */
+public class EventTraceReader {
+
+    // Called for every record of the trace, in the order the events were processed
+    public interface Visitor {
+
+        void visit(EventTraceRecord record);
+    }
+
+    private final String prefix;
+
+    public EventTraceReader(String prefix) {
+        this.prefix = prefix;
+    }
+
+    /**
+     * Visits the records of the trace in order
+     *
+     * @param visitor
+     * @param maxRecords stop after this many records
+     * @return the number of records visited
+     * @throws IOException if a segment cannot be read or is not an event trace
+     */
+    public long forEach(Visitor visitor, long maxRecords) throws IOException {
+        EventTraceRecord record = new EventTraceRecord();
+        long index = 0;
+
+        for (int segment = 0; index < maxRecords; segment++) {
+            Path file = Paths.get(EventTraceWriter.segmentFile(prefix, segment));
+            if (!Files.exists(file)) {
+                break;
+            }
+
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                buffer.order(ByteOrder.LITTLE_ENDIAN);
+
+                if (buffer.limit() < EventTraceWriter.HEADER_SIZE || buffer.getInt(0) != EventTraceWriter.MAGIC) {
+                    throw new IOException(file + " is not an event trace segment");
+                }
+                if (buffer.getShort(4) != EventTraceWriter.VERSION || buffer.getShort(6) != EventTraceWriter.RECORD_SIZE) {
+                    throw new IOException(file + " has an unsupported trace version or record size");
+                }
+
+                // the count is only written when the segment is closed; a segment that never was (the run crashed or was killed)
+                // is still mapped at its full size, so it is read up to its first unwritten, zero-filled record
+                long count = buffer.getLong(8);
+                long available = (buffer.limit() - EventTraceWriter.HEADER_SIZE) / EventTraceWriter.RECORD_SIZE;
+                boolean closed = count > 0 && count <= available;
+                if (!closed) {
+                    count = available;
+                }
+
+                for (long i = 0; i < count && index < maxRecords; i++) {
+                    int offset = (int) (EventTraceWriter.HEADER_SIZE + i * EventTraceWriter.RECORD_SIZE);
+                    if (!closed && isUnwritten(buffer, offset)) {
+                        break;
+                    }
+                    record.moveTo(buffer, offset, index++);
+                    visitor.visit(record);
+                }
+            }
+        }
+
+        return index;
+    }
+
+    // a record is never all zeros, since no entity is 0
+    private static boolean isUnwritten(MappedByteBuffer buffer, int offset) {
+        for (int i = 0; i < EventTraceWriter.RECORD_SIZE; i += 8) {
+            if (buffer.getLong(offset + i) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long forEach(Visitor visitor) throws IOException {
+        return forEach(visitor, Long.MAX_VALUE);
+    }
+
+    // Aggregate counts of a trace
+    public static class Summary implements Visitor {
+
+        private final long[] byType = new long[EventType.values().length];
+        private long records;
+        private long lost;
+        private long corrupted;
+        private double firstTime = Double.NaN;
+        private double lastTime = Double.NaN;
+
+        @Override
+        public void visit(EventTraceRecord record) {
+            double time = record.getTime();
+            if (records == 0) {
+                firstTime = time;
+                lastTime = time;
+            }
+            lastTime = Math.max(lastTime, time);
+            records++;
+
+            if (record.isLost()) {
+                lost++;
+            } else {
+                byType[record.getType().ordinal()]++;
+            }
+            if (record.isCorrupted()) {
+                corrupted++;
+            }
+        }
+
+        public long getRecords() {
+            return records;
+        }
+
+        public long getEvents(EventType type) {
+            return byType[type.ordinal()];
+        }
+
+        public long getLost() {
+            return lost;
+        }
+
+        public long getCorrupted() {
+            return corrupted;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append("records: ").append(records).append('\n');
+            sb.append("time: ").append(firstTime).append(" to ").append(lastTime).append('\n');
+            for (EventType type : EventType.values()) {
+                sb.append(type).append(": ").append(byType[type.ordinal()]).append('\n');
+            }
+            sb.append("packets lost: ").append(lost).append('\n');
+            sb.append("packets corrupted: ").append(corrupted);
+            return sb.toString();
+        }
+    }
+
+    public static void main(String[] argv) throws IOException {
+        if (argv.length < 2 || !(argv[0].equals("summary") || argv[0].equals("dump"))) {
+            System.err.println("Usage: EventTraceReader summary|dump prefix [maxRecords]");
+            System.exit(-1);
+        }
+
+        EventTraceReader reader = new EventTraceReader(argv[1]);
+        long max = (argv.length > 2) ? Long.parseLong(argv[2]) : Long.MAX_VALUE;
+
+        if (argv[0].equals("summary")) {
+            Summary summary = new Summary();
+            reader.forEach(summary, max);
+            System.out.println(summary);
+        } else {
+            reader.forEach(record -> System.out.println(record), max);
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package transport;
+
+/**
+ * The Gilbert-Elliott channel: a two-state Markov chain whose bad state hits packets far more often than its good state,
+ * so hits come in bursts. For every packet, the chain first moves (good to bad with probability p, bad to good with probability r),
+ * then the packet is hit with the probability of the state it is in.
+ * In the long run the chain is bad p / (p + r) of the time, and a stay in the bad state lasts 1 / r packets on average.
+ */
+public class GilbertElliottLoss implements LossModel {
+
+    private final RandomStream rand;
+    private final double p;             // good to bad
+    private final double r;             // bad to good
+    private final double goodHit;       // probability of a hit in the good state
+    private final double badHit;        // probability of a hit in the bad state
+    private boolean bad;                // the chain starts in the good state
+
+    public GilbertElliottLoss(RandomStream rand, double p, double r, double goodHit, double badHit) {
+        if (!isProbability(p) || !isProbability(r) || !isProbability(goodHit) || !isProbability(badHit)) {
+            throw new IllegalArgumentException("Gilbert-Elliott parameters must be probabilities");
+        }
+        this.rand = rand;
+        this.p = p;
+        this.r = r;
+        this.goodHit = goodHit;
+        this.badHit = badHit;
+        bad = false;
+    }
+
+    /**
+     * The simple Gilbert model with the given average rate: no hits in the good state, every packet hit in the bad state
+     *
+     * @param rand
+     * @param rate the long-run share of packets hit
+     * @param meanBurst the mean number of packets in a burst of hits (at least 1)
+     * @return the model
+     */
+    public static GilbertElliottLoss withBursts(RandomStream rand, double rate, double meanBurst) {
+        if (rate < 0.0 || rate >= 1.0) {
+            throw new IllegalArgumentException("rate must be at least 0 and less than 1");
+        }
+        if (meanBurst < 1.0) {
+            throw new IllegalArgumentException("mean burst length must be at least 1 packet");
+        }
+        double r = 1.0 / meanBurst;
+        return new GilbertElliottLoss(rand, rate * r / (1.0 - rate), r, 0.0, 1.0);
+    }
+
+    private static boolean isProbability(double x) {
+        return x >= 0.0 && x <= 1.0;
+    }
+
+    @Override
+    public boolean next(double time) {
+        bad = bad ? rand.nextDouble() >= r : rand.nextDouble() < p;
+
+        double hit = bad ? badHit : goodHit;
+        if (hit <= 0.0) {
+            return false;
+        }
+        if (hit >= 1.0) {
+            return true;
+        }
+        return rand.nextDouble() < hit;
+    }
+
+    // the long-run share of packets hit
+    public double getRate() {
+        double badShare = (p + r > 0.0) ? p / (p + r) : 0.0;
+        return badShare * badHit + (1.0 - badShare) * goodHit;
+    }
+
+    @Override
+    public String toString() {
+        return "gilbert:" + p + "," + r + "," + goodHit + "," + badHit;
+    }
+}
@@ -0,0 +1,163 @@
+package transport;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * A fixed-size histogram of positive values with bounded relative error, laid out like HdrHistogram:
+ * values are bucketed by powers of two, and each power of two is split into linear sub-buckets.
+ * Recording a value is a few shifts and an array increment and never allocates.
+ *
+ * Values are recorded in multiples of a unit (e.g. 0.001 time units); anything above the highest trackable value
+ * is counted in the last bucket.
+ */
+public class Histogram {
+
+    private final double unit;                  // the smallest distinguishable value
+    private final long highestTrackable;        // in units
+    private final int subBucketHalfCountMagnitude;
+    private final int subBucketHalfCount;
+    private final long subBucketMask;
+    private final int leadingZeroCountBase;
+    private final long[] counts;
+
+    private long totalCount;
+    private double sum;
+    private double min;
+    private double max;
+
+    /**
+     * @param unit the resolution values are recorded with
+     * @param highestTrackableValue the largest value to be recorded exactly (in the same scale as the values)
+     * @param significantDigits decimal digits of precision kept for every value (1 to 5)
+     */
+    public Histogram(double unit, double highestTrackableValue, int significantDigits) {
+        if (significantDigits < 1 || significantDigits > 5) {
+            throw new IllegalArgumentException("significantDigits must be between 1 and 5");
+        }
+        if (unit <= 0.0 || highestTrackableValue < 2 * unit) {
+            throw new IllegalArgumentException("highestTrackableValue must be at least twice the unit");
+        }
+
+        this.unit = unit;
+        this.highestTrackable = (long) Math.ceil(highestTrackableValue / unit);
+
+        long largestSingleUnitResolution = 2 * (long) Math.pow(10, significantDigits);
+        int subBucketCountMagnitude = 64 - Long.numberOfLeadingZeros(largestSingleUnitResolution - 1);
+        subBucketHalfCountMagnitude = subBucketCountMagnitude - 1;
+        int subBucketCount = 1 << subBucketCountMagnitude;
+        subBucketHalfCount = subBucketCount / 2;
+        subBucketMask = subBucketCount - 1;
+        leadingZeroCountBase = 64 - subBucketHalfCountMagnitude - 1;
+
+        // number of power-of-two buckets needed to cover the highest trackable value
+        int bucketCount = 1;
+        long smallestUntrackable = subBucketCount;
+        while (smallestUntrackable <= highestTrackable) {
+            if (smallestUntrackable > Long.MAX_VALUE / 2) {
+                bucketCount++;
+                break;
+            }
+            smallestUntrackable <<= 1;
+            bucketCount++;
+        }
+
+        counts = new long[(bucketCount + 1) * subBucketHalfCount];
+        reset();
+    }
+
+    public final void reset() {
+        Arrays.fill(counts, 0);
+        totalCount = 0;
+        sum = 0.0;
+        min = Double.NaN;
+        max = Double.NaN;
+    }
+
+    public void record(double value) {
+        long v = (long) (Math.max(value, 0.0) / unit);
+        if (v > highestTrackable) {
+            v = highestTrackable;
+        }
+        counts[countsIndex(v)]++;
+
+        if (totalCount == 0) {
+            min = value;
+            max = value;
+        } else {
+            min = Math.min(min, value);
+            max = Math.max(max, value);
+        }
+        totalCount++;
+        sum += value;
+    }
+
+    private int countsIndex(long value) {
+        int bucketIndex = leadingZeroCountBase - Long.numberOfLeadingZeros(value | subBucketMask);
+        int subBucketIndex = (int) (value >>> bucketIndex);
+        int bucketBaseIndex = (bucketIndex + 1) << subBucketHalfCountMagnitude;
+        return bucketBaseIndex + (subBucketIndex - subBucketHalfCount);
+    }
+
+    // the lowest value (in units) counted at the given index
+    private long valueFromIndex(int index) {
+        int bucketIndex = (index >> subBucketHalfCountMagnitude) - 1;
+        int subBucketIndex = (index & (subBucketHalfCount - 1)) + subBucketHalfCount;
+        if (bucketIndex < 0) {
+            subBucketIndex -= subBucketHalfCount;
+            bucketIndex = 0;
+        }
+        return ((long) subBucketIndex) << bucketIndex;
+    }
+
+    public long getCount() {
+        return totalCount;
+    }
+
+    public double getMean() {
+        return (totalCount == 0) ? Double.NaN : sum / totalCount;
+    }
+
+    public double getMin() {
+        return min;
+    }
+
+    public double getMax() {
+        return max;
+    }
+
+    /**
+     * The value below which the given percentage of the recorded values fall, within the histogram's precision
+     *
+     * @param percentile between 0 and 100
+     * @return the value, or NaN if nothing was recorded
+     */
+    public double getValueAtPercentile(double percentile) {
+        if (totalCount == 0) {
+            return Double.NaN;
+        }
+
+        long target = Math.max(1, (long) Math.ceil(Math.min(percentile, 100.0) / 100.0 * totalCount));
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                // report the middle of the sub-bucket, but never outside of the recorded range
+                long low = valueFromIndex(i);
+                long width = (i + 1 < counts.length) ? Math.max(1, valueFromIndex(i + 1) - low) : 1;
+                double value = (low + width / 2.0) * unit;
+                return Math.max(min, Math.min(max, value));
+            }
+        }
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        if (totalCount == 0) {
+            return "count: 0";
+        }
+        return String.format(Locale.ROOT, "count: %d  mean: %.3f  min: %.3f  p50: %.3f  p90: %.3f  p99: %.3f  max: %.3f",
+                totalCount, getMean(), min, getValueAtPercentile(50), getValueAtPercentile(90), getValueAtPercentile(99), max);
+    }
+}
@@ -1,27 +1,35 @@
 package transport;
 
+import java.nio.charset.StandardCharsets;
+
 /**
  * The unit of data passed by the application layer to the transport protocol (the layer students implement)
+ * The data is a byte array; a Packet made from a Message shares the array rather than copying it, so it must not be modified once sent.
+ * The simulator passes the same Message object to output() every time it sends the same letter, so neither may be modified.
  */
 public class Message {
 
-    private String data; // application level data
+    private byte[] data; // application level data
 
-    public Message(String inputData) {
+    public Message(byte[] inputData) {
         data = inputData;
     }
 
-    public String getData() {
+    public Message(String inputData) {
+        this(inputData.getBytes(StandardCharsets.ISO_8859_1));
+    }
+
+    public byte[] getData() {
         return data;
     }
 
-    public void setData(String data) {
+    public void setData(byte[] data) {
         this.data = data;
     }
 
     @Override
     public String toString() {
-        return data;
+        return new String(data, StandardCharsets.ISO_8859_1);
     }
 
 }
@@ -0,0 +1,331 @@
+package transport;
+
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Counters and histograms collected by the simulator during a run.
+ * They are fed by udtSend, deliverData and the dispatch of timer interrupts and ACKs, and can be read once runSimulator() returns.
+ * With several flows they add up every flow (see Flow for each flow's own counters), except for the window and send queue
+ * occupancy series, which follow the first flow's sender.
+ */
+public class Metrics {
+
+    // histogram resolution and range, in simulated time units
+    private static final double TIME_UNIT = 0.001;
+    private static final double MAX_TRACKED_TIME = 1.0e6;
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    private long packetsSent;           // every packet passed to udtSend, by either host
+    private long dataPacketsSent;       // packets sent by the senders
+    private long retransmissions;       // packets sent by the senders while handling a timer interrupt
+    private long packetsLost;
+    private long packetsCorrupted;
+    private long corruptionsUndetected; // corrupted packets that arrived with a checksum matching their contents
+    private long packetsArrived;        // packets the network handed to a host (including corrupted ones)
+    private long acksReceived;          // packets that arrived at the senders
+    private long duplicateAcks;         // uncorrupted ACKs acknowledging the same number as the previous one of their flow
+    private long timeouts;              // timer interrupts handled by the senders
+    private long messagesDelivered;     // messages passed up to the receiving application
+    private double lastDeliveryTime;    // when the last message was delivered
+
+    private final Histogram deliveryLatency = new Histogram(TIME_UNIT, MAX_TRACKED_TIME, SIGNIFICANT_DIGITS);   // first transmission to delivery
+    private final Histogram rtt = new Histogram(TIME_UNIT, MAX_TRACKED_TIME, SIGNIFICANT_DIGITS);               // data packet sent to its ACK received
+
+    // the most points kept of the window series: past it, every other point is dropped and only every other change is kept from then on
+    static final int MAX_WINDOW_POINTS = 4096;
+
+    // the sender's window over time, as reported by NetworkHost.reportWindow (the first flow's sender, if there are several):
+    // one point every windowStride changes, and the exact time-weighted sum of all of them for the mean
+    private double[] windowTimes = new double[16];
+    private double[] windowSizes = new double[16];
+    private int windowPoints;
+    private int windowStride = 1;
+    private int windowChanges;
+    private double maxWindow;
+    private double window;              // the current window, since windowChangeTime
+    private double windowChangeTime;
+    private double windowStart;         // when the window was first reported
+    private double windowArea;          // integral of the window over time from windowStart up to windowChangeTime
+
+    // the senders' queues of messages waiting for room in the window (see SendQueue); the occupancy is the first flow's
+    private long messagesRefused;       // messages the application lost because the queue was full
+    private int sendQueueSize;
+    private int maxSendQueueSize;
+    private double sendQueueChangeTime; // when sendQueueSize last changed
+    private double sendQueueArea;       // integral of sendQueueSize over time up to sendQueueChangeTime
+    private final Histogram blockingTime = new Histogram(TIME_UNIT, MAX_TRACKED_TIME, SIGNIFICANT_DIGITS);      // time a queued message waited to be sent
+
+    void packetSent(boolean fromSender, boolean retransmission) {
+        packetsSent++;
+        if (fromSender) {
+            dataPacketsSent++;
+        }
+        if (retransmission) {
+            retransmissions++;
+        }
+    }
+
+    void packetLost() {
+        packetsLost++;
+    }
+
+    void packetCorrupted() {
+        packetsCorrupted++;
+    }
+
+    void corruptionUndetected() {
+        corruptionsUndetected++;
+    }
+
+    void packetArrived() {
+        packetsArrived++;
+    }
+
+    /**
+     * An ACK arrived at a sender
+     *
+     * @param corrupted whether the network corrupted it
+     * @param duplicate whether it acknowledges the same number as the previous uncorrupted ACK of its flow (see Flow)
+     * @param sampleRtt the time since the packet it acknowledges was sent, or a negative value if there is no valid sample
+     */
+    void ackReceived(boolean corrupted, boolean duplicate, double sampleRtt) {
+        acksReceived++;
+        if (corrupted) {
+            return;
+        }
+
+        if (duplicate) {
+            duplicateAcks++;
+        }
+
+        if (sampleRtt >= 0.0) {
+            rtt.record(sampleRtt);
+        }
+    }
+
+    void timeout() {
+        timeouts++;
+    }
+
+    void messageDelivered(double time, double latency) {
+        messagesDelivered++;
+        lastDeliveryTime = time;
+        if (latency >= 0.0) {
+            deliveryLatency.record(latency);
+        }
+    }
+
+    void windowChanged(double time, double window) {
+        if (windowChanges > 0 && this.window == window) {
+            return;
+        }
+
+        if (windowChanges == 0) {
+            windowStart = time;
+        } else {
+            windowArea += this.window * (time - windowChangeTime);
+        }
+        this.window = window;
+        windowChangeTime = time;
+        maxWindow = Math.max(maxWindow, window);
+
+        if (windowChanges % windowStride == 0) {
+            if (windowPoints == MAX_WINDOW_POINTS) {
+                // the points kept are changes 0, 2 * windowStride, 4 * windowStride... and this one is the next of them
+                for (int i = 0; i < MAX_WINDOW_POINTS / 2; i++) {
+                    windowTimes[i] = windowTimes[2 * i];
+                    windowSizes[i] = windowSizes[2 * i];
+                }
+                windowPoints = MAX_WINDOW_POINTS / 2;
+                windowStride *= 2;
+            } else if (windowPoints == windowTimes.length) {
+                windowTimes = Arrays.copyOf(windowTimes, windowPoints * 2);
+                windowSizes = Arrays.copyOf(windowSizes, windowPoints * 2);
+            }
+            windowTimes[windowPoints] = time;
+            windowSizes[windowPoints] = window;
+            windowPoints++;
+        }
+        windowChanges++;
+    }
+
+    void sendQueueChanged(double time, int size) {
+        sendQueueArea += sendQueueSize * (time - sendQueueChangeTime);
+        sendQueueChangeTime = time;
+        sendQueueSize = size;
+        maxSendQueueSize = Math.max(maxSendQueueSize, size);
+    }
+
+    void messageUnblocked(double waited) {
+        blockingTime.record(waited);
+    }
+
+    void messageRefused() {
+        messagesRefused++;
+    }
+
+    public long getPacketsSent() {
+        return packetsSent;
+    }
+
+    public long getDataPacketsSent() {
+        return dataPacketsSent;
+    }
+
+    public long getRetransmissions() {
+        return retransmissions;
+    }
+
+    // retransmissions per data packet sent
+    public double getRetransmissionRatio() {
+        return (dataPacketsSent > 0) ? (double) retransmissions / dataPacketsSent : 0.0;
+    }
+
+    public long getPacketsLost() {
+        return packetsLost;
+    }
+
+    public long getPacketsCorrupted() {
+        return packetsCorrupted;
+    }
+
+    public long getCorruptionsUndetected() {
+        return corruptionsUndetected;
+    }
+
+    public long getPacketsArrived() {
+        return packetsArrived;
+    }
+
+    public long getAcksReceived() {
+        return acksReceived;
+    }
+
+    public long getDuplicateAcks() {
+        return duplicateAcks;
+    }
+
+    public long getTimeouts() {
+        return timeouts;
+    }
+
+    public long getMessagesDelivered() {
+        return messagesDelivered;
+    }
+
+    public double getLastDeliveryTime() {
+        return lastDeliveryTime;
+    }
+
+    public Histogram getDeliveryLatency() {
+        return deliveryLatency;
+    }
+
+    public Histogram getRtt() {
+        return rtt;
+    }
+
+    // the number of times the sender reported a new window (0 if it never reported it)
+    public int getWindowChanges() {
+        return windowChanges;
+    }
+
+    // the number of points in the window series, at most MAX_WINDOW_POINTS
+    public int getWindowPoints() {
+        return windowPoints;
+    }
+
+    public double getMaxWindow() {
+        return maxWindow;
+    }
+
+    /**
+     * The sender's window averaged over time, from its first report to the end of the run
+     *
+     * @param duration the simulated time the run took
+     * @return the time-weighted mean window, 0 if the sender never reported its window
+     */
+    public double getMeanWindow(double duration) {
+        if (windowChanges == 0) {
+            return 0.0;
+        }
+
+        double area = windowArea + window * (duration - windowChangeTime);
+        double span = duration - windowStart;
+        return (span > 0.0) ? area / span : window;
+    }
+
+    public long getMessagesRefused() {
+        return messagesRefused;
+    }
+
+    public int getMaxSendQueueSize() {
+        return maxSendQueueSize;
+    }
+
+    /**
+     * The number of messages in the sender's queue, averaged over the run
+     *
+     * @param duration the simulated time the run took
+     * @return the time-weighted mean occupancy, 0 if no time has passed
+     */
+    public double getMeanSendQueueSize(double duration) {
+        if (duration <= 0.0) {
+            return 0.0;
+        }
+        return (sendQueueArea + sendQueueSize * Math.max(0.0, duration - sendQueueChangeTime)) / duration;
+    }
+
+    // how long queued messages waited before being sent (messages sent at once are not recorded)
+    public Histogram getBlockingTime() {
+        return blockingTime;
+    }
+
+    // writes the window series as CSV: one "time,window" row per point, i.e. per change unless the run had more than MAX_WINDOW_POINTS
+    public void writeWindowSeries(Writer out) {
+        PrintWriter csv = new PrintWriter(out);
+
+        csv.println("time,window");
+        for (int i = 0; i < windowPoints; i++) {
+            csv.println(String.format(Locale.ROOT, "%.6f,%s", windowTimes[i], windowSizes[i]));
+        }
+        csv.flush();
+    }
+
+    /**
+     * Application data delivered per unit of simulated time
+     *
+     * @param duration the simulated time the run took
+     * @return bytes delivered per time unit, 0 if no time has passed
+     */
+    public double getGoodput(double duration) {
+        return (duration > 0.0) ? messagesDelivered * NetworkSimulator.MAXDATASIZE / duration : 0.0;
+    }
+
+    /**
+     * A multi-line report of the run
+     *
+     * @param duration the simulated time the run took
+     * @return
+     */
+    public String summary(double duration) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(String.format(Locale.ROOT, "messages delivered: %d  goodput: %.4f bytes/time unit%n", messagesDelivered, getGoodput(duration)));
+        sb.append(String.format(Locale.ROOT, "packets sent: %d (data: %d, retransmitted: %d, ratio %.4f)  lost: %d  corrupted: %d (undetected: %d)  arrived: %d%n",
+                packetsSent, dataPacketsSent, retransmissions, getRetransmissionRatio(), packetsLost, packetsCorrupted, corruptionsUndetected, packetsArrived));
+        sb.append(String.format(Locale.ROOT, "ACKs received: %d  duplicate ACKs: %d  timeouts: %d%n", acksReceived, duplicateAcks, timeouts));
+        sb.append("delivery latency: ").append(deliveryLatency).append(String.format("%n"));
+        sb.append("RTT: ").append(rtt);
+        if (windowChanges > 0) {
+            sb.append(String.format(Locale.ROOT, "%nwindow: mean %.3f  max %s  changes: %d", getMeanWindow(duration), maxWindow, windowChanges));
+        }
+        if (maxSendQueueSize > 0 || messagesRefused > 0) {
+            sb.append(String.format(Locale.ROOT, "%nsend queue: mean %.3f  max %d  refused: %d", getMeanSendQueueSize(duration), maxSendQueueSize, messagesRefused));
+            sb.append(String.format("%nblocking time: ")).append(blockingTime);
+        }
+        return sb.toString();
+    }
+}
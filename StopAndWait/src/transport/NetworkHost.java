@@ -1,10 +1,16 @@
 package transport;
 
+import java.nio.charset.StandardCharsets;
+
 public class NetworkHost {
 
     public static final int MAXDATASIZE = 20;   // This constant controls the maximum size of the buffer in a Message and in a Packet
 
-    private final int entity;                   // can be A or B; i.e. the sender or the receiver
+    private final int entity;                   // can be A or B; i.e. the sender or the receiver (or those of another flow, see Flow)
+
+    private NetworkSimulator simulator;         // the simulation this host takes part in
+
+    private final TimerHandle timer;            // the timer driven by startTimer(double) and stopTimer()
 
     // Default versions of methods to implement. 
     public void init() {
@@ -23,112 +29,267 @@ public class NetworkHost {
         throw new UnsupportedOperationException("TimerInterupt method called for entity " + entity + " but not implemented.");
     }
 
+    // Called when any timer of this host expires. Hosts using several timers (see createTimer) override it to tell them apart;
+    // by default every expiry goes to timerInterrupt().
+    public void timerInterrupt(TimerHandle expired) {
+        timerInterrupt();
+    }
+
     // initialise NetworkHost to either A or B - the sender or the receiver
     public NetworkHost(int entityName) {
         entity = entityName;
+        timer = new TimerHandle(entityName, 0);
+    }
+
+    // attach this host to the simulation it runs in; called by the NetworkSimulator before init()
+    void setSimulator(NetworkSimulator simulator) {
+        this.simulator = simulator;
+    }
+
+    // the simulation this host runs in; use it (rather than a global) for the current time
+    protected NetworkSimulator getSimulator() {
+        return simulator;
+    }
+
+    public int getEntity() {
+        return entity;
     }
 
     // Start the timer for this NetworkHost (A or B)
-    // Only a single timer is supported for each NetworkHost
-    // Attempting to start a second timer will result in just removing and adding the same timer in the EventList
+    // This is the host's default timer; use createTimer() for more than one
+    // Attempting to start it while it is running leaves its expiry time unchanged
     public void startTimer(double increment) {
-        System.out.println("startTimer: starting timer at " + NetworkSimulator.getInstance().getTime());
-        
-        Event t = NetworkSimulator.getInstance().getEventList().removeTimer(entity);
+        Trace trace = simulator.getTrace();
+        if (trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("startTimer: starting timer at " + simulator.getTime());
+        }
 
-        if (t != null) {
-            System.out.println("startTimer: Warning: Attempting to start a timer that is already running");
-            NetworkSimulator.getInstance().getEventList().add(t);
+        if (timer.isPending()) {
+            if (trace.isEnabled(TraceLevel.EVENT)) {
+                trace.println("startTimer: Warning: Attempting to start a timer that is already running");
+            }
+            // re-queue the running timer at its original time
+            simulator.getEventList().startTimer(timer, timer.getExpiry());
         } else {
-            Event timer = new Event(NetworkSimulator.getInstance().getTime() + increment, EventType.TIMERINTERRUPT, entity);
-            NetworkSimulator.getInstance().getEventList().add(timer);
+            simulator.getEventList().startTimer(timer, simulator.getTime() + increment);
         }
     }
     
     // Stop the timer for this NetworkHost (A or B)
     public void stopTimer() {
-        System.out.println("stopTimer: stopping timer at " + NetworkSimulator.getInstance().getTime());
+        Trace trace = simulator.getTrace();
+        if (trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("stopTimer: stopping timer at " + simulator.getTime());
+        }
 
-        Event timer = NetworkSimulator.getInstance().getEventList().removeTimer(entity);
-        if (timer == null) {
-            System.out.println("stopTimer: Warning: Unable to cancel your timer, which is not set.");
+        if (!simulator.getEventList().stopTimer(timer) && trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("stopTimer: Warning: Unable to cancel your timer, which is not set.");
         }
     }
 
+    // Create an additional timer for this NetworkHost. The id is for the host's own use (e.g. the sequence number the timer guards)
+    // and can be read back from the handle passed to timerInterrupt(TimerHandle).
+    protected TimerHandle createTimer(int id) {
+        return new TimerHandle(entity, id);
+    }
+
+    // Start a timer created with createTimer() to expire "increment" time units from now; a running timer is restarted
+    protected void startTimer(TimerHandle t, double increment) {
+        simulator.getEventList().startTimer(t, simulator.getTime() + increment);
+    }
+
+    // Stop a timer created with createTimer(); stopping a timer that is not running does nothing
+    protected void stopTimer(TimerHandle t) {
+        simulator.getEventList().stopTimer(t);
+    }
+
+    // Create the queue a sender keeps the messages it cannot send yet in; its capacity is the simulator's send queue capacity
+    protected SendQueue createSendQueue() {
+        return new SendQueue(simulator, simulator.getSendQueueCapacity(), entity == NetworkSimulator.A);
+    }
+
+    // Record the sender's current window size (in packets) for the window-over-time metrics; call it whenever the window changes
+    // (the metrics follow the first flow's sender, so other senders' reports are ignored)
+    protected void reportWindow(double window) {
+        if (entity == NetworkSimulator.A) {
+            simulator.getMetrics().windowChanged(simulator.getTime(), window);
+        }
+    }
+
+    // The checksum of the packet's header (except the checksum field) and payload, with the algorithm selected for the simulation.
+    // Store it with setChecksum() before sending, and compare it with getChecksum() on arrival to detect corruption.
+    public int computeChecksum(Packet packet) {
+        return simulator.getChecksum().compute(packet);
+    }
+
+    // Create a packet as new Packet(seq, ack, check, payload) would, reusing one from the simulator's pool. It is the host's until
+    // it hands it back with releasePacket(). udtSend() sends a copy, so a packet can be released as soon as it will not be resent.
+    protected Packet createPacket(int seq, int ack, int check, byte[] payload) {
+        return simulator.createPacket(seq, ack, check, payload);
+    }
+
+    // Create a packet with an empty payload (e.g. an ACK), as new Packet(seq, ack, check) would
+    protected Packet createPacket(int seq, int ack, int check) {
+        return simulator.createPacket(seq, ack, check, Packet.EMPTY);
+    }
+
+    // Hand back a packet made by createPacket(); it must not be used afterwards
+    protected void releasePacket(Packet p) {
+        simulator.releasePacket(p);
+    }
+
     protected final void udtSend(Packet p) {
-        int destination;
         double arrivalTime;
         
         // Use a copy of the supplied packet at this method may corrupt its data.
         // We want to keep the original copy for retransmission purposes
-        Packet packet = new Packet(p);
-
-        System.out.println("udtSend: " + packet);
-
-        // Set destination to be the 'other side' of the network; B if we are A or vice versa.
-        switch (entity) {
-            case NetworkSimulator.A:
-                destination = NetworkSimulator.B;
-                break;
-            case NetworkSimulator.B:
-                destination = NetworkSimulator.A;
-                break;
-            default:
-                System.out.println("udtSend: Warning: invalid packet sender");
-                return;
+        // (the copy shares the payload array; corruption is kept as an overlay on the copy)
+        // The copy comes from the simulator's pool and goes back to it once it has arrived or been lost
+        Packet packet = simulator.copyPacket(p);
+
+        Trace trace = simulator.getTrace();
+        if (trace.isEnabled(TraceLevel.PACKET)) {
+            trace.println("udtSend: " + packet);
         }
 
-        // Simulate losses by doing nothing
-        if (NetworkSimulator.getInstance().getRand().nextDouble() < NetworkSimulator.getInstance().getLossProb()) {
-            System.out.println("udtSend: simulating packet being lost");
+        // The destination is the 'other side' of this host's flow; B if we are A or vice versa.
+        RoutingTable.Route route = simulator.getRoutes().lookup(entity);
+        if (route == null) {
+            if (trace.isEnabled(TraceLevel.SUMMARY)) {
+                trace.println("udtSend: Warning: invalid packet sender");
+            }
+            simulator.releasePacket(packet);
             return;
         }
+        int destination = route.getDestination();
 
-        // Simulate corruption
-        if (NetworkSimulator.getInstance().getRand().nextDouble() < NetworkSimulator.getInstance().getCorruptProb()) {
-            System.out.println("udtSend: packet being corrupted");
+        // A packet that was passed to udtSend before (e.g. fast retransmitted), or sent while handling this host's own timer interrupt,
+        // is a retransmission
+        Event current = simulator.getCurrentEvent();
+        boolean retransmission = p.firstSent >= 0.0
+                || (current != null && current.getType() == EventType.TIMERINTERRUPT && current.getEntity() == entity);
+        simulator.getMetrics().packetSent(route.isSender(), retransmission);
+        route.getFlow().packetSent(route.isSender(), retransmission);
 
-            double x = NetworkSimulator.getInstance().getRand().nextDouble();
-            if (x < 0.75) {
-                // corrupt the payload - by changing the first character
-                String payload = packet.getPayload();
+        // Stamp the packet for the latency and RTT metrics. A packet sent while handling an arrival echoes the send time of the arrived packet.
+        if (p.firstSent < 0.0) {
+            p.firstSent = simulator.getTime();
+        }
+        packet.firstSent = p.firstSent;
+        packet.sent = simulator.getTime();
+        packet.retransmitted = retransmission;
+        if (current != null && current.getType() == EventType.FROMNETWORK && current.getEntity() == entity && current.getPacket() != null) {
+            packet.echoSent = current.getPacket().sent;
+            packet.echoRetransmitted = current.getPacket().retransmitted;
+        }
 
-                if (payload.length() < 2) {
-                    payload = "=";
-                } else {
-                    //payload = "?" + payload.substring(payload.length() - 1);
-                    payload = "=" + payload.substring(1);
+        // Over real datagrams, the packet is handed to the transport and impaired on the way (see LoopbackNetwork)
+        PacketTransport transport = simulator.getTransport();
+        if (transport != null) {
+            transport.send(entity, destination, packet);
+            return;
+        }
 
+        // When the network is modelled with links, the packet waits for its direction's link (which every flow shares) in the
+        // router queue, and is dropped if the queue has no room for it
+        double linkArrival = -1.0;
+        Link link = route.getLink();
+        if (link != null) {
+            linkArrival = link.transmit(simulator.getTime(), packet.getSize());
+            if (linkArrival < 0.0) {
+                if (trace.isEnabled(TraceLevel.PACKET)) {
+                    trace.println("udtSend: router queue dropped the packet");
                 }
-                packet.setPayload(payload);
-            } else if (x < 0.875) {
-                // corrupt the sequence number
-                packet.setSeqnum(Math.abs(NetworkSimulator.getInstance().getRand().nextInt()));
-            } else {
-                // corrupt the acknowledgment number
-                packet.setAcknum(Math.abs(NetworkSimulator.getInstance().getRand().nextInt()));
+                simulator.getMetrics().packetLost();
+                route.getFlow().packetDropped();
+                EventTraceWriter eventTrace = simulator.getEventTrace();
+                if (eventTrace != null) {
+                    eventTrace.recordLoss(simulator.getTime(), destination, packet);
+                }
+                simulator.releasePacket(packet);
+                return;
             }
         }
 
-        // Decide when the packet will arrive.  Since the medium cannot reorder, the packet will arrive 1 to 10 time units after the last packet sent by this sender
-        arrivalTime = NetworkSimulator.getInstance().getEventList().getLastPacketTime(destination);
+        // What the channel does to the packet: drawn now, or replayed from an earlier run (see ChannelReplay)
+        ChannelDecision decision = simulator.decideChannel(route, simulator.getTime(), link == null);
+
+        // Simulate losses by doing nothing
+        if (decision.isLost()) {
+            if (trace.isEnabled(TraceLevel.PACKET)) {
+                trace.println("udtSend: simulating packet being lost");
+            }
+            simulator.getMetrics().packetLost();
+            EventTraceWriter eventTrace = simulator.getEventTrace();
+            if (eventTrace != null) {
+                eventTrace.recordLoss(simulator.getTime(), destination, packet);
+            }
+            simulator.releasePacket(packet);
+            return;
+        }
 
-        if (arrivalTime <= 0.0) {
-            arrivalTime = NetworkSimulator.getInstance().getTime();
+        // Simulate corruption
+        boolean corrupted = false;
+        if (decision.isCorrupted()) {
+            if (trace.isEnabled(TraceLevel.PACKET)) {
+                trace.println("udtSend: packet being corrupted");
+            }
+            corrupted = true;
+            simulator.getMetrics().packetCorrupted();
+            ChannelModel.applyCorruption(decision, packet);
         }
 
-        //arrivalTime = arrivalTime + 1.0 + (rand.nextDouble() * 19.0);
-        arrivalTime = arrivalTime + 1.0 + Math.abs(5.0 * NetworkSimulator.getInstance().getRand().nextGaussian() + 9.0);
+        if (link != null) {
+            // the link decided it: the wait in the router queue, the serialization of packet.getSize() bytes at the link's bandwidth,
+            // and the link's propagation delay
+            arrivalTime = linkArrival;
+        } else {
+            // Decide when the packet will arrive.  Since the medium cannot reorder, the packet arrives after the last packet in flight
+            // to the same destination (or now, if there is none), plus 1 time unit and the channel's random delay sample
+            // (see ChannelModel.nextDelay), i.e. max(tail, now) + 1 + delay
+            arrivalTime = simulator.getEventList().getLastPacketTime(destination);
+
+            // nothing is in flight towards the destination, so start from the current time
+            if (arrivalTime < simulator.getTime()) {
+                arrivalTime = simulator.getTime();
+            }
+
+            arrivalTime = arrivalTime + 1.0 + decision.getDelay();
+        }
 
         // Finally, create and schedule this event
-        System.out.println("udtSend: Scheduling arrival on other side");
+        if (trace.isEnabled(TraceLevel.PACKET)) {
+            trace.println("udtSend: Scheduling arrival on other side");
+        }
         
-        Event arrival = new Event(arrivalTime, EventType.FROMNETWORK, destination, packet);
-        NetworkSimulator.getInstance().getEventList().add(arrival);
+        Event arrival = simulator.getEventList().createEvent(arrivalTime, EventType.FROMNETWORK, destination, packet);
+        arrival.setCorrupted(corrupted);
+        simulator.getEventList().add(arrival);
+    }
+
+    public void deliverData(byte[] dataSent) {
+        // latency from the first transmission of the packet being handled
+        Event current = simulator.getCurrentEvent();
+        double firstSent = -1.0;
+        if (current != null && current.getType() == EventType.FROMNETWORK && current.getPacket() != null) {
+            firstSent = current.getPacket().firstSent;
+        }
+        deliverData(dataSent, firstSent);
     }
 
-    public void deliverData(String dataSent) {
-        System.out.print("deliverData: data received at " + entity + ":");
-        System.out.println(dataSent);
+    // for a receiver that delivers data it buffered from earlier packets: "firstSent" is the firstSent of the packet that carried
+    // "dataSent" (negative if unknown), as the packet being handled is not that one
+    void deliverData(byte[] dataSent, double firstSent) {
+        double latency = firstSent >= 0.0 ? simulator.getTime() - firstSent : -1.0;
+        simulator.getMetrics().messageDelivered(simulator.getTime(), latency);
+        RoutingTable.Route route = simulator.getRoutes().lookup(entity);
+        if (route != null) {
+            route.getFlow().messageDelivered(simulator.getTime(), latency);
+        }
+
+        Trace trace = simulator.getTrace();
+        if (trace.isEnabled(TraceLevel.PACKET)) {
+            trace.println("deliverData: data received at " + entity + ":" + new String(dataSent, StandardCharsets.ISO_8859_1));
+        }
     }
 }
@@ -1,56 +1,101 @@
 package transport;
 
-import java.util.Random;
+import java.util.Arrays;
+import java.util.Locale;
 
 public class NetworkSimulator {
 
     // This constant controls the maximum size of the buffer in a Message and in a Packet
     public static final int MAXDATASIZE = 20;
 
-    // These constants represent our sender (A) and receiver (B)
+    // These constants represent our sender (A) and receiver (B), i.e. the hosts of the first flow
+    // Flow i has the sender A + i and the receiver B + i (see senderEntity and receiverEntity)
     public static final int A = 12345;
     public static final int B = 67890;
 
-    // The simulator supports only a single sender host (A)
-    private Sender sender;
-    
-    // The simulator supports only a single receiver host (B)
-    private Receiver receiver;
-
-    private int maxMessages;            // the maximum number of messages the sender application is allowed to send
+    // The most flows a simulation can have, so that senders and receivers never share an entity
+    public static final int MAX_FLOWS = B - A;
+
+    // The number of messages a sender can hold back while it waits for an ACK, unless setSendQueueCapacity() is called
+    public static final int DEFAULT_SEND_QUEUE_CAPACITY = 256;
+
+    // The link parameters used unless setLink() and setRouterQueue() are called (the bandwidth has no default: see setLink)
+    public static final double DEFAULT_PROPAGATION_DELAY = 5.0;
+    public static final int DEFAULT_ROUTER_QUEUE_CAPACITY = 32;
+
+    // The ARQ protocol the hosts implement
+    private Protocol protocol = Protocol.DEFAULT;
+
+    // Configuration read by the senders in init()
+    private int sendQueueCapacity = DEFAULT_SEND_QUEUE_CAPACITY;    // the capacity of the senders' SendQueue
+    private ChecksumType checksumType = ChecksumType.CRC32C;        // the checksum hosts protect their packets with
+
+    // Configuration read by initSimulator()
+    private int flowCount = 1;                      // the number of sender/receiver pairs
+    private double bandwidth = 0.0;                 // bytes per time unit of the links between the hosts (0 if they are not modelled)
+    private double propagationDelay = DEFAULT_PROPAGATION_DELAY;
+    private int routerQueueCapacity = DEFAULT_ROUTER_QUEUE_CAPACITY;   // packets that can wait for a link
+    private QueueType queueType = QueueType.DROP_TAIL;
+    private String forwardLossModel;                // LossModel specs for each direction; null for the loss (or corruption) probability
+    private String reverseLossModel;
+    private String forwardCorruptionModel;
+    private String reverseCorruptionModel;
+
+    // The sender/receiver pairs, the routes between their hosts and the links they share in each direction (null if not modelled)
+    private Flow[] flows;
+    private RoutingTable routes;
+    private Link forwardLink;           // carries the senders' packets
+    private Link reverseLink;           // carries the receivers' packets
+
+    private int maxMessages;            // the maximum number of messages each sender application is allowed to send
     
     private double lossProb;            // the probability that a packet will be "lost"
     private double corruptProb;         // the probability that a packet will be "corrupted"
     
     private double avgMessageDelay;     // the average message delay between messages sent by the application at the sender side
         
-    private Random rand;                // A random number generator
-
-    private int nMsgSim;                // number of simulated messages
+    private long seed;                  // every random decision is drawn from a RandomStream derived from it
+    private ChannelModel channel;       // loses, corrupts and delays the packets
+    private ChannelRecorder channelRecorder;    // records the channel's decisions (can be null)
+    private ChannelReplay channelReplay;        // replays recorded decisions instead of drawing them (can be null)
+    private final ChannelDecision decision = new ChannelDecision();    // the decisions for the packet udtSend is sending
+    private PacketTransport transport;  // where udtSend hands packets to when they are sent for real (null to simulate the network)
+
+    private int nMsgSim;                // number of simulated messages, over all flows
     private double time;                // the simulated time
     
     private EventList eventList;        // The list of events that the simulator needs to process
 
-    // NetworkSimulator is a Singleton Class. It can only be instantiated once, through the getInstance() method.
-    // Accessing members of the NetworkSimulator class (from any other class) is done through calling getInstance().
-    private static NetworkSimulator instance = null;
-
-    private NetworkSimulator() {
-        // Exists only to defeat instantiation.
-        // It is private and can only be called by getIstance() below
+    private Trace trace = new Trace(TraceLevel.PACKET, new ConsoleTraceSink());    // where the simulator reports what it does
+    private EventTraceWriter eventTrace;    // binary record of every processed event (can be null)
+    private long nEvents;               // number of events processed
+    private Event current;              // the event being processed
+    private Metrics metrics;            // counters collected during the run
+    private PacketChecksum checksum;    // computes checksumType for both hosts
+
+    // The simulation loop reuses its objects rather than allocating new ones for every event. Ownership rules:
+    //  - an Event belongs to the EventList from add() until removeNext() returns it, and is released once it has been processed:
+    //    the Event returned by getCurrentEvent() must not be kept after the host method that is handling it returns
+    //  - the Packet passed to a host's input() is the simulator's copy and is released when input() returns; keep a copy
+    //    (new Packet(p)) if it is needed later.
+    //  - a Packet a host gets from createPacket() is the host's until it passes it to releasePacket(); packets created with
+    //    new Packet(...) are never pooled
+    //  - the Messages passed to output() are shared (there is one per letter) and must not be modified
+    private ObjectPool<Packet> packetPool;  // the copies udtSend puts in flight
+    private final Message[] messages = new Message[26];     // the application messages, created on first use
+
+    // Each NetworkSimulator instance is an independent simulation: it owns its own clock, random numbers, event list and hosts.
+    // Several instances can run at the same time, each on its own thread.
+    public NetworkSimulator() {
     }
 
-    // the only way to instantiate and, later, get member values of the NetworkSimulation singleton object
-    // Can only instantiate once
-    public static NetworkSimulator getInstance() {
-        if (instance == null) {
-            instance = new NetworkSimulator();
-        }
-        return instance;
+    // initialise the NetworkSimulator, using the default (binary heap) event scheduler
+    public void initSimulator(int maxMsgs, double loss, double corrupt, double delay, long seed) {
+        initSimulator(maxMsgs, loss, corrupt, delay, seed, SchedulerType.HEAP);
     }
 
-    // initialise the NetworkSimulator
-    public void initSimulator(int maxMsgs, double loss, double corrupt, double delay, long seed) {
+    // initialise the NetworkSimulator, using the given implementation to order the event list
+    public void initSimulator(int maxMsgs, double loss, double corrupt, double delay, long seed, SchedulerType scheduler) {
         maxMessages = maxMsgs;
         
         lossProb = loss;
@@ -58,16 +103,43 @@ public class NetworkSimulator {
         
         avgMessageDelay = delay;
 
-        rand = new Random(seed);        // instantiate Random number generator with provided seed
+        this.seed = seed;               // the random streams of every purpose are derived from the provided seed
+        channel = new ChannelModel(seed,
+                createLossModel(forwardLossModel, loss, RandomStream.Purpose.LOSS, true),
+                createLossModel(reverseLossModel, loss, RandomStream.Purpose.LOSS, false),
+                createLossModel(forwardCorruptionModel, corrupt, RandomStream.Purpose.CORRUPTION, true),
+                createLossModel(reverseCorruptionModel, corrupt, RandomStream.Purpose.CORRUPTION, false));
 
         nMsgSim = 0;                    // initialise number of simulated messages to 0
         time = 0.0;                     // initialise simulation time to 0
+        nEvents = 0;
+        current = null;
+        metrics = new Metrics();
+        checksum = checksumType.create();
 
-        eventList = new EventList();    // instantiate event list (initially empty)
+        eventList = new EventList(scheduler);   // instantiate event list (initially empty)
+        packetPool = new ObjectPool<>(() -> new Packet(0, 0, 0));
         
-        sender = new Sender(A);         // initialise sender entity (the respective class)
+        forwardLink = null;
+        reverseLink = null;
+        if (bandwidth > 0.0) {
+            forwardLink = new Link(bandwidth, propagationDelay, routerQueueCapacity,
+                    queueType.create(routerQueueCapacity, RandomStream.create(seed, RandomStream.Purpose.QUEUE, RandomStream.direction(true))));
+            reverseLink = new Link(bandwidth, propagationDelay, routerQueueCapacity,
+                    queueType.create(routerQueueCapacity, RandomStream.create(seed, RandomStream.Purpose.QUEUE, RandomStream.direction(false))));
+        }
+        flows = new Flow[flowCount];
+        routes = new RoutingTable();
+        for (int i = 0; i < flowCount; i++) {
+            NetworkHost sender = protocol.createSender(senderEntity(i));        // initialise sender entity (the respective class)
+            sender.setSimulator(this);
 
-        receiver = new Receiver(B);     // initialise receiver entity (the respective class)
+            NetworkHost receiver = protocol.createReceiver(receiverEntity(i));  // initialise receiver entity (the respective class)
+            receiver.setSimulator(this);
+
+            flows[i] = new Flow(i, sender, receiver, RandomStream.create(seed, RandomStream.Purpose.APPLICATION, i));
+            routes.addFlow(flows[i], forwardLink, reverseLink);
+        }
     }
 
     // The main simulator loop - everything happens here!
@@ -75,13 +147,7 @@ public class NetworkSimulator {
     public void runSimulator() {
         Event next;                     // the next Event to process
 
-        sender.init();                  // Students: You will override this method (defined in the NetworkHost) to initialise your Sender.
-        receiver.init();                // Students: You will override this method (defined in the NetworkHost) to initialise your Receiver.
-
-        // Start the whole thing off by scheduling a new message from the simulated application
-        // Calling this method will add a new FROMAPP Event. 
-        // When this Event is executed, your code will be invoked so that the message can be sent to the Receiver
-        generateNextArrival();
+        start();
 
         // Begin the main simulation loop
         while (true) {
@@ -93,83 +159,214 @@ public class NetworkSimulator {
                 break;
             }
 
-            System.out.println();
-            System.out.print("EVENT time: " + next.getTime());
-            System.out.print("  type: " + next.getType());
-            System.out.println("  entity: " + next.getEntity());
-
-            // Advance the simulator's time to be the scheduled time of the next event
-            time = next.getTime();
-
-            // Perform the appropriate action based on the event 
-            switch (next.getType()) {
-                case TIMERINTERRUPT:
-                    if (next.getEntity() == A) {
-                        sender.timerInterrupt();
-                    } else {
-                        System.out.println("INTERNAL PANIC: Timeout for invalid entity");
-                    }
+            execute(next);
+        }
+
+        finish();
+    }
+
+    // Initialise the hosts and schedule the first message; the start of runSimulator(), also used by loops that run the hosts
+    // over a real network (see LoopbackNetwork)
+    void start() {
+        if (trace.isEnabled(TraceLevel.SUMMARY)) {
+            trace.println("SUMMARY: starting simulation of " + maxMessages + " messages" + ((flows.length > 1) ? " per flow over " + flows.length + " flows" : "")
+                    + ", loss " + lossProb + ", corruption " + corruptProb + ", average delay " + avgMessageDelay);
+            if (forwardLossModel != null || reverseLossModel != null || forwardCorruptionModel != null || reverseCorruptionModel != null) {
+                trace.println("SUMMARY: loss " + channel.getLossModel(true) + " forward, " + channel.getLossModel(false) + " reverse; corruption "
+                        + channel.getCorruptionModel(true) + " forward, " + channel.getCorruptionModel(false) + " reverse");
+            }
+        }
+
+        for (Flow flow : flows) {
+            flow.getSender().init();    // Students: You will override this method (defined in the NetworkHost) to initialise your Sender.
+            flow.getReceiver().init();  // Students: You will override this method (defined in the NetworkHost) to initialise your Receiver.
+        }
+
+        // Start the whole thing off by scheduling a new message from each flow's simulated application
+        // Calling this method will add a new FROMAPP Event. 
+        // When this Event is executed, your code will be invoked so that the message can be sent to the Receiver
+        for (Flow flow : flows) {
+            generateNextArrival(flow);
+        }
+    }
+
+    // Advance the time to an event and process it, then release it (see the ownership rules above)
+    void execute(Event next) {
+        if (trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("");
+            trace.println("EVENT time: " + next.getTime() + "  type: " + next.getType() + "  entity: " + next.getEntity());
+        }
+        nEvents++;
+
+        if (eventTrace != null) {
+            eventTrace.record(next);
+        }
+
+        // Advance the simulator's time to be the scheduled time of the next event
+        time = next.getTime();
+        current = next;
+
+        // The host the event is for, looked up in the routing table
+        RoutingTable.Route route = routes.lookup(next.getEntity());
+
+        // Perform the appropriate action based on the event 
+        switch (next.getType()) {
+            case TIMERINTERRUPT:
+                if (route == null) {
+                    panic("INTERNAL PANIC: Timeout for invalid entity");
                     break;
-                case FROMNETWORK:
-                    switch (next.getEntity()) {
-                        case A:
-                            sender.input(next.getPacket());
-                            break;
-                        case B:
-                            receiver.input(next.getPacket());
-                            break;
-                        default:
-                            System.out.println("INTERNAL PANIC: Packet has " + "arrived for unknown entity");
-                            break;
+                }
+                if (route.isSender()) {
+                    metrics.timeout();
+                    route.getFlow().timeout();
+                }
+                route.getHost().timerInterrupt(next.getTimer());
+                break;
+            case FROMNETWORK:
+                metrics.packetArrived();
+                if (next.isCorrupted() && checksum.compute(next.getPacket()) == next.getPacket().getChecksum()) {
+                    metrics.corruptionUndetected();
+                }
+                if (route == null) {
+                    panic("INTERNAL PANIC: Packet has " + "arrived for unknown entity");
+                } else {
+                    if (route.isSender()) {
+                        ackArrived(next, route.getFlow());
                     }
+                    route.getHost().input(next.getPacket());
+                }
+                if (next.getPacket() != null) {
+                    packetPool.release(next.getPacket());
+                }
+                break;
+            case FROMAPP:                 
+                if (route == null) {
+                    panic("INTERNAL PANIC: Message for invalid entity");
                     break;
-                case FROMAPP:                 
-                    char[] nextMessage = new char[MAXDATASIZE];
+                }
+                Flow flow = route.getFlow();
+
+                // Let the student handle the new message
+                route.getHost().output(nextMessage(flow));
+                
+                // If a message has arrived from sending process, we need to schedule the arrival of the next message
+                // If we've reached the maximum message count, exit the main loop
+                if (flow.getMessagesGenerated() < maxMessages) {
+                    generateNextArrival(flow);
+                } else {
+                    // do not schedule more FROMAPP events from the application layer if we reached the maximum number of messages
+                }
+                
+                break;
+            default:
+                panic("INTERNAL PANIC: Unknown event type");
+        }
 
-                    // Now, let's generate the contents of this message
-                    char j = (char) (((nMsgSim - 1) % 26) + 97);
-                    for (int i = 0; i < MAXDATASIZE; i++) {
-                        nextMessage[i] = j;
-                    }
+        eventList.release(next);
+    }
 
-                    // Let the student handle the new message
-                    sender.output(new Message(new String(nextMessage)));
-                    
-                    // If a message has arrived from sending process, we need to schedule the arrival of the next message
-                    // If we've reached the maximum message count, exit the main loop
-                    if (nMsgSim < maxMessages) {
-                        generateNextArrival();
-                    } else {
-                        // do not schedule more FROMAPP events from the application layer if we reached the maximum number of messages
-                    }
-                    
-                    break;
-                default:
-                    System.out.println("INTERNAL PANIC: Unknown event type");
+    // Report the end of the run
+    void finish() {
+        current = null;
+
+        if (trace.isEnabled(TraceLevel.SUMMARY)) {
+            trace.println("");
+            trace.println("SUMMARY: simulation ended at time " + time + " after " + nEvents + " events and " + nMsgSim + " messages");
+            trace.println(metrics.summary(time));
+            if (flows.length > 1) {
+                trace.println(String.format(Locale.ROOT, "flows: %d  goodput per flow: min %.4f  max %.4f  fairness index: %.4f",
+                        flows.length, getMinFlowGoodput(), getMaxFlowGoodput(), getFairnessIndex()));
+            }
+            if (forwardLink != null) {
+                trace.println("forward link: " + forwardLink.summary(time));
+                trace.println("reverse link: " + reverseLink.summary(time));
             }
+            if (channelReplay != null) {
+                trace.println("channel replay: " + channelReplay.getFile() + "  replayed " + channelReplay.getReplayed() + " of "
+                        + channelReplay.getRecords() + " decisions, " + channelReplay.getExhausted() + " drawn after the recording ran out");
+            }
+        }
+        trace.flush();
+    }
+
+    // feed the ACK metrics; RTT samples are only taken for ACKs of packets that were not retransmitted (Karn's rule)
+    private void ackArrived(Event ack, Flow flow) {
+        Packet p = ack.getPacket();
+        double sampleRtt = -1.0;
+        if (p != null && p.echoSent >= 0.0 && !p.echoRetransmitted) {
+            sampleRtt = time - p.echoSent;
+        }
+        boolean duplicate = !ack.isCorrupted() && p != null && flow.ackReceived(p.getAcknum());
+        metrics.ackReceived(ack.isCorrupted(), duplicate, sampleRtt);
+    }
+
+    // the message a flow's application sends next: MAXDATASIZE copies of one letter, cycling from 'a' to 'z'
+    private Message nextMessage(Flow flow) {
+        int letter = (flow.getMessagesGenerated() - 1) % 26;
+        if (messages[letter] == null) {
+            byte[] data = new byte[MAXDATASIZE];
+            Arrays.fill(data, (byte) (letter + 97));
+            messages[letter] = new Message(data);
         }
+        return messages[letter];
+    }
+
+    // the model a LossModel spec describes, or independent hits with the given probability if there is no spec,
+    // drawing from the stream of its purpose and direction
+    private LossModel createLossModel(String spec, double probability, RandomStream.Purpose purpose, boolean fromSender) {
+        RandomStream rand = RandomStream.create(seed, purpose, RandomStream.direction(fromSender));
+        return (spec == null) ? new BernoulliLoss(rand, probability) : LossModel.parse(spec, rand);
+    }
+
+    // a new packet for a host, taken from the packet pool (see the ownership rules above)
+    Packet createPacket(int seq, int ack, int check, byte[] payload) {
+        Packet p = packetPool.obtain();
+        p.reset(seq, ack, check, payload);
+        return p;
+    }
 
+    // a copy of "p" to put in flight, taken from the packet pool
+    Packet copyPacket(Packet p) {
+        Packet copy = packetPool.obtain();
+        copy.copyFrom(p);
+        return copy;
     }
 
-    // Generate the next arrival and add it to the event list
-    private void generateNextArrival() {
-        System.out.println("generateNextArrival(): called");
+    // hand back a packet taken from the pool
+    void releasePacket(Packet p) {
+        packetPool.release(p);
+    }
+
+    private void panic(String message) {
+        if (trace.isEnabled(TraceLevel.SUMMARY)) {
+            trace.println(message);
+        }
+    }
+
+    // Generate the next arrival at a flow's sender and add it to the event list
+    private void generateNextArrival(Flow flow) {
+        if (trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("generateNextArrival(): called");
+        }
 
         // arrival time 'x' is uniform on [0, 2 * avgMessageDelay] having mean of avgMessageDelay.
-        // rand is used to provide the required uniformness
-        double x = 0.5 * avgMessageDelay + avgMessageDelay * rand.nextDouble();
+        // the flow's own random stream is used to provide the required uniformness
+        double x = 0.5 * avgMessageDelay + avgMessageDelay * flow.getArrivals().nextDouble();
 
         // Instantiate a new FROMAPP Event
-        Event next = new Event(time + x, EventType.FROMAPP, A);
+        Event next = eventList.createEvent(time + x, EventType.FROMAPP, flow.getSender().getEntity(), null);
 
         // Add the newly instantiated Event to the EventList
         eventList.add(next);
         
-        // Increment the message counter
+        // Increment the message counters
+        flow.messageGenerated();
         nMsgSim++;
         
-        System.out.println("generateNextArrival(): time is " + time);
-        System.out.println("generateNextArrival(): future time for " + "event " + next.getType() + " at entity " + next.getEntity() + " will be " + next.getTime());
+        if (trace.isEnabled(TraceLevel.EVENT)) {
+            trace.println("generateNextArrival(): time is " + time);
+            trace.println("generateNextArrival(): future time for " + "event " + next.getType() + " at entity " + next.getEntity() + " will be " + next.getTime());
+        }
 
     }
 
@@ -189,8 +386,192 @@ public class NetworkSimulator {
         return eventList;
     }
 
-    public Random getRand() {
-        return rand;
+    // print the pending events to stdout (useful for debugging)
+    public void printEventList() {
+        System.out.println(eventList);
+    }
+
+    // the seed of this run's random streams (see RandomStream.create)
+    public long getSeed() {
+        return seed;
+    }
+
+    public ChannelModel getChannel() {
+        return channel;
+    }
+
+    /**
+     * Decides what the channel does to the next packet out of a host: replays the recorded decisions if there are any left for
+     * its flow and direction, draws them from the channel otherwise, and records them if a recorder is set
+     *
+     * @param route the route out of the host sending the packet
+     * @param time when the packet is sent
+     * @param delayed whether the random part of the delay is needed (false when a Link decides when the packet arrives)
+     * @return the decisions, valid until the next call
+     */
+    ChannelDecision decideChannel(RoutingTable.Route route, double time, boolean delayed) {
+        boolean fromSender = route.isSender();
+        int flow = route.getFlow().getId();
+        if (channelReplay != null && channelReplay.next(flow, fromSender, decision)) {
+            if (delayed && !decision.lost && !decision.hasDelay()) {
+                // recorded over a Link, which decided the arrival times itself
+                decision.delay = channel.nextDelay(fromSender);
+            }
+        } else {
+            channel.decide(fromSender, time, delayed, decision);
+        }
+        if (channelRecorder != null) {
+            channelRecorder.record(flow, fromSender, decision);
+        }
+        return decision;
+    }
+
+    // the entity of flow i's sender
+    public static int senderEntity(int flow) {
+        return A + flow;
+    }
+
+    // the entity of flow i's receiver
+    public static int receiverEntity(int flow) {
+        return B + flow;
+    }
+
+    /**
+     * Selects how the channel decides which packets are lost in each direction, instead of the loss probability given to
+     * initSimulator(); takes effect at the next initSimulator()
+     *
+     * @param forward the LossModel spec for the packets from the senders to the receivers (see LossModel.parse), null for the loss probability
+     * @param reverse the spec for the packets going back, null for the loss probability
+     */
+    public void setLossModel(String forward, String reverse) {
+        forwardLossModel = forward;
+        reverseLossModel = reverse;
+    }
+
+    // select how the channel decides which packets are corrupted in each direction, as setLossModel() does for losses
+    public void setCorruptionModel(String forward, String reverse) {
+        forwardCorruptionModel = forward;
+        reverseCorruptionModel = reverse;
+    }
+
+    public int getFlowCount() {
+        return flowCount;
+    }
+
+    // set how many sender/receiver pairs the simulation runs, each with its own application sending the same number of messages;
+    // takes effect at the next initSimulator()
+    public void setFlowCount(int flowCount) {
+        if (flowCount < 1 || flowCount > MAX_FLOWS) {
+            throw new IllegalArgumentException("the number of flows must be between 1 and " + MAX_FLOWS);
+        }
+        this.flowCount = flowCount;
+    }
+
+    /**
+     * Models the network as two links, one in each direction, shared by every flow (see Link): a packet waits for the link in a
+     * router queue (see setRouterQueue), takes its size / bandwidth to be transmitted, then propagationDelay to arrive.
+     * This replaces the random delay of the ChannelModel, which still loses and corrupts packets. Takes effect at the next initSimulator().
+     *
+     * @param bandwidth bytes per time unit, 0 to go back to the random delay
+     * @param propagationDelay time units from the end of a transmission to the arrival at the other end
+     */
+    public void setLink(double bandwidth, double propagationDelay) {
+        if (bandwidth < 0.0) {
+            throw new IllegalArgumentException("bandwidth must not be negative");
+        }
+        if (propagationDelay < 0.0) {
+            throw new IllegalArgumentException("propagation delay must not be negative");
+        }
+        this.bandwidth = bandwidth;
+        this.propagationDelay = propagationDelay;
+    }
+
+    // set how many packets can wait for each link and how the queue drops them; takes effect at the next initSimulator()
+    public void setRouterQueue(int capacity, QueueType type) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("queue capacity must not be negative");
+        }
+        this.routerQueueCapacity = capacity;
+        this.queueType = type;
+    }
+
+    public double getBandwidth() {
+        return bandwidth;
+    }
+
+    public double getPropagationDelay() {
+        return propagationDelay;
+    }
+
+    public int getRouterQueueCapacity() {
+        return routerQueueCapacity;
+    }
+
+    public QueueType getQueueType() {
+        return queueType;
+    }
+
+    // the link carrying the senders' packets in this run, or null if the links are not modelled
+    public Link getForwardLink() {
+        return forwardLink;
+    }
+
+    // the link carrying the receivers' packets in this run, or null if the links are not modelled
+    public Link getReverseLink() {
+        return reverseLink;
+    }
+
+    // the flows of this run, indexed by their id
+    public Flow getFlow(int i) {
+        return flows[i];
+    }
+
+    public RoutingTable getRoutes() {
+        return routes;
+    }
+
+    /**
+     * Jain's fairness index of the flows' goodput: 1 when every flow delivered as much as the others, down to 1/n when one flow
+     * got everything
+     *
+     * @return the index, 1 if nothing was delivered
+     */
+    public double getFairnessIndex() {
+        double sum = 0.0;
+        double sumOfSquares = 0.0;
+        for (Flow flow : flows) {
+            double delivered = flow.getMessagesDelivered();
+            sum += delivered;
+            sumOfSquares += delivered * delivered;
+        }
+        return (sumOfSquares > 0.0) ? sum * sum / (flows.length * sumOfSquares) : 1.0;
+    }
+
+    // the smallest goodput of a flow over the run so far
+    public double getMinFlowGoodput() {
+        double min = Double.MAX_VALUE;
+        for (Flow flow : flows) {
+            min = Math.min(min, flow.getGoodput(time));
+        }
+        return min;
+    }
+
+    // the largest goodput of a flow over the run so far
+    public double getMaxFlowGoodput() {
+        double max = 0.0;
+        for (Flow flow : flows) {
+            max = Math.max(max, flow.getGoodput(time));
+        }
+        return max;
+    }
+
+    public PacketTransport getTransport() {
+        return transport;
+    }
+
+    // send the hosts' packets through a real transport instead of the simulated network (null to simulate it again)
+    void setTransport(PacketTransport transport) {
+        this.transport = transport;
     }
 
     public int getnSim() {
@@ -201,4 +582,89 @@ public class NetworkSimulator {
         return time;
     }
 
+    public long getnEvents() {
+        return nEvents;
+    }
+
+    // the event being processed, or null outside of runSimulator()
+    public Event getCurrentEvent() {
+        return current;
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public Protocol getProtocol() {
+        return protocol;
+    }
+
+    // select the protocol the hosts are created with; takes effect at the next initSimulator()
+    public void setProtocol(Protocol protocol) {
+        this.protocol = protocol;
+    }
+
+    public int getSendQueueCapacity() {
+        return sendQueueCapacity;
+    }
+
+    // set how many messages a sender queues while it cannot send (0 refuses them, as if there was no queue);
+    // takes effect at the next runSimulator()
+    public void setSendQueueCapacity(int sendQueueCapacity) {
+        if (sendQueueCapacity < 0) {
+            throw new IllegalArgumentException("send queue capacity must not be negative");
+        }
+        this.sendQueueCapacity = sendQueueCapacity;
+    }
+
+    public ChecksumType getChecksumType() {
+        return checksumType;
+    }
+
+    // select the checksum hosts compute with NetworkHost.computeChecksum(); takes effect at the next initSimulator()
+    public void setChecksumType(ChecksumType checksumType) {
+        this.checksumType = checksumType;
+    }
+
+    // the checksum of this run (see ChecksumType)
+    public PacketChecksum getChecksum() {
+        return checksum;
+    }
+
+    public Trace getTrace() {
+        return trace;
+    }
+
+    public EventTraceWriter getEventTrace() {
+        return eventTrace;
+    }
+
+    // record every processed event into a binary trace (null to stop recording)
+    public void setEventTrace(EventTraceWriter eventTrace) {
+        this.eventTrace = eventTrace;
+    }
+
+    public ChannelRecorder getChannelRecorder() {
+        return channelRecorder;
+    }
+
+    // record every decision the channel makes (null to stop recording); the caller closes it after the run
+    public void setChannelRecorder(ChannelRecorder channelRecorder) {
+        this.channelRecorder = channelRecorder;
+    }
+
+    public ChannelReplay getChannelReplay() {
+        return channelReplay;
+    }
+
+    // replay recorded channel decisions instead of drawing them (null to draw them); a replay can only be used by one run
+    public void setChannelReplay(ChannelReplay channelReplay) {
+        this.channelReplay = channelReplay;
+    }
+
+    // replace the trace the simulator writes to (by default every line goes to System.out)
+    public void setTrace(Trace trace) {
+        this.trace = trace;
+    }
+
 }
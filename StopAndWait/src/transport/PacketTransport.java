@@ -0,0 +1,17 @@
+package transport;
+
+/**
+ * Carries the packets hosts send with udtSend when they run over a real network rather than the simulated one (see LoopbackNetwork).
+ */
+public interface PacketTransport {
+
+    /**
+     * Sends a packet towards a host. The transport owns the packet (a copy taken from the simulator's pool, see
+     * NetworkSimulator.copyPacket) and must hand it back with NetworkSimulator.releasePacket once it has been written out.
+     *
+     * @param source the entity sending it
+     * @param destination the entity it is for
+     * @param packet the copy to send, stamped for the metrics
+     */
+    void send(int source, int destination, Packet packet);
+}
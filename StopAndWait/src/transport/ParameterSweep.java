@@ -0,0 +1,460 @@
+package transport;
+
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Runs the simulator over every combination of a grid of parameters, in parallel, and writes one CSV row per run.
+ * Every run gets its own NetworkSimulator (and so its own random numbers),
+ * so the results do not depend on how many threads are used or on the order the runs finish in.
+ *
+ * Usage: java transport.ParameterSweep [--messages n,...] [--loss p,...] [--corrupt p,...] [--delay d,...]
+ *        [--seed s,... | --seed first..last] [--protocol name,...]
+ *        [--queue n,...] [--flows n,...] [--bandwidth b,...] [--propagation d,...] [--router-queue n,...] [--aqm drop_tail,red]
+ *        [--threads n] [--out file.csv]
+ */
+public class ParameterSweep {
+
+    // One point of the grid
+    public static class Point {
+
+        private final Protocol protocol;
+        private final int messages;
+        private final double loss;
+        private final double corrupt;
+        private final double delay;
+        private final long seed;
+        private final int sendQueueCapacity;
+        private final int flows;
+        private final double bandwidth;         // 0 if the links are not modelled
+        private final double propagationDelay;
+        private final int routerQueue;
+        private final QueueType queueType;
+
+        public Point(Protocol protocol, int messages, double loss, double corrupt, double delay, long seed) {
+            this(protocol, messages, loss, corrupt, delay, seed, NetworkSimulator.DEFAULT_SEND_QUEUE_CAPACITY);
+        }
+
+        public Point(Protocol protocol, int messages, double loss, double corrupt, double delay, long seed,
+                int sendQueueCapacity) {
+            this(protocol, messages, loss, corrupt, delay, seed, sendQueueCapacity, 1, 0.0,
+                    NetworkSimulator.DEFAULT_PROPAGATION_DELAY, NetworkSimulator.DEFAULT_ROUTER_QUEUE_CAPACITY, QueueType.DROP_TAIL);
+        }
+
+        public Point(Protocol protocol, int messages, double loss, double corrupt, double delay, long seed,
+                int sendQueueCapacity, int flows, double bandwidth, double propagationDelay,
+                int routerQueue, QueueType queueType) {
+            this.protocol = protocol;
+            this.messages = messages;
+            this.loss = loss;
+            this.corrupt = corrupt;
+            this.delay = delay;
+            this.seed = seed;
+            this.sendQueueCapacity = sendQueueCapacity;
+            this.flows = flows;
+            this.bandwidth = bandwidth;
+            this.propagationDelay = propagationDelay;
+            this.routerQueue = routerQueue;
+            this.queueType = queueType;
+        }
+
+        public Protocol getProtocol() {
+            return protocol;
+        }
+
+        public int getMessages() {
+            return messages;
+        }
+
+        public double getLoss() {
+            return loss;
+        }
+
+        public double getCorrupt() {
+            return corrupt;
+        }
+
+        public double getDelay() {
+            return delay;
+        }
+
+        public long getSeed() {
+            return seed;
+        }
+
+        public int getSendQueueCapacity() {
+            return sendQueueCapacity;
+        }
+
+        public int getFlows() {
+            return flows;
+        }
+
+        public double getBandwidth() {
+            return bandwidth;
+        }
+
+        public double getPropagationDelay() {
+            return propagationDelay;
+        }
+
+        public int getRouterQueue() {
+            return routerQueue;
+        }
+
+        public QueueType getQueueType() {
+            return queueType;
+        }
+    }
+
+    // The outcome of running the simulator at one point of the grid
+    public static class Result {
+
+        private final Point point;
+        private final Metrics metrics;
+        private final double completionTime;    // simulated time at which the run ended
+        private final long events;
+        private final long wallNanos;           // real time the run took
+        private final double fairnessIndex;     // of the flows' goodput (see NetworkSimulator.getFairnessIndex)
+        private final long linkDrops;           // packets the router queues dropped
+
+        Result(Point point, Metrics metrics, double completionTime, long events, long wallNanos, double fairnessIndex, long linkDrops) {
+            this.point = point;
+            this.metrics = metrics;
+            this.completionTime = completionTime;
+            this.events = events;
+            this.wallNanos = wallNanos;
+            this.fairnessIndex = fairnessIndex;
+            this.linkDrops = linkDrops;
+        }
+
+        public Point getPoint() {
+            return point;
+        }
+
+        public Metrics getMetrics() {
+            return metrics;
+        }
+
+        public double getCompletionTime() {
+            return completionTime;
+        }
+
+        public long getEvents() {
+            return events;
+        }
+
+        public long getWallNanos() {
+            return wallNanos;
+        }
+
+        public double getFairnessIndex() {
+            return fairnessIndex;
+        }
+
+        public long getLinkDrops() {
+            return linkDrops;
+        }
+    }
+
+    public static final String CSV_HEADER = "protocol,messages,loss,corrupt,delay,seed,queue,flows,bandwidth,propagation,"
+            + "router_queue,aqm,delivered,goodput,fairness,link_drops,packets_sent,retransmissions,retransmission_ratio,lost,corrupted,duplicate_acks,timeouts,latency_mean,latency_p99,rtt_mean,rtt_p99,"
+            + "refused,queue_mean,queue_max,blocking_mean,blocking_p99,completion_time,events,wall_ms";
+
+    private final List<Point> points;
+
+    public ParameterSweep(List<Point> points) {
+        this.points = points;
+    }
+
+    // every combination of the given values, with the default send queue
+    public static List<Point> grid(List<Protocol> protocols, List<Integer> messages, List<Double> losses, List<Double> corrupts,
+            List<Double> delays, List<Long> seeds) {
+        return grid(protocols, messages, losses, corrupts, delays, seeds,
+                Collections.singletonList(NetworkSimulator.DEFAULT_SEND_QUEUE_CAPACITY));
+    }
+
+    // every combination of the given values
+    public static List<Point> grid(List<Protocol> protocols, List<Integer> messages, List<Double> losses, List<Double> corrupts,
+            List<Double> delays, List<Long> seeds, List<Integer> sendQueueCapacities) {
+        List<Point> grid = new ArrayList<>();
+
+        for (Protocol protocol : protocols) {
+            for (int n : messages) {
+                for (double loss : losses) {
+                    for (double corrupt : corrupts) {
+                        for (double delay : delays) {
+                            for (long seed : seeds) {
+                                for (int queue : sendQueueCapacities) {
+                                    grid.add(new Point(protocol, n, loss, corrupt, delay, seed, queue));
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    // every combination of the given values, run with every combination of flow counts and links
+    public static List<Point> grid(List<Protocol> protocols, List<Integer> messages, List<Double> losses, List<Double> corrupts,
+            List<Double> delays, List<Long> seeds, List<Integer> sendQueueCapacities, List<Integer> flows, List<Double> bandwidths, List<Double> propagationDelays,
+            List<Integer> routerQueues, List<QueueType> queueTypes) {
+        List<Point> grid = new ArrayList<>();
+
+        for (Point p : grid(protocols, messages, losses, corrupts, delays, seeds, sendQueueCapacities)) {
+            for (int n : flows) {
+                for (double bandwidth : bandwidths) {
+                    for (double propagation : propagationDelays) {
+                        for (int queue : routerQueues) {
+                            for (QueueType type : queueTypes) {
+                                grid.add(new Point(p.getProtocol(), p.getMessages(), p.getLoss(), p.getCorrupt(), p.getDelay(), p.getSeed(),
+                                        p.getSendQueueCapacity(), n, bandwidth, propagation, queue, type));
+                            }
+                        }
+                    }
+                }
+            }
+        }
+
+        return grid;
+    }
+
+    // run a single point of the grid, with tracing off
+    public static Result run(Point point) {
+        long start = System.nanoTime();
+
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.setProtocol(point.getProtocol());
+        simulator.setSendQueueCapacity(point.getSendQueueCapacity());
+        simulator.setFlowCount(point.getFlows());
+        simulator.setLink(point.getBandwidth(), point.getPropagationDelay());
+        simulator.setRouterQueue(point.getRouterQueue(), point.getQueueType());
+        simulator.initSimulator(point.getMessages(), point.getLoss(), point.getCorrupt(), point.getDelay(), point.getSeed());
+        simulator.runSimulator();
+
+        long linkDrops = 0;
+        for (Link link : new Link[] {simulator.getForwardLink(), simulator.getReverseLink()}) {
+            if (link != null) {
+                linkDrops += link.getPacketsDropped() + link.getPacketsDroppedEarly();
+            }
+        }
+        return new Result(point, simulator.getMetrics(), simulator.getTime(), simulator.getnEvents(), System.nanoTime() - start,
+                simulator.getFairnessIndex(), linkDrops);
+    }
+
+    /**
+     * Runs every point of the sweep
+     *
+     * @param threads the number of runs executed at the same time
+     * @return the results, in the same order as the points
+     */
+    public List<Result> run(int threads) {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+
+        try {
+            List<ForkJoinTask<Result>> tasks = new ArrayList<>(points.size());
+            for (Point point : points) {
+                tasks.add(pool.submit(() -> run(point)));
+            }
+
+            List<Result> results = new ArrayList<>(points.size());
+            for (ForkJoinTask<Result> task : tasks) {
+                results.add(task.join());
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    public static void writeCsv(List<Result> results, Writer out) {
+        PrintWriter csv = new PrintWriter(out);
+
+        csv.println(CSV_HEADER);
+        for (Result r : results) {
+            Point p = r.getPoint();
+            Metrics m = r.getMetrics();
+            csv.println(String.format(Locale.ROOT, "%s,%d,%s,%s,%s,%d,%d,%d,%s,%s,%d,%s,%d,%.6f,%.6f,%d,%d,%d,%.6f,%d,%d,%d,%d,%.3f,%.3f,%.3f,%.3f,%d,%.3f,%d,%.3f,%.3f,%.6f,%d,%.3f",
+                    p.getProtocol(), p.getMessages(), p.getLoss(), p.getCorrupt(), p.getDelay(), p.getSeed(),
+                    p.getSendQueueCapacity(),
+                    p.getFlows(), p.getBandwidth(), p.getPropagationDelay(), p.getRouterQueue(), p.getQueueType(),
+                    m.getMessagesDelivered(), m.getGoodput(r.getCompletionTime()), r.getFairnessIndex(), r.getLinkDrops(), m.getPacketsSent(), m.getRetransmissions(), m.getRetransmissionRatio(),
+                    m.getPacketsLost(), m.getPacketsCorrupted(), m.getDuplicateAcks(), m.getTimeouts(),
+                    m.getDeliveryLatency().getMean(), m.getDeliveryLatency().getValueAtPercentile(99),
+                    m.getRtt().getMean(), m.getRtt().getValueAtPercentile(99),
+                    m.getMessagesRefused(), m.getMeanSendQueueSize(r.getCompletionTime()), m.getMaxSendQueueSize(),
+                    m.getBlockingTime().getMean(), m.getBlockingTime().getValueAtPercentile(99),
+                    r.getCompletionTime(), r.getEvents(), r.getWallNanos() / 1e6));
+        }
+        csv.flush();
+    }
+
+    public static void main(String[] argv) throws IOException {
+        List<Protocol> protocols = new ArrayList<>();
+        List<Integer> messages = new ArrayList<>();
+        List<Double> losses = new ArrayList<>();
+        List<Double> corrupts = new ArrayList<>();
+        List<Double> delays = new ArrayList<>();
+        List<Long> seeds = new ArrayList<>();
+        List<Integer> sendQueueCapacities = new ArrayList<>();
+        List<Integer> flows = new ArrayList<>();
+        List<Double> bandwidths = new ArrayList<>();
+        List<Double> propagationDelays = new ArrayList<>();
+        List<Integer> routerQueues = new ArrayList<>();
+        List<QueueType> queueTypes = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        String out = null;
+
+        for (int i = 0; i < argv.length; i += 2) {
+            if (i + 1 >= argv.length) {
+                usage("missing value for " + argv[i]);
+            }
+            String value = argv[i + 1];
+
+            switch (argv[i]) {
+                case "--protocol":
+                    for (String v : value.split(",")) {
+                        protocols.add(Protocol.valueOf(v.trim().toUpperCase()));
+                    }
+                    break;
+                case "--messages":
+                    for (String v : value.split(",")) {
+                        messages.add(Integer.parseInt(v.trim()));
+                    }
+                    break;
+                case "--loss":
+                    parseDoubles(value, losses);
+                    break;
+                case "--corrupt":
+                    parseDoubles(value, corrupts);
+                    break;
+                case "--delay":
+                    parseDoubles(value, delays);
+                    break;
+                case "--seed":
+                    if (value.contains("..")) {
+                        String[] range = value.split("\\.\\.");
+                        for (long s = Long.parseLong(range[0].trim()); s <= Long.parseLong(range[1].trim()); s++) {
+                            seeds.add(s);
+                        }
+                    } else {
+                        for (String v : value.split(",")) {
+                            seeds.add(Long.parseLong(v.trim()));
+                        }
+                    }
+                    break;
+                case "--queue":
+                    for (String v : value.split(",")) {
+                        sendQueueCapacities.add(Integer.parseInt(v.trim()));
+                    }
+                    break;
+                case "--flows":
+                    for (String v : value.split(",")) {
+                        flows.add(Integer.parseInt(v.trim()));
+                    }
+                    break;
+                case "--bandwidth":
+                    parseDoubles(value, bandwidths);
+                    break;
+                case "--propagation":
+                    parseDoubles(value, propagationDelays);
+                    break;
+                case "--router-queue":
+                    for (String v : value.split(",")) {
+                        routerQueues.add(Integer.parseInt(v.trim()));
+                    }
+                    break;
+                case "--aqm":
+                    for (String v : value.split(",")) {
+                        queueTypes.add(QueueType.valueOf(v.trim().toUpperCase()));
+                    }
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(value);
+                    break;
+                case "--out":
+                    out = value;
+                    break;
+                default:
+                    usage("unknown option " + argv[i]);
+            }
+        }
+
+        // defaults for the dimensions that were not given
+        if (protocols.isEmpty()) {
+            protocols.add(Protocol.DEFAULT);
+        }
+        if (messages.isEmpty()) {
+            messages.add(1000);
+        }
+        if (losses.isEmpty()) {
+            losses.add(0.0);
+        }
+        if (corrupts.isEmpty()) {
+            corrupts.add(0.0);
+        }
+        if (delays.isEmpty()) {
+            delays.add(10.0);
+        }
+        if (seeds.isEmpty()) {
+            seeds.add(1L);
+        }
+        if (sendQueueCapacities.isEmpty()) {
+            sendQueueCapacities.add(NetworkSimulator.DEFAULT_SEND_QUEUE_CAPACITY);
+        }
+        if (flows.isEmpty()) {
+            flows.add(1);
+        }
+        if (bandwidths.isEmpty()) {
+            bandwidths.add(0.0);
+        }
+        if (propagationDelays.isEmpty()) {
+            propagationDelays.add(NetworkSimulator.DEFAULT_PROPAGATION_DELAY);
+        }
+        if (routerQueues.isEmpty()) {
+            routerQueues.add(NetworkSimulator.DEFAULT_ROUTER_QUEUE_CAPACITY);
+        }
+        if (queueTypes.isEmpty()) {
+            queueTypes.add(QueueType.DROP_TAIL);
+        }
+
+        ParameterSweep sweep = new ParameterSweep(grid(protocols, messages, losses, corrupts, delays, seeds, sendQueueCapacities,
+                flows, bandwidths, propagationDelays, routerQueues, queueTypes));
+        List<Result> results = sweep.run(threads);
+
+        if (out == null) {
+            writeCsv(results, new PrintWriter(System.out));
+        } else {
+            try (Writer w = new FileWriter(out)) {
+                writeCsv(results, w);
+            }
+        }
+    }
+
+    private static void parseDoubles(String value, List<Double> values) {
+        for (String v : value.split(",")) {
+            values.add(Double.parseDouble(v.trim()));
+        }
+    }
+
+    private static void usage(String error) {
+        System.err.println(error);
+        System.err.println("Usage: ParameterSweep [--messages n,...] [--loss p,...] [--corrupt p,...] [--delay d,...]"
+                + " [--seed s,... | --seed first..last] [--protocol name,...] [--queue n,...]"
+                + " [--flows n,...] [--bandwidth b,...] [--propagation d,...] [--router-queue n,...] [--aqm drop_tail,red]"
+                + " [--threads n] [--out file.csv]");
+        System.exit(-1);
+    }
+}
@@ -0,0 +1,19 @@
+package transport;
+
+/**
+ * The ARQ protocols this project can simulate. Each one supplies the sender (A) and receiver (B) hosts.
+ */
+public enum Protocol {
+    STOP_AND_WAIT;
+
+    // the protocol used unless another one is selected
+    public static final Protocol DEFAULT = STOP_AND_WAIT;
+
+    public NetworkHost createSender(int entity) {
+        return new Sender(entity);
+    }
+
+    public NetworkHost createReceiver(int entity) {
+        return new Receiver(entity);
+    }
+}
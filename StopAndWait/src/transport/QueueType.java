@@ -0,0 +1,24 @@
+package transport;
+
+/**
+ * The queue management policies of the links between the hosts
+ */
+public enum QueueType {
+    DROP_TAIL,  // queue every packet there is room for
+    RED;        // Random Early Detection: drop packets with a probability growing with the average queue length
+
+    /**
+     * @param capacity the number of packets that can wait for the link
+     * @param rand where the policy draws its random decisions from
+     * @return a new policy for one link
+     */
+    public QueuePolicy create(int capacity, RandomStream rand) {
+        switch (this) {
+            case RED:
+                return new RedQueue(capacity, rand);
+            case DROP_TAIL:
+            default:
+                return (queueLength, idleTime, transmissionTime) -> true;
+        }
+    }
+}
@@ -15,33 +15,41 @@ public class Receiver extends NetworkHost {
      *       Stops the timer. You should only call this in the Sender class.
      *  void udtSend(Packet p)
      *       Sends the packet "p" into the network to arrive at other host
-     *  void deliverData(String dataSent)
+     *  void deliverData(byte[] dataSent)
      *       Passes "dataSent" up to app layer. You should only call this in the Receiver class.
+     *  int computeChecksum(Packet p)
+     *       Returns the checksum of "p": its header (except the checksum field) and payload, as received. Store it with p.setChecksum()
+     *       before sending, and compare it with p.getChecksum() on arrival. The algorithm is chosen with -Dtransport.checksum.
+     *  Packet createPacket(int seq, int ack, int check, byte[] payload)
+     *  Packet createPacket(int seq, int ack, int check)
+     *       Like the Packet constructors, but reuses a packet from the simulator's pool. Hand it back with releasePacket(p)
+     *       once it will not be sent again (udtSend sends a copy, so that can be straight after sending it).
+     *       Copy the packets passed to input() with new Packet(p) to keep them: they are reused once input() returns.
      *
      *  Predefined Classes:
      *
      *  NetworkSimulator: Implements the core functionality of the simulator
      *
      *  double getTime()
-     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().getTime()
+     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: getSimulator().getTime()
      *  void printEventList()
-     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().printEventList()
+     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: getSimulator().printEventList()
      *
      *  Message: Used to encapsulate a message coming from the application layer
      *    Constructor:
-     *      Message(String inputData): 
+     *      Message(byte[] inputData): 
      *          creates a new Message containing "inputData"
      *    Methods:
-     *      void setData(String inputData):
+     *      void setData(byte[] inputData):
      *          sets an existing Message's data to "inputData"
-     *      String getData():
+     *      byte[] getData():
      *          returns the data contained in the message
      *
      *  Packet: Used to encapsulate a packet
      *    Constructors:
      *      Packet (Packet p):
-     *          creates a new Packet, which is a copy of "p"
-     *      Packet (int seq, int ack, int check, String newPayload):
+     *          creates a new Packet, which is a copy of "p" (sharing its payload)
+     *      Packet (int seq, int ack, int check, byte[] newPayload):
      *          creates a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and a payload of "newPayload"
      *      Packet (int seq, int ack, int check)
      *          chreate a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and an empty payload
@@ -52,21 +60,25 @@ public class Receiver extends NetworkHost {
      *          sets the Packet's ack field to acknum
      *      void setChecksum(int checksum)
      *          sets the Packet's checksum to checksum
-     *      void setPayload(String payload) 
-     *          sets the Packet's payload to payload
+     *      void setPayload(byte[] payload) 
+     *          sets the Packet's payload to payload (the array must not be modified afterwards)
      *      int getSeqnum()
      *          returns the contents of the Packet's sequence field
      *      int getAcknum()
      *          returns the contents of the Packet's ack field
      *      int getChecksum()
      *          returns the checksum of the Packet
-     *      String getPayload()
-     *          returns the Packet's payload
+     *      byte[] getPayload()
+     *          returns the Packet's payload (do not modify it)
+     *      int getPayloadLength()
+     *          returns the number of bytes in the Packet's payload
+     *      byte getPayloadByte(int i)
+     *          returns byte "i" of the Packet's payload
      *
      */
     
     // Add any necessary class variables here. They can hold state information for the receiver.
-    // Also add any necessary methods (e.g. checksum of a String)
+    // Also add any necessary methods
     
     private int expectedSeqNo; // expected sequence number of packet from sender
     private Packet lastSentACK; // last sent ACK to Sender
@@ -88,36 +100,6 @@ public class Receiver extends NetworkHost {
            expectedSeqNo = 0;
        }
        
-    /**
-     * Compute Checksum
-     * 1) Convert packet data into bytes
-     * 2) Sum the byte representation of the data character by character
-     * 3) Add sum to sequence number and acknowledgment number of the packet
-     * @param seqNo sequence number of the packet
-     * @param ack acknowledgment number of the packet
-     * @param data the data in the packet
-     * @return checksum for the packet
-     */
-       public int computeChecksum(int seqNo, int ack, String data) {
-          
-           int sum = 0;
-           
-           // if data is empty set sum to 100 and add to seqNo and the ack num
-           if (data.isEmpty())
-           {
-               sum = 100;
-               return sum+seqNo+ack;
-           }
-           
-           byte[] message = data.getBytes();
-           
-           for(int i = 0; i<message.length; i++){
-               sum += message[i];
-           }
-            
-           return sum+seqNo+ack;
-       }
-       
     /**
      * This method will be called whenever a packet sent from the sender(i.e. as a result of a udtSend() being called by the Sender ) arrives at the receiver.
      * The argument "packet" is the (possibly corrupted) packet sent from the sender.
@@ -126,36 +108,38 @@ public class Receiver extends NetworkHost {
        @Override
        public void input(Packet packet) {
                                 
-           int checksum = computeChecksum(packet.getSeqnum(),packet.getAcknum(),packet.getPayload());
+           int checksum = computeChecksum(packet);
  
           
            // if packet is not corrupted and sequence number expected?
            if (checksum == packet.getChecksum() && expectedSeqNo == packet.getSeqnum())
            {
                // send data to the application layer
-               String data = packet.getPayload();
+               byte[] data = packet.getPayload();
                deliverData(data);
                
                // send appropriate acknowledgement based on sequence number
                if (expectedSeqNo == 0)
                {
                  // compute checksum for ACK
-                 int ack0Checksum = computeChecksum(0,0,"");
-                 Packet ack0 = new Packet(0,0,ack0Checksum);
+                 Packet ack0 = createPacket(0,0,0);
+                 ack0.setChecksum(computeChecksum(ack0));
                  udtSend(ack0);
                  // flip expected sequence number to match next expected packet from sender
                  expectedSeqNo = 1;
                  // store sent ACK, later used to retransmit if ACK gets lost 
+                 releaseLastSentACK();
                  lastSentACK = ack0;
                }
                else
                {
                    if (expectedSeqNo == 1)
                    {
-                       int ack1Checksum = computeChecksum(0,1,"");
-                       Packet ack1 = new Packet(0,1,ack1Checksum);
+                       Packet ack1 = createPacket(0,1,0);
+                       ack1.setChecksum(computeChecksum(ack1));
                        udtSend(ack1);
                        expectedSeqNo = 0;
+                       releaseLastSentACK();
                        lastSentACK = ack1;
                    }
                }
@@ -169,11 +153,22 @@ public class Receiver extends NetworkHost {
                {
                    // sender has lost previous ACK or ACK sent was corrupted
                    // so must resend the last sent ACK
-                   Packet ack = new Packet(0,lastSentACK.getAcknum(),lastSentACK.getChecksum());
+                   Packet ack = createPacket(0,lastSentACK.getAcknum(),lastSentACK.getChecksum());
                    udtSend(ack);
+                   releasePacket(ack);
                }
            
            // if 1st packet sent is corrupted do nothing!
            // if packet to be recieved is lost by network do nothing!     
     }
+    
+    /**
+     * Hands the previously stored ACK back to the simulator before a new one replaces it
+     */
+       private void releaseLastSentACK() {
+           if (lastSentACK != null)
+           {
+               releasePacket(lastSentACK);
+           }
+       }
 }
\ No newline at end of file
@@ -0,0 +1,110 @@
+package transport;
+
+/**
+ * Estimates a sender's retransmission timeout from measured round trip times, as TCP does (Jacobson/Karels, RFC 6298):
+ * a smoothed round trip time (SRTT) and its mean deviation (RTTVAR) are updated with every sample,
+ * and the timeout is SRTT + 4 * RTTVAR. Every expiry doubles the timeout, up to MAX_BACKOFF times the timeout
+ * the last sample gave, until the next sample or until the packets the sender resent are acknowledged.
+ *
+ * The bound is relative to the measured round trip rather than the 60 seconds of RFC 6298: simulated round trips
+ * are tens of time units, and an absolute bound that far away would leave a sender idle long after the loss has passed.
+ * MAX_BACKOFF is still large enough for the timeout to outlast the drain of a large resent window, which Karn's rule keeps
+ * the sender from sampling. Only before the first sample, with no round trip to go by, may the timeout double up to MAX_RTO.
+ *
+ * The sender is responsible for Karn's rule: round trip times must only be sampled from ACKs of packets
+ * that were sent exactly once, since the ACK of a retransmitted packet cannot be matched to a transmission.
+ */
+public class RtoEstimator {
+
+    public static final double INITIAL_RTO = 40.0;      // the timeout used before the first sample
+    public static final double MIN_RTO = 2.0;           // no round trip can be shorter (each direction takes at least 1)
+    public static final double MAX_RTO = 60000.0;       // bounds the backoff before the first sample only
+    public static final double MAX_BACKOFF = 16.0;      // how far backoff() may stretch the timeout the last sample gave
+
+    private static final double ALPHA = 1.0 / 8;        // gain of the SRTT average
+    private static final double BETA = 1.0 / 4;         // gain of the RTTVAR average
+    private static final double K = 4.0;
+
+    private double srtt;
+    private double rttvar;
+    private double rto;
+    private double sampledRto;                          // the timeout the last sample gave, before any backoff
+    private boolean sampled;                            // false until the first sample
+    private int backoffs;                               // expiries since the last sample or acknowledged()
+
+    public RtoEstimator() {
+        reset();
+    }
+
+    public void reset() {
+        srtt = 0.0;
+        rttvar = 0.0;
+        rto = INITIAL_RTO;
+        sampledRto = INITIAL_RTO;
+        sampled = false;
+        backoffs = 0;
+    }
+
+    /**
+     * Updates the estimate with a measured round trip time and clears any backoff
+     * @param rtt time between sending a packet and receiving its ACK
+     */
+    public void sample(double rtt) {
+        if (!sampled) {
+            srtt = rtt;
+            rttvar = rtt / 2;
+            sampled = true;
+        } else {
+            // RTTVAR is updated first, with the previous SRTT
+            rttvar = (1 - BETA) * rttvar + BETA * Math.abs(srtt - rtt);
+            srtt = (1 - ALPHA) * srtt + ALPHA * rtt;
+        }
+
+        sampledRto = Math.min(MAX_RTO, Math.max(MIN_RTO, srtt + Math.max(EventList.TIMER_RESOLUTION, K * rttvar)));
+        rto = sampledRto;
+        backoffs = 0;
+    }
+
+    /**
+     * Doubles the timeout, to be called every time the retransmission timer expires
+     */
+    public void backoff() {
+        rto = Math.min(sampled ? MAX_BACKOFF * sampledRto : MAX_RTO, rto * 2);
+        backoffs++;
+    }
+
+    /**
+     * Clears any backoff, to be called once every packet that was outstanding when the timer last expired is acknowledged:
+     * the path delivers again, even if Karn's rule keeps those ACKs from being sampled.
+     * (Clearing it at the first ACK of new data would let the next expiry resend a window on top of the copies still queued.)
+     * Before the first sample the backed off timeout is kept, since INITIAL_RTO may be shorter than the round trip
+     * and only a longer timeout lets a packet be acknowledged before it is retransmitted, and so be sampled
+     */
+    public void acknowledged() {
+        if (sampled) {
+            rto = sampledRto;
+            backoffs = 0;
+        }
+    }
+
+    public double getRto() {
+        return rto;
+    }
+
+    public double getSrtt() {
+        return srtt;
+    }
+
+    public double getRttvar() {
+        return rttvar;
+    }
+
+    public int getBackoffs() {
+        return backoffs;
+    }
+
+    @Override
+    public String toString() {
+        return "rto: " + rto + "  srtt: " + srtt + "  rttvar: " + rttvar + "  backoffs: " + backoffs;
+    }
+}
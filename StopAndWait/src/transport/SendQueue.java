@@ -0,0 +1,108 @@
+package transport;
+
+/**
+ * A bounded FIFO of application messages a sender has accepted but cannot send yet (its window is full, or it is waiting for an ACK).
+ * The sender drains it as ACKs open the window. Messages offered while it is full are refused, i.e. lost by the application.
+ *
+ * The messages are kept in a ring buffer, so offer and poll are O(1) and the queue never allocates after construction.
+ * Every change is reported to the simulation's Metrics: occupancy over time (for the first flow's sender only), time spent waiting,
+ * and refused messages.
+ * Create one with NetworkHost.createSendQueue().
+ */
+public class SendQueue {
+
+    private final NetworkSimulator simulator;   // for the time and the metrics
+    private final Message[] messages;
+    private final double[] queuedAt;            // when each message was offered
+    private int head;                           // index of the oldest message
+    private int size;
+    private final boolean reportOccupancy;      // whether the Metrics follow this queue's occupancy
+
+    SendQueue(NetworkSimulator simulator, int capacity, boolean reportOccupancy) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("capacity must not be negative");
+        }
+        this.simulator = simulator;
+        messages = new Message[capacity];
+        queuedAt = new double[capacity];
+        head = 0;
+        size = 0;
+        this.reportOccupancy = reportOccupancy;
+    }
+
+    /**
+     * Appends a message
+     * @param message the message to queue
+     * @return false if the queue is full and the message was refused
+     */
+    public boolean offer(Message message) {
+        if (size == messages.length) {
+            simulator.getMetrics().messageRefused();
+            return false;
+        }
+
+        int tail = head + size;
+        if (tail >= messages.length) {
+            tail -= messages.length;
+        }
+        messages[tail] = message;
+        queuedAt[tail] = simulator.getTime();
+        size++;
+
+        if (reportOccupancy) {
+            simulator.getMetrics().sendQueueChanged(simulator.getTime(), size);
+        }
+        return true;
+    }
+
+    /**
+     * Removes the oldest message
+     * @return the oldest message, or null if the queue is empty
+     */
+    public Message poll() {
+        if (size == 0) {
+            return null;
+        }
+
+        Message message = messages[head];
+        double waited = simulator.getTime() - queuedAt[head];
+        messages[head] = null;
+        head++;
+        if (head == messages.length) {
+            head = 0;
+        }
+        size--;
+
+        if (reportOccupancy) {
+            simulator.getMetrics().sendQueueChanged(simulator.getTime(), size);
+        }
+        simulator.getMetrics().messageUnblocked(waited);
+        return message;
+    }
+
+    // the oldest message, left in the queue (null if the queue is empty)
+    public Message peek() {
+        return (size == 0) ? null : messages[head];
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public boolean isFull() {
+        return size == messages.length;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getCapacity() {
+        return messages.length;
+    }
+
+    @Override
+    public String toString() {
+        return "send queue: " + size + "/" + messages.length;
+    }
+}
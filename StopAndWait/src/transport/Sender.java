@@ -16,33 +16,52 @@ public class Sender extends NetworkHost {
      *       Stops the timer. You should only call this in the Sender class.
      *  void udtSend(Packet p)
      *       Sends the packet "p" into the network to arrive at other host
-     *  void deliverData(String dataSent)
+     *  void deliverData(byte[] dataSent)
      *       Passes "dataSent" up to app layer. You should only call this in the Receiver class.
+     *  int computeChecksum(Packet p)
+     *       Returns the checksum of "p": its header (except the checksum field) and payload, as received. Store it with p.setChecksum()
+     *       before sending, and compare it with p.getChecksum() on arrival. The algorithm is chosen with -Dtransport.checksum.
+     *  Packet createPacket(int seq, int ack, int check, byte[] payload)
+     *  Packet createPacket(int seq, int ack, int check)
+     *       Like the Packet constructors, but reuses a packet from the simulator's pool. Hand it back with releasePacket(p)
+     *       once it will not be sent again (udtSend sends a copy, so that can be straight after sending it).
+     *       Copy the packets passed to input() with new Packet(p) to keep them: they are reused once input() returns.
      *
      *  Predefined Classes:
      *
      *  NetworkSimulator: Implements the core functionality of the simulator
      *
      *  double getTime()
-     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().getTime()
+     *       Returns the current time in the simulator. Might be useful for debugging. Call it as follows: getSimulator().getTime()
      *  void printEventList()
-     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: NetworkSimulator.getInstance().printEventList()
+     *       Prints the current event list to stdout.  Might be useful for debugging. Call it as follows: getSimulator().printEventList()
+     *
+     *  RtoEstimator: Estimates the retransmission timeout from measured round trip times
+     *    Methods:
+     *      void sample(double rtt)
+     *          updates the estimate with the round trip time of a packet that was not retransmitted
+     *      void backoff()
+     *          doubles the timeout, call it when the timer expires
+     *      void acknowledged()
+     *          clears the backoff, call it once the packets outstanding at the last expiry are all acknowledged
+     *      double getRto()
+     *          returns the timeout to start the timer with
      *
      *  Message: Used to encapsulate a message coming from the application layer
      *    Constructor:
-     *      Message(String inputData): 
+     *      Message(byte[] inputData): 
      *          creates a new Message containing "inputData"
      *    Methods:
-     *      void setData(String inputData):
+     *      void setData(byte[] inputData):
      *          sets an existing Message's data to "inputData"
-     *      String getData():
+     *      byte[] getData():
      *          returns the data contained in the message
      *
      *  Packet: Used to encapsulate a packet
      *    Constructors:
      *      Packet (Packet p):
-     *          creates a new Packet, which is a copy of "p"
-     *      Packet (int seq, int ack, int check, String newPayload):
+     *          creates a new Packet, which is a copy of "p" (sharing its payload)
+     *      Packet (int seq, int ack, int check, byte[] newPayload):
      *          creates a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and a payload of "newPayload"
      *      Packet (int seq, int ack, int check)
      *          chreate a new Packet with a sequence field of "seq", an ack field of "ack", a checksum field of "check", and an empty payload
@@ -53,26 +72,37 @@ public class Sender extends NetworkHost {
      *          sets the Packet's ack field to acknum
      *      void setChecksum(int checksum)
      *          sets the Packet's checksum to checksum
-     *      void setPayload(String payload) 
-     *          sets the Packet's payload to payload
+     *      void setPayload(byte[] payload) 
+     *          sets the Packet's payload to payload (the array must not be modified afterwards)
      *      int getSeqnum()
      *          returns the contents of the Packet's sequence field
      *      int getAcknum()
      *          returns the contents of the Packet's ack field
      *      int getChecksum()
      *          returns the checksum of the Packet
-     *      String getPayload()
-     *          returns the Packet's payload
+     *      byte[] getPayload()
+     *          returns the Packet's payload (do not modify it)
+     *      int getPayloadLength()
+     *          returns the number of bytes in the Packet's payload
+     *      byte getPayloadByte(int i)
+     *          returns byte "i" of the Packet's payload
      *
      */
     
     // Add any necessary class variables here. They can hold state information for the sender. 
-    // Also add any necessary methods (e.g. checksum of a String)
+    // Also add any necessary methods
     
     private int sequenceNo; // sequenceNo for packet sent from application layer
     private int expectedAckNo; // expected ack number for packet from reciever
     private Packet lastSentPacket; // last packet sent to reciever
     
+    private RtoEstimator rto;
+    private double lastSendTime; // when lastSentPacket was first sent
+    private boolean waitingForAck; // is lastSentPacket still unacknowledged?
+    private SendQueue sendQueue; // messages from the app layer that arrive while waiting for an ACK
+    
+    private boolean timing; // can the ACK of lastSentPacket still be timed? not once it is resent (Karn's rule) or acknowledged
+    
     
     // This is the constructor.  Don't touch!
     public Sender(int entityName) {
@@ -88,60 +118,59 @@ public class Sender extends NetworkHost {
        public void init() {
            // initially first packet has seqNo and expectedackNo of 0
            sequenceNo = 0; 
+           rto = new RtoEstimator();
+           waitingForAck = false;
+           sendQueue = createSendQueue();
        }
        
+
     /**
-     * Compute Checksum
-     * 1) Convert packet data into bytes
-     * 2) Sum the byte representation of the data character by character
-     * 3) Add sum to sequence number and acknowledgment number of the packet
-     * @param seqNo sequence number of the packet
-     * @param ack acknowledgment number of the packet
-     * @param data the data in the packet
-     * @return checksum for the packet
+     * 
+     * This method will be called whenever the app layer at the sender has a message to send.
+     * The job of your protocol is to ensure that the data in such a message is delivered
+     * in-order, and correctly, to the receiving application layer.
+     * @param message application layer message to be sent
      */
-       public int computeChecksum(int seqNo, int ack, String data) {
-           
-           int sum = 0;
+       @Override
+       public void output(Message message) {
            
-           // if data is empty set sum to 100 and add to seqNo and the ack num
-           if (data.isEmpty())
+           // only one packet may be unacknowledged at a time
+           // a message arriving while waiting for an ACK is queued (refused if the send queue is full)
+           if (waitingForAck || !sendQueue.isEmpty())
            {
-               sum = 100;
-               return sum+seqNo+ack;
+               sendQueue.offer(message);
            }
-           
-           byte[] message = data.getBytes();
-           
-           for(int i = 0; i<message.length; i++){
-               sum += message[i];
+           else
+           {
+               send(message);
            }
-                       
-           return sum+seqNo+ack;
        }
        
-
     /**
-     * 
-     * This method will be called whenever the app layer at the sender has a message to send.
-     * The job of your protocol is to ensure that the data in such a message is delivered
-     * in-order, and correctly, to the receiving application layer.
+     * Sends a message as the next packet and waits for its ACK
      * @param message application layer message to be sent
      */
-       @Override
-       public void output(Message message) {
+       private void send(Message message) {
            
-           // create checksum of packet using sequence number and app data
+           // create packet to send with seqNo and data from app layer
            // Sender packets have an acknowledgement of 0
-           int checksum = computeChecksum(sequenceNo,0,message.getData());
+           Packet p = createPacket(sequenceNo,0,0,message.getData());
            
-           // create packet to send with seqNo, checksum and data from app layer
-           Packet p = new Packet(sequenceNo,0,checksum,message.getData());
+           // checksum of packet using sequence number and app data
+           p.setChecksum(computeChecksum(p));
            udtSend(p);
-           startTimer(40);
+           startTimer(rto.getRto());
            
            // store the packet just sent, later used for retransmission if needed
-           lastSentPacket = new Packet(p); 
+           // (the previous one has been acknowledged, so it can be reused)
+           if (lastSentPacket != null)
+           {
+               releasePacket(lastSentPacket);
+           }
+           lastSentPacket = p;
+           lastSendTime = getSimulator().getTime();
+           timing = true;
+           waitingForAck = true;
            
            
            // if the sequenceNo of the packet sender just sent is 0 
@@ -171,13 +200,34 @@ public class Sender extends NetworkHost {
        public void input(Packet packet) {
            
            // Compute the checksum of the received packet
-           int checksum = computeChecksum(packet.getSeqnum(),packet.getAcknum(),packet.getPayload());
+           int checksum = computeChecksum(packet);
            
            // computed checksum = recieved packet's checksum? 
            // is acknowledgement number expected?
            if (checksum == packet.getChecksum() && expectedAckNo == packet.getAcknum())
            {
               stopTimer();
+              
+              if (timing)
+              {
+                  rto.sample(getSimulator().getTime() - lastSendTime);
+                  timing = false;
+              }
+              else
+              {
+                  // a retransmission got through: not sampled (Karn's rule), but no longer backed off
+                  rto.acknowledged();
+              }
+              
+              // the packet is acknowledged, send the next queued message
+              if (waitingForAck)
+              {
+                  waitingForAck = false;
+                  if (!sendQueue.isEmpty())
+                  {
+                      send(sendQueue.poll());
+                  }
+              }
            }
            
            // otherwise time out
@@ -193,6 +243,8 @@ public class Sender extends NetworkHost {
        @Override
        public void timerInterrupt() {
            udtSend(lastSentPacket); // retransmit the recently sent packet
-           startTimer(40);
+           timing = false;
+           rto.backoff();
+           startTimer(rto.getRto());
        }
 }
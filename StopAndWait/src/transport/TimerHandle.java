@@ -0,0 +1,56 @@
+package transport;
+
+/**
+ * A logical timer owned by a NetworkHost. A host can create any number of them (see NetworkHost.createTimer),
+ * and start, restart or stop each one independently; when one expires the host's timerInterrupt(TimerHandle) is called with it.
+ * Handles are meant to be created once and reused, e.g. one per slot of a sliding window.
+ */
+public class TimerHandle {
+
+    // where the timer currently is
+    static final int IDLE = 0;          // not running
+    static final int WHEEL = 1;         // waiting in the EventList's TimingWheel
+    static final int QUEUED = 2;        // moved into the event queue as a TIMERINTERRUPT Event
+
+    private final int entity;           // the host the timer belongs to
+    private final int id;               // chosen by the host, e.g. the sequence number the timer guards
+
+    // bookkeeping owned by the EventList and its TimingWheel
+    int state = IDLE;
+    double expiry;                      // when the timer is due
+    long order;                         // insertion order, as if the timer had been added to the EventList when started
+    long tick;                          // the wheel tick the timer is due in
+    int level;                          // the wheel level and slot the timer is linked in
+    int slot;
+    TimerHandle prev;                   // neighbours in the wheel slot
+    TimerHandle next;
+    Event event;                        // the TIMERINTERRUPT Event, once QUEUED
+
+    TimerHandle(int entity, int id) {
+        this.entity = entity;
+        this.id = id;
+    }
+
+    public int getEntity() {
+        return entity;
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    // true while the timer is running (started and neither expired nor stopped)
+    public boolean isPending() {
+        return state != IDLE;
+    }
+
+    // when the timer is (or was last) due to expire
+    public double getExpiry() {
+        return expiry;
+    }
+
+    @Override
+    public String toString() {
+        return "timer " + id + " of " + entity + (isPending() ? " due at " + expiry : " idle");
+    }
+}
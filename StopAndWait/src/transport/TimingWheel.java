@@ -0,0 +1,228 @@
+package transport;
+
+/**
+ * A hierarchical timing wheel holding the timers that are not due yet.
+ *
+ * Time is cut into ticks of a fixed resolution. Level 0 has one slot per tick for the next 256 ticks, and each higher level
+ * has 64 slots each covering a whole revolution of the level below it. Starting and stopping a timer is O(1) (linking or unlinking
+ * it from a slot); a timer moves down a level at most three times before it expires, whatever the number of outstanding timers.
+ *
+ * The EventList advances the wheel to the time of the next event before executing it: timers due by then are moved
+ * into the event queue as TIMERINTERRUPT Events, with their exact expiry time, so they run in the same order as if they had been
+ * queued when they were started.
+ */
+public class TimingWheel {
+
+    private static final int[] BITS = {8, 6, 6, 6};        // log2 of the number of slots of each level
+    private static final int LEVELS = BITS.length;
+
+    private final double resolution;            // length of a tick in simulated time
+    private final int[] shift = new int[LEVELS];
+    private final long[] span = new long[LEVELS];   // ticks covered by a whole level
+    private final TimerHandle[][] slots = new TimerHandle[LEVELS][];
+    private final int[] counts = new int[LEVELS];   // timers in each level
+
+    private final ObjectPool<Event> events;     // where the TIMERINTERRUPT Events of expiring timers are taken from
+
+    private long currentTick;                   // every tick before this one has been expired
+    private int size;
+
+    public TimingWheel(double resolution) {
+        this(resolution, new ObjectPool<>(() -> new Event(0.0, EventType.TIMERINTERRUPT, 0)));
+    }
+
+    // a wheel sharing its EventList's pool of events
+    TimingWheel(double resolution, ObjectPool<Event> events) {
+        this.resolution = resolution;
+        this.events = events;
+
+        int bits = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            shift[level] = bits;
+            bits += BITS[level];
+            span[level] = 1L << bits;
+            slots[level] = new TimerHandle[1 << BITS[level]];
+        }
+
+        currentTick = 0;
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Adds a started timer (its expiry and order already set)
+     *
+     * @param t the timer
+     * @param queue where a timer that is already due goes straight away
+     */
+    void add(TimerHandle t, EventScheduler queue) {
+        t.tick = (long) Math.floor(t.expiry / resolution);
+
+        if (t.tick < currentTick) {
+            expire(t, queue);
+        } else {
+            link(t);
+        }
+    }
+
+    // take a timer that has not expired yet out of the wheel
+    void remove(TimerHandle t) {
+        if (t.prev == null) {
+            slots[t.level][t.slot] = t.next;
+        } else {
+            t.prev.next = t.next;
+        }
+        if (t.next != null) {
+            t.next.prev = t.prev;
+        }
+        t.prev = null;
+        t.next = null;
+
+        counts[t.level]--;
+        size--;
+        t.state = TimerHandle.IDLE;
+    }
+
+    /**
+     * Moves every timer due up to the given time into the event queue
+     *
+     * @param time
+     * @param queue
+     * @return true if at least one timer was moved
+     */
+    boolean advance(double time, EventScheduler queue) {
+        return advanceTo((long) Math.floor(time / resolution), queue, false);
+    }
+
+    /**
+     * Moves the timers of the earliest non-empty tick into the event queue (used when the queue has run dry)
+     *
+     * @param queue
+     * @return true if at least one timer was moved
+     */
+    boolean advanceToNext(EventScheduler queue) {
+        return advanceTo(Long.MAX_VALUE - 1, queue, true);
+    }
+
+    private boolean advanceTo(long targetTick, EventScheduler queue, boolean stopAtFirst) {
+        boolean moved = false;
+
+        while (currentTick <= targetTick && size > 0) {
+            if (counts[0] > 0) {
+                int slot = slotOf(currentTick, 0);
+                TimerHandle t = slots[0][slot];
+                slots[0][slot] = null;
+
+                while (t != null) {
+                    TimerHandle following = t.next;
+                    t.prev = null;
+                    t.next = null;
+                    counts[0]--;
+                    size--;
+                    expire(t, queue);
+                    moved = true;
+                    t = following;
+                }
+                currentTick++;
+            } else {
+                // nothing on the lowest levels: jump to the start of the next slot of the lowest non-empty level
+                int level = 1;
+                while (level < LEVELS - 1 && counts[level] == 0) {
+                    level++;
+                }
+                long boundary = (currentTick | (span[level - 1] - 1)) + 1;
+                if (boundary > targetTick + 1) {
+                    currentTick = targetTick + 1;
+                    break;
+                }
+                currentTick = boundary;
+            }
+
+            // on reaching a level 0 revolution, bring the timers of the next slot(s) of the higher levels down
+            if ((currentTick & (span[0] - 1)) == 0) {
+                cascade(queue);
+            }
+
+            if (moved && stopAtFirst) {
+                break;
+            }
+        }
+
+        if (size == 0 && currentTick <= targetTick && !stopAtFirst) {
+            currentTick = targetTick + 1;
+        }
+
+        return moved;
+    }
+
+    private void cascade(EventScheduler queue) {
+        for (int level = 1; level < LEVELS; level++) {
+            int slot = slotOf(currentTick, level);
+            TimerHandle t = slots[level][slot];
+            slots[level][slot] = null;
+
+            while (t != null) {
+                TimerHandle following = t.next;
+                t.prev = null;
+                t.next = null;
+                counts[level]--;
+                size--;
+                add(t, queue);
+                t = following;
+            }
+
+            // carry on up only if this level has just completed a revolution too
+            if (slot != 0) {
+                break;
+            }
+        }
+    }
+
+    private void link(TimerHandle t) {
+        long delta = t.tick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= span[level]) {
+            level++;
+        }
+
+        // timers beyond the range of the top level wait in its last slot and are re-linked when it comes round
+        long tick = (delta >= span[LEVELS - 1]) ? currentTick + span[LEVELS - 1] - 1 : t.tick;
+        int slot = slotOf(tick, level);
+
+        t.level = level;
+        t.slot = slot;
+        t.prev = null;
+        t.next = slots[level][slot];
+        if (t.next != null) {
+            t.next.prev = t;
+        }
+        slots[level][slot] = t;
+
+        counts[level]++;
+        size++;
+        t.state = TimerHandle.WHEEL;
+    }
+
+    private int slotOf(long tick, int level) {
+        return (int) ((tick >>> shift[level]) & ((1 << BITS[level]) - 1));
+    }
+
+    // turn a due timer into a TIMERINTERRUPT Event in the queue
+    private void expire(TimerHandle t, EventScheduler queue) {
+        Event e = events.obtain();
+        e.reset(t.expiry, EventType.TIMERINTERRUPT, t.getEntity(), null);
+        e.setOrder(t.order);
+        e.setTimer(t);
+
+        t.event = e;
+        t.state = TimerHandle.QUEUED;
+        queue.add(e);
+    }
+}
@@ -0,0 +1,73 @@
+package transport;
+
+import java.io.IOException;
+
+/**
+ * The simulator's text trace. Callers check isEnabled() before building a line,
+ * so that no String is created for output that would be discarded.
+ *
+ * <pre>
+ *     if (trace.isEnabled(TraceLevel.PACKET)) {
+ *         trace.println("udtSend: " + packet);
+ *     }
+ * </pre>
+ */
+public class Trace {
+
+    private final TraceLevel level;
+    private final TraceSink sink;
+
+    // a trace that discards everything
+    public static final Trace OFF = new Trace(TraceLevel.OFF, null);
+
+    public Trace(TraceLevel level, TraceSink sink) {
+        this.level = level;
+        this.sink = sink;
+    }
+
+    /**
+     * Builds the trace described by the transport.trace (off|summary|event|packet, default packet)
+     * and transport.trace.file (default: standard output) system properties
+     *
+     * @return
+     * @throws IOException if the trace file cannot be created
+     */
+    public static Trace fromSystemProperties() throws IOException {
+        TraceLevel level = TraceLevel.valueOf(System.getProperty("transport.trace", "packet").toUpperCase());
+        if (level == TraceLevel.OFF) {
+            return OFF;
+        }
+
+        String file = System.getProperty("transport.trace.file");
+        TraceSink sink = (file == null) ? new ConsoleTraceSink() : new AsyncFileTraceSink(file);
+
+        return new Trace(level, sink);
+    }
+
+    public TraceLevel getLevel() {
+        return level;
+    }
+
+    public boolean isEnabled(TraceLevel l) {
+        return l != TraceLevel.OFF && level.compareTo(l) >= 0;
+    }
+
+    // write a line; callers are expected to have checked isEnabled() for the line's level
+    public void println(String line) {
+        if (sink != null) {
+            sink.println(line);
+        }
+    }
+
+    public void flush() {
+        if (sink != null) {
+            sink.flush();
+        }
+    }
+
+    public void close() {
+        if (sink != null) {
+            sink.close();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package transport;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.BitSet;
+
+/**
+ * Replays a recorded pattern of hits, one decision per packet, starting over at the end of the pattern.
+ * The pattern is a text file of '1' (hit) and '0' (not hit) characters; anything else is ignored, and '#' starts a comment
+ * that runs to the end of the line. e.g. a capture of which packets were lost, one per line.
+ */
+public class TraceLoss implements LossModel {
+
+    private final BitSet hits;
+    private final int length;
+    private final String source;
+    private int position;
+
+    public TraceLoss(BitSet hits, int length, String source) {
+        if (length < 1) {
+            throw new IllegalArgumentException("a loss trace needs at least one packet");
+        }
+        this.hits = hits;
+        this.length = length;
+        this.source = source;
+        position = 0;
+    }
+
+    /**
+     * Reads a pattern from a file
+     *
+     * @param file the file name
+     * @return a model replaying it from the start
+     * @throws UncheckedIOException if the file cannot be read
+     */
+    public static TraceLoss load(String file) {
+        String text;
+        try {
+            text = new String(Files.readAllBytes(Paths.get(file)), StandardCharsets.ISO_8859_1);
+        } catch (IOException e) {
+            throw new UncheckedIOException("unable to read loss trace " + file, e);
+        }
+
+        BitSet hits = new BitSet();
+        int length = 0;
+        boolean comment = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (comment) {
+                comment = (c != '\n');
+            } else if (c == '#') {
+                comment = true;
+            } else if (c == '1') {
+                hits.set(length++);
+            } else if (c == '0') {
+                length++;
+            }
+        }
+        return new TraceLoss(hits, length, file);
+    }
+
+    @Override
+    public boolean next(double time) {
+        boolean hit = hits.get(position);
+        position++;
+        if (position == length) {
+            position = 0;
+        }
+        return hit;
+    }
+
+    // the number of decisions in the pattern
+    public int getLength() {
+        return length;
+    }
+
+    @Override
+    public String toString() {
+        return "trace:" + source;
+    }
+}
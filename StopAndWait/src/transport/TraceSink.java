@@ -0,0 +1,13 @@
+package transport;
+
+/**
+ * Destination of the lines written to a Trace
+ */
+public interface TraceSink {
+
+    void println(String line);
+
+    void flush();
+
+    void close();
+}
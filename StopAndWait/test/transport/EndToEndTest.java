@@ -0,0 +1,91 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.junit.Test;
+
+/**
+ * Runs whole simulations of every protocol of this project on every scheduler, and checks that the receiver's application
+ * gets every message once, uncorrupted and in order.
+ */
+public class EndToEndTest {
+
+    private static final String DELIVERY = "deliverData: data received at ";
+
+    // a trace sink keeping the payloads the receivers deliver, in order
+    private static class Deliveries implements TraceSink {
+
+        final List<String> payloads = new ArrayList<>();
+
+        @Override
+        public void println(String line) {
+            if (line.startsWith(DELIVERY)) {
+                payloads.add(line.substring(line.indexOf(':', DELIVERY.length()) + 1));
+            }
+        }
+
+        @Override
+        public void flush() {
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    // runs a simulation whose send queue holds every message, so that the application never has one refused
+    static NetworkSimulator run(Protocol protocol, SchedulerType scheduler, int messages, double loss, double corrupt, long seed,
+            Deliveries deliveries) {
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(new Trace(TraceLevel.PACKET, deliveries));
+        simulator.setProtocol(protocol);
+        simulator.setSendQueueCapacity(messages);
+        simulator.initSimulator(messages, loss, corrupt, 10.0, seed, scheduler);
+        simulator.runSimulator();
+        return simulator;
+    }
+
+    private static void assertInOrder(String run, int messages, List<String> payloads) {
+        assertEquals(run + ": messages delivered", messages, payloads.size());
+        for (int i = 0; i < messages; i++) {
+            byte[] expected = new byte[NetworkSimulator.MAXDATASIZE];
+            Arrays.fill(expected, (byte) ('a' + i % 26));
+            assertEquals(run + ": message " + (i + 1), new String(expected, StandardCharsets.ISO_8859_1), payloads.get(i));
+        }
+    }
+
+    private static void deliversInOrder(double loss, double corrupt) {
+        int messages = 300;
+        for (Protocol protocol : Protocol.values()) {
+            NetworkSimulator[] runs = new NetworkSimulator[SchedulerType.values().length];
+            for (SchedulerType scheduler : SchedulerType.values()) {
+                String run = protocol + "/" + scheduler + " loss " + loss + " corrupt " + corrupt;
+                Deliveries deliveries = new Deliveries();
+                NetworkSimulator simulator = run(protocol, scheduler, messages, loss, corrupt, 1L, deliveries);
+                assertInOrder(run, messages, deliveries.payloads);
+                assertEquals(run + ": corruptions undetected", 0, simulator.getMetrics().getCorruptionsUndetected());
+                runs[scheduler.ordinal()] = simulator;
+            }
+
+            // the schedulers break ties the same way, so the runs are identical
+            for (NetworkSimulator simulator : runs) {
+                assertEquals(protocol + ": events", runs[0].getnEvents(), simulator.getnEvents());
+                assertEquals(protocol + ": end time", runs[0].getTime(), simulator.getTime(), 0.0);
+            }
+        }
+    }
+
+    @Test(timeout = 60000)
+    public void deliversInOrderOverAPerfectChannel() {
+        deliversInOrder(0.0, 0.0);
+    }
+
+    @Test(timeout = 60000)
+    public void deliversInOrderOverALossyChannel() {
+        deliversInOrder(0.2, 0.2);
+    }
+}
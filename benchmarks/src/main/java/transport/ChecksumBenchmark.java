@@ -0,0 +1,70 @@
+package transport;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The packet checksums, over a data packet, a data packet with a corrupted payload byte and an (empty) ACK.
+ * CRC32C_TABLE is the table-driven CRC-32C used when the JDK has no java.util.zip.CRC32C.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChecksumBenchmark {
+
+    @Param({"SUM", "INTERNET", "CRC32C", "CRC32C_TABLE"})
+    public String algorithm;
+
+    @Param({"20", "1024"})
+    public int payloadSize;
+
+    private PacketChecksum checksum;
+    private Packet data;
+    private Packet corrupted;
+    private Packet ack;
+
+    @Setup
+    public void setup() {
+        if (algorithm.equals("CRC32C_TABLE")) {
+            checksum = new Crc32cChecksum(new Crc32c());
+        } else {
+            checksum = ChecksumType.valueOf(algorithm).create();
+        }
+
+        byte[] payload = new byte[payloadSize];
+        Arrays.fill(payload, (byte) 'a');
+        data = new Packet(1, 0, 0, payload);
+        corrupted = new Packet(data);
+        corrupted.corruptPayloadByte(0, (byte) '=');
+        ack = new Packet(0, 1, 0);
+    }
+
+    @Benchmark
+    public int dataPacket() {
+        return checksum.compute(data);
+    }
+
+    @Benchmark
+    public int corruptedPacket() {
+        return checksum.compute(corrupted);
+    }
+
+    @Benchmark
+    public int ackPacket() {
+        return checksum.compute(ack);
+    }
+}
@@ -0,0 +1,99 @@
+package transport;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * EventList operations at a steady queue size ("hold" model: every removed event is rescheduled in the future).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EventListBenchmark {
+
+    private static final int INCREMENTS = 1 << 12;     // power of two
+    private static final int WINDOW = 64;               // power of two
+
+    @Param({"HEAP", "CALENDAR"})
+    public SchedulerType scheduler;
+
+    @Param({"16", "1024", "65536"})
+    public int size;
+
+    private EventList list;
+    private double[] increments;
+    private int next;
+    private double now;
+    private TimerHandle timer;
+    private TimerHandle[] window;
+
+    @Setup
+    public void setup() {
+        Random rand = new Random(1);
+
+        // the same delay distribution udtSend uses
+        increments = new double[INCREMENTS];
+        for (int i = 0; i < INCREMENTS; i++) {
+            increments[i] = 1.0 + Math.abs(5.0 * rand.nextGaussian() + 9.0);
+        }
+
+        list = new EventList(scheduler);
+        for (int i = 0; i < size; i++) {
+            list.add(new Event(increments[i & (INCREMENTS - 1)] * rand.nextDouble() * 10, EventType.FROMNETWORK, NetworkSimulator.B));
+        }
+        next = 0;
+        now = 0.0;
+
+        timer = new TimerHandle(NetworkSimulator.A, 0);
+        window = new TimerHandle[WINDOW];
+        for (int i = 0; i < WINDOW; i++) {
+            window[i] = new TimerHandle(NetworkSimulator.A, i);
+        }
+    }
+
+    private double increment() {
+        return increments[next++ & (INCREMENTS - 1)];
+    }
+
+    // removeNext followed by add of the same event
+    @Benchmark
+    public Event hold() {
+        Event e = list.removeNext();
+        now = e.getTime();
+        e.setTime(now + increment());
+        list.add(e);
+        return e;
+    }
+
+    // a cumulative ACK arrives and the sender restarts its timer, as Go-Back-N does on every ACK
+    @Benchmark
+    public Event holdAndRestartTimer() {
+        Event e = hold();
+        list.startTimer(timer, now + 40);
+        return e;
+    }
+
+    // one timer per packet in the window, as Selective Repeat does: each ACK stops one and the next send starts it again
+    @Benchmark
+    public Event holdAndRestartWindowTimer() {
+        Event e = hold();
+        TimerHandle t = window[next & (WINDOW - 1)];
+        list.stopTimer(t);
+        list.startTimer(t, now + 40);
+        return e;
+    }
+}
@@ -0,0 +1,56 @@
+package transport;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The draws the channel makes for every packet (a uniform loss or corruption decision, a Gaussian delay),
+ * from the shared java.util.Random the simulator used to draw from and from a RandomStream.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RandomBenchmark {
+
+    private Random random;
+    private RandomStream stream;
+
+    @Setup
+    public void setup() {
+        random = new Random(1);
+        stream = RandomStream.create(1, RandomStream.Purpose.DELAY, 0);
+    }
+
+    @Benchmark
+    public double randomDouble() {
+        return random.nextDouble();
+    }
+
+    @Benchmark
+    public double streamDouble() {
+        return stream.nextDouble();
+    }
+
+    @Benchmark
+    public double randomGaussian() {
+        return random.nextGaussian();
+    }
+
+    @Benchmark
+    public double streamGaussian() {
+        return stream.nextGaussian();
+    }
+}
@@ -0,0 +1,73 @@
+package transport;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A complete run of NetworkSimulator.runSimulator with tracing off.
+ * Besides runs per second, the "events" counter reports simulated events processed per second.
+ * (WindowBenchmark runs the sliding window protocols over a range of windows.)
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SimulatorBenchmark {
+
+    @Param({"1000", "10000"})
+    public int messages;
+
+    @Param({"0.0", "0.1"})
+    public double loss;
+
+    @Param({"0.0"})
+    public double corrupt;
+
+    @Param({"10.0"})
+    public double delay;
+
+    private long seed;
+
+    // events processed, reported by JMH as a rate next to the benchmark score
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Events {
+
+        public long events;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            events = 0;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        seed = 1;
+    }
+
+    @Benchmark
+    public double run(Events counter) {
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.initSimulator(messages, loss, corrupt, delay, seed++);
+        simulator.runSimulator();
+
+        counter.events += simulator.getnEvents();
+        return simulator.getTime();
+    }
+}
@@ -0,0 +1,61 @@
+package transport;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * NetworkHost.udtSend: copying, losing, corrupting and scheduling one data packet.
+ * The scheduled arrival is removed again so that the event list stays small.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class UdtSendBenchmark {
+
+    @Param({"0.0", "0.2"})
+    public double loss;
+
+    @Param({"0.0", "0.2"})
+    public double corrupt;
+
+    private NetworkSimulator simulator;
+    private NetworkHost sender;
+    private Packet packet;
+
+    @Setup
+    public void setup() {
+        simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.initSimulator(1, loss, corrupt, 10.0, 1);
+
+        sender = simulator.getProtocol().createSender(NetworkSimulator.A);
+        sender.setSimulator(simulator);
+
+        packet = new Packet(1, 0, 1961, new Message("aaaaaaaaaaaaaaaaaaaa").getData());
+    }
+
+    @Benchmark
+    public Event udtSend() {
+        sender.udtSend(packet);
+        Event arrival = simulator.getEventList().removeNext();
+        if (arrival != null) {
+            // hand the pooled copy and event back, as the simulation loop does
+            simulator.releasePacket(arrival.getPacket());
+            simulator.getEventList().release(arrival);
+        }
+        return arrival;
+    }
+}
@@ -0,0 +1,60 @@
+package transport;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * A complete run of NetworkSimulator.runSimulator with tracing off, like SimulatorBenchmark, for a range of window sizes
+ * with and without congestion control.
+ * Only the projects with sliding window senders have windows, so the StopAndWait build leaves this benchmark out (see pom.xml).
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WindowBenchmark {
+
+    @Param({"10000"})
+    public int messages;
+
+    @Param({"0.0", "0.1"})
+    public double loss;
+
+    @Param({"8", "16"})
+    public int window;
+
+    @Param({"false", "true"})
+    public boolean congestionControl;
+
+    private long seed;
+
+    @Setup
+    public void setup() {
+        seed = 1;
+    }
+
+    @Benchmark
+    public double run(SimulatorBenchmark.Events counter) {
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.setWindowSize(window);
+        simulator.setCongestionControl(congestionControl);
+        simulator.initSimulator(messages, loss, 0.0, 10.0, seed++);
+        simulator.runSimulator();
+
+        counter.events += simulator.getnEvents();
+        return simulator.getTime();
+    }
+}
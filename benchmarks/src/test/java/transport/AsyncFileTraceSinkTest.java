@@ -0,0 +1,65 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import static org.junit.Assume.assumeTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that the background writer gets every line to the file in order, and that a failing writer makes the simulation thread
+ * throw rather than block forever on a queue nobody drains.
+ */
+public class AsyncFileTraceSinkTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test(timeout = 10000)
+    public void writesEveryLineInOrder() throws IOException {
+        File file = folder.newFile("trace.txt");
+        AsyncFileTraceSink sink = new AsyncFileTraceSink(file.getPath());
+        for (int i = 0; i < 100000; i++) {
+            sink.println("line " + i);
+        }
+        sink.close();
+
+        List<String> lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertEquals(100000, lines.size());
+        for (int i = 0; i < lines.size(); i++) {
+            assertEquals("line " + i, lines.get(i));
+        }
+    }
+
+    @Test(timeout = 10000)
+    public void aWriteFailureIsThrownInsteadOfBlocking() throws IOException {
+        // every write to /dev/full fails with "no space left on device"
+        File full = new File("/dev/full");
+        assumeTrue(full.canWrite());
+
+        AsyncFileTraceSink sink = new AsyncFileTraceSink(full.getPath());
+        try {
+            // far more than the queue holds: once the writer has failed, nothing drains it
+            for (int i = 0; i < 1000000; i++) {
+                sink.println("a line long enough to fill the writer's buffer quickly " + i);
+            }
+            fail("the writer's failure was not reported");
+        } catch (UncheckedIOException expected) {
+            // the failure is reported again by close
+            try {
+                sink.close();
+                fail("close did not report the failure");
+            } catch (UncheckedIOException again) {
+                assertEquals(expected.getCause(), again.getCause());
+            }
+        }
+    }
+}
@@ -0,0 +1,139 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks that channel decisions written by a ChannelRecorder are read back by a ChannelReplay exactly, per flow and direction,
+ * and that replaying a run's recording reproduces the run.
+ */
+public class ChannelReplayTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static ChannelDecision decision(boolean lost, int corruption, int corruptionValue, double delay) {
+        ChannelDecision d = new ChannelDecision();
+        d.lost = lost;
+        d.corruption = corruption;
+        d.corruptionValue = corruptionValue;
+        d.delay = delay;
+        return d;
+    }
+
+    private static void assertDecision(String what, ChannelDecision expected, ChannelDecision actual) {
+        assertEquals(what + ": lost", expected.isLost(), actual.isLost());
+        assertEquals(what + ": corruption", expected.getCorruption(), actual.getCorruption());
+        assertEquals(what + ": corruption value", expected.getCorruptionValue(), actual.getCorruptionValue());
+        assertEquals(what + ": has delay", expected.hasDelay(), actual.hasDelay());
+        if (expected.hasDelay()) {
+            assertEquals(what + ": delay", expected.getDelay(), actual.getDelay(), 0.0);
+        }
+    }
+
+    @Test
+    public void decisionsRoundTripPerFlowAndDirection() throws IOException {
+        ChannelDecision[] decisions = {
+            decision(true, ChannelDecision.NONE, 0, Double.NaN),
+            decision(false, ChannelDecision.NONE, 0, 3.25),
+            decision(false, ChannelDecision.PAYLOAD, 0, 0.0),
+            decision(false, ChannelDecision.SEQNUM, Integer.MAX_VALUE, 12.5),
+            decision(false, ChannelDecision.ACKNUM, 7, Double.NaN),
+        };
+        int[] flows = {0, 1, 127, 128, 40000};      // one, two and three byte varints
+
+        File file = folder.newFile("channel.arqc");
+        try (ChannelRecorder recorder = new ChannelRecorder(file.getPath())) {
+            // interleave the flows and directions, as a run does
+            // the receivers' packets get the decisions in reverse
+            for (int i = 0; i < decisions.length; i++) {
+                for (int flow : flows) {
+                    recorder.record(flow, true, decisions[i]);
+                    recorder.record(flow, false, decisions[decisions.length - 1 - i]);
+                }
+            }
+            assertEquals(2L * decisions.length * flows.length, recorder.getRecords());
+        }
+
+        ChannelReplay replay = ChannelReplay.load(file.getPath());
+        assertEquals(2L * decisions.length * flows.length, replay.getRecords());
+
+        // read back in another order: each flow and direction is its own sequence
+        ChannelDecision out = new ChannelDecision();
+        for (int flow : flows) {
+            for (int i = 0; i < decisions.length; i++) {
+                assertTrue(replay.next(flow, false, out));
+                assertDecision("flow " + flow + " reverse " + i, decisions[decisions.length - 1 - i], out);
+            }
+            for (int i = 0; i < decisions.length; i++) {
+                assertTrue(replay.next(flow, true, out));
+                assertDecision("flow " + flow + " forward " + i, decisions[i], out);
+            }
+            assertFalse(replay.next(flow, true, out));
+        }
+        assertFalse(replay.next(2, true, out));
+        assertEquals(2L * decisions.length * flows.length, replay.getReplayed());
+        assertEquals(flows.length + 1, replay.getExhausted());
+    }
+
+    @Test(expected = IOException.class)
+    public void otherFilesAreRejected() throws IOException {
+        File file = folder.newFile("not-a-recording");
+        Files.write(file.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        ChannelReplay.load(file.getPath());
+    }
+
+    private static NetworkSimulator run(Protocol protocol, double loss, double corrupt, ChannelRecorder recorder, ChannelReplay replay) {
+        NetworkSimulator simulator = new NetworkSimulator();
+        simulator.setTrace(Trace.OFF);
+        simulator.setProtocol(protocol);
+        simulator.setSendQueueCapacity(300);
+        simulator.setChannelRecorder(recorder);
+        simulator.setChannelReplay(replay);
+        simulator.initSimulator(300, loss, corrupt, 10.0, 3L);
+        simulator.runSimulator();
+        return simulator;
+    }
+
+    @Test
+    public void replayingARecordingReproducesTheRun() throws IOException {
+        File file = folder.newFile("run.arqc");
+        NetworkSimulator recorded;
+        try (ChannelRecorder recorder = new ChannelRecorder(file.getPath())) {
+            recorded = run(Protocol.DEFAULT, 0.2, 0.2, recorder, null);
+        }
+
+        // the loss and corruption probabilities no longer matter: every decision comes from the recording
+        ChannelReplay replay = ChannelReplay.load(file.getPath());
+        NetworkSimulator replayed = run(Protocol.DEFAULT, 0.0, 0.0, null, replay);
+        assertEquals(recorded.getnEvents(), replayed.getnEvents());
+        assertEquals(recorded.getTime(), replayed.getTime(), 0.0);
+        assertEquals(recorded.getMetrics().getPacketsLost(), replayed.getMetrics().getPacketsLost());
+        assertEquals(recorded.getMetrics().getPacketsCorrupted(), replayed.getMetrics().getPacketsCorrupted());
+        assertEquals(replay.getRecords(), replay.getReplayed());
+        assertEquals(0, replay.getExhausted());
+    }
+
+    @Test
+    public void everyProtocolDeliversOverAnotherProtocolsRecording() throws IOException {
+        File file = folder.newFile("default.arqc");
+        try (ChannelRecorder recorder = new ChannelRecorder(file.getPath())) {
+            run(Protocol.DEFAULT, 0.2, 0.2, recorder, null);
+        }
+
+        for (Protocol protocol : Protocol.values()) {
+            ChannelReplay replay = ChannelReplay.load(file.getPath());
+            NetworkSimulator simulator = run(protocol, 0.2, 0.2, null, replay);
+            assertEquals(protocol.name(), 300, simulator.getMetrics().getMessagesDelivered());
+            assertTrue(protocol.name(), replay.getReplayed() > 0);
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assume.assumeTrue;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+import java.util.zip.Checksum;
+import org.junit.Test;
+
+/**
+ * Checks both CRC-32C implementations Crc32cChecksum can use, the JDK's (found by reflection, Java 9 on) and the table-driven
+ * fallback, against the test vectors of RFC 3720 (B.4), and against each other on packets.
+ */
+public class Crc32cTest {
+
+    private static final byte[] ZEROS = new byte[32];
+    private static final byte[] ONES = new byte[32];
+    private static final byte[] INCREASING = new byte[32];
+    private static final byte[] DECREASING = new byte[32];
+
+    static {
+        for (int i = 0; i < 32; i++) {
+            ONES[i] = (byte) 0xff;
+            INCREASING[i] = (byte) i;
+            DECREASING[i] = (byte) (31 - i);
+        }
+    }
+
+    private static long crc(Checksum crc, byte[] data) {
+        crc.reset();
+        crc.update(data, 0, data.length);
+        return crc.getValue();
+    }
+
+    private static void assertKnownVectors(Checksum crc) {
+        assertEquals(0x00000000L, crc(crc, new byte[0]));
+        assertEquals(0xE3069283L, crc(crc, "123456789".getBytes(StandardCharsets.US_ASCII)));
+        assertEquals(0x8A9136AAL, crc(crc, ZEROS));
+        assertEquals(0x62A8AB43L, crc(crc, ONES));
+        assertEquals(0x46DD794EL, crc(crc, INCREASING));
+        assertEquals(0x113FDB5CL, crc(crc, DECREASING));
+    }
+
+    @Test
+    public void tableDrivenFallbackMatchesTheKnownVectors() {
+        assertKnownVectors(new Crc32c());
+    }
+
+    @Test
+    public void reflectivelyLoadedCrc32cMatchesTheKnownVectors() {
+        assumeTrue("java.util.zip.CRC32C needs Java 9", new Crc32cChecksum().isIntrinsic());
+        assertKnownVectors(Crc32cChecksum.newCrc32c());
+    }
+
+    @Test
+    public void aByteAtATimeMatchesAnArrayAtATime() {
+        Crc32c crc = new Crc32c();
+        for (byte b : INCREASING) {
+            crc.update(b);
+        }
+        assertEquals(0x46DD794EL, crc.getValue());
+    }
+
+    @Test
+    public void bothImplementationsAgreeOnPackets() {
+        Crc32cChecksum fallback = new Crc32cChecksum(new Crc32c());
+        Crc32cChecksum loaded = new Crc32cChecksum();
+        SplittableRandom rand = new SplittableRandom(3L);
+
+        for (int i = 0; i < 1000; i++) {
+            byte[] payload = new byte[rand.nextInt(NetworkSimulator.MAXDATASIZE + 1)];
+            for (int j = 0; j < payload.length; j++) {
+                payload[j] = (byte) rand.nextInt(256);
+            }
+            Packet p = new Packet(rand.nextInt(), rand.nextInt(), 0, payload);
+            int intact = fallback.compute(p);
+            assertEquals(intact, loaded.compute(p));
+
+            // corrupted through the overlay, as the channel does it: both see the flipped bit, which a CRC always detects
+            if (payload.length > 0) {
+                int offset = rand.nextInt(payload.length);
+                p.corruptPayloadByte(offset, (byte) (payload[offset] ^ (1 << rand.nextInt(8))));
+                int corrupted = fallback.compute(p);
+                assertEquals(corrupted, loaded.compute(p));
+                assertNotEquals(intact, corrupted);
+            }
+        }
+    }
+}
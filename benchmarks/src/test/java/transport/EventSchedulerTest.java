@@ -0,0 +1,123 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Checks that every SchedulerType returns events in time order, ties in the order they were added,
+ * so that the heap and the calendar queue run a simulation identically.
+ */
+public class EventSchedulerTest {
+
+    private static Event event(double time, long order) {
+        Event e = new Event(time, EventType.FROMAPP, NetworkSimulator.A);
+        e.setOrder(order);
+        return e;
+    }
+
+    @Test
+    public void emptySchedulerReturnsNull() {
+        for (SchedulerType type : SchedulerType.values()) {
+            EventScheduler scheduler = type.create();
+            assertNull(type.name(), scheduler.removeNext());
+            assertEquals(type.name(), 0, scheduler.size());
+        }
+    }
+
+    @Test
+    public void eventsAtTheSameTimeComeOutFirstInFirstOut() {
+        for (SchedulerType type : SchedulerType.values()) {
+            EventScheduler scheduler = type.create();
+            List<Event> added = new ArrayList<>();
+            for (int i = 0; i < 100; i++) {
+                Event e = event(5.0, i);
+                added.add(e);
+                scheduler.add(e);
+            }
+            for (Event e : added) {
+                assertSame(type.name(), e, scheduler.removeNext());
+            }
+            assertNull(type.name(), scheduler.removeNext());
+        }
+    }
+
+    @Test
+    public void heapAndCalendarReturnTheSameSequence() {
+        List<List<Event>> sequences = new ArrayList<>();
+        for (SchedulerType type : SchedulerType.values()) {
+            sequences.add(interleave(type.create(), 12345L));
+        }
+
+        List<Event> heap = sequences.get(0);
+        for (List<Event> other : sequences) {
+            assertEquals(heap.size(), other.size());
+            for (int i = 0; i < heap.size(); i++) {
+                assertEquals("event " + i, heap.get(i).getOrder(), other.get(i).getOrder());
+            }
+        }
+        for (int i = 1; i < heap.size(); i++) {
+            assertTrue("event " + i + " out of order", heap.get(i - 1).isBefore(heap.get(i)));
+        }
+    }
+
+    // adds and removes events the way a simulation does: never scheduling before the last removed event,
+    // with many ties (whole time units) and a wide spread of delays; returns the events in the order they were removed
+    private static List<Event> interleave(EventScheduler scheduler, long seed) {
+        SplittableRandom rand = new SplittableRandom(seed);
+        List<Event> removed = new ArrayList<>();
+        double now = 0.0;
+        long order = 0;
+
+        for (int step = 0; step < 20000; step++) {
+            if (scheduler.size() == 0 || rand.nextInt(3) != 0) {
+                double delay = (rand.nextInt(10) == 0) ? rand.nextInt(5000) : rand.nextInt(20);
+                scheduler.add(event(now + delay, order++));
+            } else {
+                Event e = scheduler.removeNext();
+                now = e.getTime();
+                removed.add(e);
+            }
+        }
+        for (Event e = scheduler.removeNext(); e != null; e = scheduler.removeNext()) {
+            removed.add(e);
+        }
+        assertEquals(order, removed.size());
+        return removed;
+    }
+
+    @Test
+    public void removedEventsAreNotReturned() {
+        for (SchedulerType type : SchedulerType.values()) {
+            EventScheduler scheduler = type.create();
+            List<Event> added = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                Event e = event(i % 7, i);
+                added.add(e);
+                scheduler.add(e);
+            }
+
+            for (int i = 0; i < added.size(); i += 3) {
+                assertTrue(type.name(), scheduler.remove(added.get(i)));
+                assertFalse(type.name() + " removed twice", scheduler.remove(added.get(i)));
+            }
+            assertEquals(type.name(), 50 - 17, scheduler.size());
+
+            Event previous = null;
+            for (Event e = scheduler.removeNext(); e != null; e = scheduler.removeNext()) {
+                assertTrue(type.name(), e.getOrder() % 3 != 0);
+                if (previous != null) {
+                    assertTrue(type.name(), previous.isBefore(e));
+                }
+                previous = e;
+            }
+        }
+    }
+}
@@ -0,0 +1,78 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Reads back traces written by EventTraceWriter, across segment rotations, both closed and cut short by a run that never
+ * closed its last segment.
+ */
+public class EventTraceReaderTest {
+
+    private static final long SEGMENT_SIZE = EventTraceWriter.HEADER_SIZE + 10 * EventTraceWriter.RECORD_SIZE;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static void write(EventTraceWriter writer, int records) {
+        for (int i = 0; i < records; i++) {
+            writer.recordLoss(i + 1.0, NetworkSimulator.B, new Packet(i, 0, 0));
+        }
+    }
+
+    private static List<Integer> seqnums(String prefix) throws IOException {
+        List<Integer> seqnums = new ArrayList<>();
+        long read = new EventTraceReader(prefix).forEach(record -> seqnums.add(record.getSeqnum()));
+        assertEquals(seqnums.size(), read);
+        return seqnums;
+    }
+
+    private static void assertSequence(int records, List<Integer> seqnums) {
+        assertEquals(records, seqnums.size());
+        for (int i = 0; i < records; i++) {
+            assertEquals(i, (int) seqnums.get(i));
+        }
+    }
+
+    @Test
+    public void readsEveryRecordOfAClosedTrace() throws IOException {
+        String prefix = folder.getRoot().getPath() + "/closed";
+        EventTraceWriter writer = new EventTraceWriter(prefix, SEGMENT_SIZE);
+        write(writer, 25);
+        writer.close();
+
+        assertSequence(25, seqnums(prefix));
+    }
+
+    @Test
+    public void stopsAtTheEndOfASegmentThatWasNeverClosed() throws IOException {
+        String prefix = folder.getRoot().getPath() + "/unclosed";
+        EventTraceWriter writer = new EventTraceWriter(prefix, SEGMENT_SIZE);
+        try {
+            // two full segments and a third, still mapped at its full size with a zero count, holding 5 records
+            write(writer, 25);
+
+            List<Integer> seqnums = seqnums(prefix);
+            assertSequence(25, seqnums);
+        } finally {
+            writer.close();
+        }
+    }
+
+    @Test
+    public void readsNothingFromAnEmptyUnclosedSegment() throws IOException {
+        String prefix = folder.getRoot().getPath() + "/empty";
+        EventTraceWriter writer = new EventTraceWriter(prefix, SEGMENT_SIZE);
+        try {
+            assertEquals(0, seqnums(prefix).size());
+        } finally {
+            writer.close();
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Checks the hit rates and bursts of the random loss models against their parameters with a fixed seed, the outage windows,
+ * the replay of a loss trace, and which specs LossModel.parse accepts.
+ */
+public class LossModelTest {
+
+    private static final int PACKETS = 200000;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static double hitRate(LossModel model) {
+        int hits = 0;
+        for (int i = 0; i < PACKETS; i++) {
+            if (model.next(i)) {
+                hits++;
+            }
+        }
+        return (double) hits / PACKETS;
+    }
+
+    @Test
+    public void bernoulliHitsAtItsProbability() {
+        assertEquals(0.2, hitRate(new BernoulliLoss(new RandomStream(1L), 0.2)), 0.005);
+        assertEquals(0.0, hitRate(new BernoulliLoss(new RandomStream(1L), 0.0)), 0.0);
+        assertEquals(1.0, hitRate(new BernoulliLoss(new RandomStream(1L), 1.0)), 0.0);
+    }
+
+    @Test
+    public void gilbertWithBurstsHitsAtItsRateInBurstsOfItsMeanLength() {
+        GilbertElliottLoss model = GilbertElliottLoss.withBursts(new RandomStream(1L), 0.1, 5.0);
+        assertEquals(0.1, model.getRate(), 1e-12);
+
+        int hits = 0;
+        int bursts = 0;
+        boolean previous = false;
+        for (int i = 0; i < PACKETS; i++) {
+            boolean hit = model.next(i);
+            if (hit) {
+                hits++;
+                if (!previous) {
+                    bursts++;
+                }
+            }
+            previous = hit;
+        }
+        assertEquals(0.1, (double) hits / PACKETS, 0.01);
+        assertEquals(5.0, (double) hits / bursts, 0.5);
+    }
+
+    @Test
+    public void gilbertElliottHitsAtTheRateOfItsStates() {
+        // bad 0.05 / (0.05 + 0.2) = 20% of the time: 0.2 * 0.5 + 0.8 * 0.01
+        GilbertElliottLoss model = new GilbertElliottLoss(new RandomStream(1L), 0.05, 0.2, 0.01, 0.5);
+        assertEquals(0.108, model.getRate(), 1e-12);
+        assertEquals(0.108, hitRate(model), 0.01);
+
+        // a hit makes the next one far more likely than the rate: the chain is probably in its bad state
+        model = new GilbertElliottLoss(new RandomStream(2L), 0.05, 0.2, 0.01, 0.5);
+        int hits = 0;
+        int hitsAfterHits = 0;
+        boolean previous = false;
+        for (int i = 0; i < PACKETS; i++) {
+            boolean hit = model.next(i);
+            if (previous) {
+                hits++;
+                if (hit) {
+                    hitsAfterHits++;
+                }
+            }
+            previous = hit;
+        }
+        assertTrue(hitsAfterHits + " hits after " + hits, (double) hitsAfterHits / hits > 2 * 0.108);
+    }
+
+    @Test
+    public void theSameSeedGivesTheSameHits() {
+        LossModel a = LossModel.parse("gilbert:0.1,5", new RandomStream(7L));
+        LossModel b = LossModel.parse("gilbert:0.1,5", new RandomStream(7L));
+        for (int i = 0; i < 10000; i++) {
+            assertEquals("packet " + i, a.next(i), b.next(i));
+        }
+    }
+
+    @Test
+    public void outagesHitEveryPacketSentWhileTheChannelIsDown() {
+        OutageLoss model = new OutageLoss(100.0, 10.0, 50.0);
+        assertFalse(model.next(0.0));
+        assertFalse(model.next(49.9));
+        assertTrue(model.next(50.0));
+        assertTrue(model.next(59.9));
+        assertFalse(model.next(60.0));
+        assertFalse(model.next(149.9));
+        assertTrue(model.next(150.0));
+        assertTrue(model.next(1059.0));
+        assertFalse(model.next(1060.0));
+
+        OutageLoss never = new OutageLoss(100.0, 0.0, 0.0);
+        for (int t = 0; t < 1000; t++) {
+            assertFalse(never.next(t));
+        }
+    }
+
+    @Test
+    public void aTraceIsReplayedAndStartsOverAtItsEnd() throws IOException {
+        File file = folder.newFile("loss.txt");
+        Files.write(file.toPath(), "# lost packets\n1\n0 0 # two delivered, 1 ignored\n1\n".getBytes(StandardCharsets.ISO_8859_1));
+
+        TraceLoss model = TraceLoss.load(file.getPath());
+        assertEquals(4, model.getLength());
+        boolean[] expected = { true, false, false, true };
+        for (int i = 0; i < 3 * expected.length; i++) {
+            assertEquals("packet " + i, expected[i % expected.length], model.next(i));
+        }
+    }
+
+    @Test
+    public void aTraceWithoutDecisionsIsRejected() throws IOException {
+        File file = folder.newFile("empty.txt");
+        Files.write(file.toPath(), "# nothing but a comment 0101\n".getBytes(StandardCharsets.ISO_8859_1));
+        try {
+            TraceLoss.load(file.getPath());
+            fail("an empty trace was accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void parseCreatesTheModelOfTheSpec() throws IOException {
+        RandomStream rand = new RandomStream(1L);
+        assertEquals("bernoulli:0.25", LossModel.parse("bernoulli:0.25", rand).toString());
+        assertEquals("bernoulli:0.25", LossModel.parse(" Bernoulli : 0.25 ", rand).toString());
+        assertEquals("gilbert:0.05,0.2,0.01,0.5", LossModel.parse("gilbert:0.05,0.2,0.01,0.5", rand).toString());
+        assertEquals("outage:100.0,10.0,0.0", LossModel.parse("outage:100,10", rand).toString());
+        assertEquals("outage:100.0,10.0,50.0", LossModel.parse("outage:100,10,50", rand).toString());
+
+        GilbertElliottLoss gilbert = (GilbertElliottLoss) LossModel.parse("gilbert:0.1,5", rand);
+        assertEquals(0.1, gilbert.getRate(), 1e-12);
+
+        File file = folder.newFile("loss.txt");
+        Files.write(file.toPath(), "0110".getBytes(StandardCharsets.ISO_8859_1));
+        assertEquals(4, ((TraceLoss) LossModel.parse("trace:" + file.getPath(), rand)).getLength());
+    }
+
+    @Test
+    public void parseRejectsMalformedSpecs() {
+        String[] specs = {
+            "", "nosuch:0.1", "bernoulli", "bernoulli:", "bernoulli:x", "bernoulli:0.1,0.2", "bernoulli:1.5", "bernoulli:-0.1",
+            "gilbert:0.1", "gilbert:0.1,5,1", "gilbert:1.0,5", "gilbert:0.1,0.5", "gilbert:0.1,0.2,0.3,2",
+            "outage:100", "outage:100,10,0,1", "outage:0,0", "outage:10,20"
+        };
+        RandomStream rand = new RandomStream(1L);
+        for (String spec : specs) {
+            try {
+                LossModel.parse(spec, rand);
+                fail("accepted \"" + spec + "\"");
+            } catch (IllegalArgumentException expected) {
+            }
+        }
+    }
+
+    @Test(expected = UncheckedIOException.class)
+    public void parseReportsAnUnreadableTrace() {
+        LossModel.parse("trace:" + folder.getRoot().getPath() + "/missing.txt", new RandomStream(1L));
+    }
+}
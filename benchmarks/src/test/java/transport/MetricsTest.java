@@ -0,0 +1,66 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.io.StringWriter;
+import org.junit.Test;
+
+/**
+ * Checks that the window series stays within MAX_WINDOW_POINTS however often the window changes, while the mean window
+ * still counts every change.
+ */
+public class MetricsTest {
+
+    @Test
+    public void theWindowSeriesKeepsEveryChangeUpToItsCap() {
+        Metrics metrics = new Metrics();
+        metrics.windowChanged(0.0, 1.0);
+        metrics.windowChanged(5.0, 1.0);    // not a change
+        metrics.windowChanged(10.0, 4.0);
+        metrics.windowChanged(30.0, 2.0);
+
+        assertEquals(3, metrics.getWindowChanges());
+        assertEquals(3, metrics.getWindowPoints());
+        assertEquals(4.0, metrics.getMaxWindow(), 0.0);
+        assertEquals((1.0 * 10 + 4.0 * 20 + 2.0 * 10) / 40, metrics.getMeanWindow(40.0), 1e-12);
+
+        StringWriter csv = new StringWriter();
+        metrics.writeWindowSeries(csv);
+        assertEquals(String.format("time,window%n0.000000,1.0%n10.000000,4.0%n30.000000,2.0%n"), csv.toString());
+    }
+
+    @Test
+    public void aLongRunIsDownsampledButItsMeanIsExact() {
+        Metrics metrics = new Metrics();
+        int changes = 100 * Metrics.MAX_WINDOW_POINTS + 7;
+        double area = 0.0;
+        for (int i = 0; i < changes; i++) {
+            double window = 1 + i % 3;
+            metrics.windowChanged(i, window);
+            area += window;
+        }
+
+        assertEquals(changes, metrics.getWindowChanges());
+        assertTrue(metrics.getWindowPoints() + " points", metrics.getWindowPoints() <= Metrics.MAX_WINDOW_POINTS);
+        assertTrue(metrics.getWindowPoints() + " points", metrics.getWindowPoints() > Metrics.MAX_WINDOW_POINTS / 2);
+        assertEquals(3.0, metrics.getMaxWindow(), 0.0);
+        assertEquals(area / changes, metrics.getMeanWindow(changes), 1e-9);
+
+        // the points kept are evenly spread over the whole run, from its first change
+        String[] rows = csvRows(metrics);
+        assertEquals(metrics.getWindowPoints() + 1, rows.length);
+        assertEquals("0.000000,1.0", rows[1]);
+        double step = Double.parseDouble(rows[2].split(",")[0]);
+        for (int i = 1; i < rows.length; i++) {
+            assertEquals(rows[i], (i - 1) * step, Double.parseDouble(rows[i].split(",")[0]), 0.0);
+        }
+        assertTrue(rows[rows.length - 1], Double.parseDouble(rows[rows.length - 1].split(",")[0]) > changes - step - 1);
+    }
+
+    private static String[] csvRows(Metrics metrics) {
+        StringWriter csv = new StringWriter();
+        metrics.writeWindowSeries(csv);
+        return csv.toString().split(System.lineSeparator());
+    }
+}
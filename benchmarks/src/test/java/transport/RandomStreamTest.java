@@ -0,0 +1,97 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.junit.Test;
+
+/**
+ * Checks that RandomStreams are reproducible from their seed, purpose and index, and independent of each other.
+ */
+public class RandomStreamTest {
+
+    private static double[] draw(RandomStream stream, int n) {
+        double[] values = new double[3 * n];
+        for (int i = 0; i < n; i++) {
+            values[3 * i] = stream.nextDouble();
+            values[3 * i + 1] = stream.nextInt();
+            values[3 * i + 2] = stream.nextGaussian();
+        }
+        return values;
+    }
+
+    @Test
+    public void theSameSeedPurposeAndIndexGiveTheSameStream() {
+        for (RandomStream.Purpose purpose : RandomStream.Purpose.values()) {
+            for (int index = 0; index < 3; index++) {
+                double[] first = draw(RandomStream.create(42L, purpose, index), 1000);
+                double[] second = draw(RandomStream.create(42L, purpose, index), 1000);
+                assertEquals(purpose + "/" + index, first.length, second.length);
+                for (int i = 0; i < first.length; i++) {
+                    assertEquals(purpose + "/" + index + " draw " + i, first[i], second[i], 0.0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void differentSeedsPurposesAndIndexesGiveDifferentStreams() {
+        double reference = RandomStream.create(42L, RandomStream.Purpose.LOSS, 0).nextDouble();
+        assertNotEquals(reference, RandomStream.create(43L, RandomStream.Purpose.LOSS, 0).nextDouble(), 0.0);
+        assertNotEquals(reference, RandomStream.create(42L, RandomStream.Purpose.LOSS, 1).nextDouble(), 0.0);
+        for (RandomStream.Purpose purpose : RandomStream.Purpose.values()) {
+            if (purpose != RandomStream.Purpose.LOSS) {
+                assertNotEquals(purpose.name(), reference, RandomStream.create(42L, purpose, 0).nextDouble(), 0.0);
+            }
+        }
+    }
+
+    @Test
+    public void drawsHaveTheExpectedDistributions() {
+        RandomStream stream = RandomStream.create(1L, RandomStream.Purpose.DELAY, 0);
+        int n = 200000;
+        double sum = 0.0;
+        double gaussianSum = 0.0;
+        double gaussianSquares = 0.0;
+        for (int i = 0; i < n; i++) {
+            double u = stream.nextDouble();
+            assertTrue(u >= 0.0 && u < 1.0);
+            sum += u;
+            double g = stream.nextGaussian();
+            gaussianSum += g;
+            gaussianSquares += g * g;
+        }
+        assertEquals(0.5, sum / n, 0.005);
+        assertEquals(0.0, gaussianSum / n, 0.01);
+        assertEquals(1.0, gaussianSquares / n - (gaussianSum / n) * (gaussianSum / n), 0.02);
+    }
+
+    @Test
+    public void oneDecisionDoesNotShiftTheOthers() {
+        // the same seed, with and without losses: the delays drawn are the same whatever the loss draws in between
+        ChannelModel lossless = new ChannelModel(5L, 0.0, 0.0);
+        ChannelModel lossy = new ChannelModel(5L, 0.5, 0.5);
+        for (int i = 0; i < 1000; i++) {
+            lossy.isLost(true, i);
+            lossy.isCorrupted(true, i);
+            assertEquals("delay " + i, lossless.nextDelay(true), lossy.nextDelay(true), 0.0);
+        }
+    }
+
+    @Test
+    public void simulationsWithTheSameSeedAreIdentical() {
+        double[] times = new double[2];
+        long[] events = new long[2];
+        for (int run = 0; run < 2; run++) {
+            NetworkSimulator simulator = new NetworkSimulator();
+            simulator.setTrace(Trace.OFF);
+            simulator.initSimulator(200, 0.2, 0.2, 10.0, 99L);
+            simulator.runSimulator();
+            times[run] = simulator.getTime();
+            events[run] = simulator.getnEvents();
+        }
+        assertEquals(events[0], events[1]);
+        assertEquals(times[0], times[1], 0.0);
+    }
+}
@@ -0,0 +1,127 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+/**
+ * Checks the retransmission timeout against RFC 6298 worked by hand, its backoff and the bounds on it,
+ * and what an ACK that Karn's rule keeps from being sampled does to it.
+ */
+public class RtoEstimatorTest {
+
+    private static final double EPSILON = 1e-9;
+
+    @Test
+    public void theFirstSampleSetsSrttAndHalfOfItAsRttvar() {
+        RtoEstimator rto = new RtoEstimator();
+        assertEquals(RtoEstimator.INITIAL_RTO, rto.getRto(), EPSILON);
+
+        rto.sample(20.0);
+        assertEquals(20.0, rto.getSrtt(), EPSILON);
+        assertEquals(10.0, rto.getRttvar(), EPSILON);
+        assertEquals(20.0 + 4 * 10.0, rto.getRto(), EPSILON);
+    }
+
+    @Test
+    public void laterSamplesUpdateRttvarWithThePreviousSrtt() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.sample(20.0);
+        rto.sample(36.0);
+
+        // RTTVAR = 3/4 * 10 + 1/4 * |20 - 36|, then SRTT = 7/8 * 20 + 1/8 * 36
+        assertEquals(11.5, rto.getRttvar(), EPSILON);
+        assertEquals(22.0, rto.getSrtt(), EPSILON);
+        assertEquals(22.0 + 4 * 11.5, rto.getRto(), EPSILON);
+    }
+
+    @Test
+    public void aSteadyRoundTripKeepsTheTimeoutAboveTheTimerResolution() {
+        RtoEstimator rto = new RtoEstimator();
+        for (int i = 0; i < 200; i++) {
+            rto.sample(30.0);
+        }
+        assertEquals(30.0, rto.getSrtt(), 1e-6);
+        assertEquals(30.0 + EventList.TIMER_RESOLUTION, rto.getRto(), 1e-6);
+    }
+
+    @Test
+    public void theTimeoutIsNeverBelowMinRto() {
+        RtoEstimator rto = new RtoEstimator();
+        for (int i = 0; i < 200; i++) {
+            rto.sample(0.1);
+        }
+        assertEquals(RtoEstimator.MIN_RTO, rto.getRto(), EPSILON);
+    }
+
+    @Test
+    public void backoffDoublesUpToMaxBackoffTimesTheSampledTimeout() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.sample(20.0);
+        double sampled = rto.getRto();
+
+        rto.backoff();
+        assertEquals(Math.min(2 * sampled, RtoEstimator.MAX_BACKOFF * sampled), rto.getRto(), EPSILON);
+        for (int i = 0; i < 20; i++) {
+            rto.backoff();
+        }
+        assertEquals(RtoEstimator.MAX_BACKOFF * sampled, rto.getRto(), EPSILON);
+        assertEquals(21, rto.getBackoffs());
+
+        // the next sample starts from the estimate again
+        rto.sample(20.0);
+        assertEquals(0, rto.getBackoffs());
+        assertEquals(rto.getSrtt() + 4 * rto.getRttvar(), rto.getRto(), EPSILON);
+    }
+
+    @Test
+    public void beforeTheFirstSampleBackoffDoublesUpToMaxRto() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.backoff();
+        rto.backoff();
+        assertEquals(4 * RtoEstimator.INITIAL_RTO, rto.getRto(), EPSILON);
+
+        for (int i = 0; i < 20; i++) {
+            rto.backoff();
+        }
+        assertEquals(RtoEstimator.MAX_RTO, rto.getRto(), EPSILON);
+    }
+
+    @Test
+    public void anUnsampledAckOfNewDataClearsTheBackoffButNotTheEstimate() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.sample(20.0);
+        double sampled = rto.getRto();
+        rto.backoff();
+
+        // Karn's rule: the ACK of a retransmitted packet is not sampled, but it shows the path delivers again
+        rto.acknowledged();
+        assertEquals(sampled, rto.getRto(), EPSILON);
+        assertEquals(0, rto.getBackoffs());
+        assertEquals(20.0, rto.getSrtt(), EPSILON);
+        assertEquals(10.0, rto.getRttvar(), EPSILON);
+    }
+
+    @Test
+    public void beforeTheFirstSampleAnAckKeepsTheBackoff() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.backoff();
+
+        // INITIAL_RTO was too short for this path, so going back to it would only time out again
+        rto.acknowledged();
+        assertEquals(2 * RtoEstimator.INITIAL_RTO, rto.getRto(), EPSILON);
+        assertEquals(1, rto.getBackoffs());
+    }
+
+    @Test
+    public void resetForgetsEverything() {
+        RtoEstimator rto = new RtoEstimator();
+        rto.sample(20.0);
+        rto.backoff();
+        rto.reset();
+
+        assertEquals(RtoEstimator.INITIAL_RTO, rto.getRto(), EPSILON);
+        assertEquals(0.0, rto.getSrtt(), EPSILON);
+        assertEquals(0, rto.getBackoffs());
+    }
+}
@@ -0,0 +1,147 @@
+package transport;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import org.junit.Test;
+
+/**
+ * Checks the host timers of the EventList: timers on every level of the TimingWheel (and beyond its range) expire at their exact
+ * time and in order with the other events, and stopped or restarted timers never fire at their old time.
+ */
+public class TimingWheelTest {
+
+    // delays on both sides of the span of every wheel level (256, 2^14, 2^20 and 2^26 ticks), and beyond the top level
+    private static final double[] DELAYS = {0.5, 1.0, 255.5, 256.0, 257.0, 16383.0, 16384.0, 16385.0, 1048575.0, 1048576.0, 1048577.0,
+        67108863.0, 67108864.0, 67108870.0, 1.0e8};
+
+    @Test
+    public void timersCascadeDownAndExpireInOrderWithTheOtherEvents() {
+        for (SchedulerType type : SchedulerType.values()) {
+            EventList list = new EventList(type);
+            SplittableRandom rand = new SplittableRandom(7L);
+            List<Object> started = new ArrayList<>();    // timers and events, in the order they were scheduled
+            List<Double> times = new ArrayList<>();
+
+            for (int i = 0; i < 300; i++) {
+                double time = DELAYS[rand.nextInt(DELAYS.length)] + rand.nextInt(4);
+                if (rand.nextBoolean()) {
+                    TimerHandle timer = new TimerHandle(NetworkSimulator.A, i);
+                    list.startTimer(timer, time);
+                    started.add(timer);
+                } else {
+                    Event e = list.createEvent(time, EventType.FROMAPP, NetworkSimulator.A, null);
+                    list.add(e);
+                    started.add(e);
+                }
+                times.add(time);
+            }
+
+            // the expected order: by time, then in the order they were scheduled
+            List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < started.size(); i++) {
+                expected.add(i);
+            }
+            expected.sort((a, b) -> (times.get(a).equals(times.get(b))) ? Integer.compare(a, b) : Double.compare(times.get(a), times.get(b)));
+
+            for (int i : expected) {
+                Event next = list.removeNext();
+                assertEquals(type + ": time of " + started.get(i), times.get(i), next.getTime(), 0.0);
+                if (started.get(i) instanceof TimerHandle) {
+                    assertSame(type.name(), started.get(i), next.getTimer());
+                    assertEquals(type.name(), EventType.TIMERINTERRUPT, next.getType());
+                    assertFalse(type.name(), next.getTimer().isPending());
+                } else {
+                    assertSame(type.name(), started.get(i), next);
+                }
+            }
+            assertNull(type.name(), list.removeNext());
+        }
+    }
+
+    @Test
+    public void stoppedTimersNeverFire() {
+        for (SchedulerType type : SchedulerType.values()) {
+            EventList list = new EventList(type);
+            SplittableRandom rand = new SplittableRandom(11L);
+            List<TimerHandle> timers = new ArrayList<>();
+            for (int i = 0; i < 400; i++) {
+                TimerHandle timer = new TimerHandle(NetworkSimulator.A, i);
+                list.startTimer(timer, 1000.0 + DELAYS[rand.nextInt(DELAYS.length)]);
+                timers.add(timer);
+            }
+            // timers in the same tick as the event below are moved into the event queue when the event runs
+            for (int i = 0; i < 10; i++) {
+                TimerHandle timer = new TimerHandle(NetworkSimulator.A, 1000 + i);
+                list.startTimer(timer, 1256.5);
+                timers.add(timer);
+            }
+
+            // run up to time 1256 so that the wheel has advanced (and cascaded) past level 0
+            list.add(list.createEvent(1256.25, EventType.FROMAPP, NetworkSimulator.B, null));
+            Set<TimerHandle> fired = new HashSet<>();
+            while (true) {
+                Event next = list.removeNext();
+                if (next.getType() == EventType.FROMAPP) {
+                    break;
+                }
+                fired.add(next.getTimer());
+            }
+
+            // stop every other timer still running, wherever it is
+            Set<TimerHandle> stopped = new HashSet<>();
+            for (int i = 0; i < timers.size(); i += 2) {
+                TimerHandle timer = timers.get(i);
+                if (timer.isPending()) {
+                    assertTrue(type.name(), list.stopTimer(timer));
+                    assertFalse(type.name(), timer.isPending());
+                    assertFalse(type.name() + " stopped twice", list.stopTimer(timer));
+                    stopped.add(timer);
+                }
+            }
+
+            double last = 0.0;
+            for (Event next = list.removeNext(); next != null; next = list.removeNext()) {
+                TimerHandle timer = next.getTimer();
+                assertFalse(type + ": " + timer + " fired after being stopped", stopped.contains(timer));
+                assertTrue(type + ": " + timer + " fired twice", fired.add(timer));
+                assertEquals(type.name(), timer.getExpiry(), next.getTime(), 0.0);
+                assertTrue(type.name(), next.getTime() >= last);
+                last = next.getTime();
+            }
+            assertEquals(type.name(), timers.size(), fired.size() + stopped.size());
+        }
+    }
+
+    @Test
+    public void restartedTimersFireOnceAtTheirNewTime() {
+        EventList list = new EventList();
+        TimerHandle sooner = new TimerHandle(NetworkSimulator.A, 0);
+        TimerHandle later = new TimerHandle(NetworkSimulator.A, 1);
+        list.startTimer(sooner, 50000.0);
+        list.startTimer(later, 10.0);
+
+        list.startTimer(sooner, 20.0);
+        list.startTimer(later, 70000.0);
+
+        Event first = list.removeNext();
+        assertSame(sooner, first.getTimer());
+        assertEquals(20.0, first.getTime(), 0.0);
+        list.release(first);
+
+        Event second = list.removeNext();
+        assertSame(later, second.getTimer());
+        assertEquals(70000.0, second.getTime(), 0.0);
+        list.release(second);
+
+        assertNull(list.removeNext());
+    }
+}